@@ -0,0 +1,255 @@
+import java.io.*;
+import java.util.*;
+import java.util.function.BiFunction;
+
+/**
+ * BatchRouter class - non-interactive route queries: reads newline-delimited requests and
+ * writes one compact JSON or CSV result per request.
+ *
+ * A request line is "source,destination" or "source&lt;TAB&gt;destination", optionally followed by
+ * a walking speed in km/h; fields may be double-quoted CSV style. Blank lines and lines
+ * starting with '#' are skipped. Output is buffered and flushed whenever the input has no
+ * more lines ready, so piped use stays responsive without a flush per line.
+ */
+public final class BatchRouter {
+    private static final double DEFAULT_WALKING_SPEED_KMH = 5.0;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Output formats
+     */
+    public enum Format {
+        /** One JSON object per line */
+        JSON,
+        /** CSV with a header row; path names are joined with ';' */
+        CSV
+    }
+
+    private final BiFunction<String, String, Route> router;
+    private final Format format;
+
+    /**
+     * Constructor for BatchRouter answering from a graph on the calling thread
+     * @param graph The graph to route on
+     * @param format The output format
+     */
+    public BatchRouter(Graph graph, Format format) {
+        this(graph::findShortestRoute, format);
+    }
+
+    /**
+     * Constructor for BatchRouter answering from a routing service's current snapshot
+     * @param service The routing service
+     * @param format The output format
+     */
+    public BatchRouter(RoutingService service, Format format) {
+        this(service::findShortestRoute, format);
+    }
+
+    private BatchRouter(BiFunction<String, String, Route> router, Format format) {
+        this.router = router;
+        this.format = format;
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+    /**
+     * Answer every request from a reader
+     * @param in Request lines
+     * @param out Destination for the results; flushed but not closed
+     * @return Number of requests answered (malformed lines included)
+     * @throws IOException If reading or writing fails
+     */
+    public long run(Reader in, Writer out) throws IOException {
+        BufferedReader reader = in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in, BUFFER_SIZE);
+        Writer writer = out instanceof BufferedWriter ? out : new BufferedWriter(out, BUFFER_SIZE);
+        StringBuilder line = new StringBuilder(256);
+        if (format == Format.CSV) {
+            writer.write("from,to,found,distance,minutes,path\n");
+        }
+        long count = 0;
+        long lineNumber = 0;
+        String text;
+        while ((text = reader.readLine()) != null) {
+            lineNumber++;
+            line.setLength(0);
+            if (answer(text, lineNumber, line)) {
+                writer.append(line);
+                count++;
+            }
+            if (!reader.ready()) {
+                writer.flush();
+            }
+        }
+        writer.flush();
+        return count;
+    }
+
+    /**
+     * Answer one request line
+     * @param text The request line
+     * @param lineNumber Line number for error messages
+     * @param result Receives the result line, newline included
+     * @return false if the line was blank or a comment
+     */
+    boolean answer(String text, long lineNumber, StringBuilder result) {
+        if (text.isBlank() || text.startsWith("#")) {
+            return false;
+        }
+        List<String> fields = splitFields(text);
+        if (fields.size() < 2 || fields.size() > 3) {
+            appendError(result, lineNumber, "expected source,destination[,speed]");
+            return true;
+        }
+        double speed = DEFAULT_WALKING_SPEED_KMH;
+        if (fields.size() == 3) {
+            try {
+                speed = Double.parseDouble(fields.get(2));
+            } catch (NumberFormatException e) {
+                speed = Double.NaN;
+            }
+            if (!(speed > 0) || Double.isInfinite(speed)) {
+                appendError(result, lineNumber, "invalid walking speed: " + fields.get(2));
+                return true;
+            }
+        }
+        answer(fields.get(0), fields.get(1), speed, result);
+        return true;
+    }
+
+    /**
+     * Route one request and format the result
+     * @param source The starting location name
+     * @param destination The destination location name
+     * @param walkingSpeedKmh Walking speed for the travel time
+     * @param result Receives the result line, newline included
+     */
+    void answer(String source, String destination, double walkingSpeedKmh, StringBuilder result) {
+        Route route = router.apply(source, destination);
+        if (format == Format.JSON) {
+            appendJson(result, source, destination, route, walkingSpeedKmh);
+        } else {
+            appendCsv(result, source, destination, route, walkingSpeedKmh);
+        }
+    }
+
+    private void appendError(StringBuilder result, long lineNumber, String message) {
+        if (format == Format.JSON) {
+            result.append("{\"line\":").append(lineNumber).append(",\"error\":");
+            appendJsonString(result, message);
+            result.append("}\n");
+        } else {
+            result.append(",,error,,,");
+            appendCsvField(result, "line " + lineNumber + ": " + message);
+            result.append('\n');
+        }
+    }
+
+    private static void appendJson(StringBuilder out, String source, String destination, Route route, double speed) {
+        out.append("{\"from\":");
+        appendJsonString(out, source);
+        out.append(",\"to\":");
+        appendJsonString(out, destination);
+        if (route == null) {
+            out.append(",\"found\":false}\n");
+            return;
+        }
+        out.append(",\"found\":true,\"distance\":").append(round(route.getDistance()));
+        out.append(",\"minutes\":").append(round(Graph.travelTime(route.getDistance(), speed)));
+        out.append(",\"path\":[");
+        for (int i = 0; i < route.size(); i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            appendJsonString(out, route.getName(i));
+        }
+        out.append("]}\n");
+    }
+
+    private static void appendCsv(StringBuilder out, String source, String destination, Route route, double speed) {
+        appendCsvField(out, source);
+        out.append(',');
+        appendCsvField(out, destination);
+        if (route == null) {
+            out.append(",false,,,\n");
+            return;
+        }
+        out.append(",true,").append(round(route.getDistance()));
+        out.append(',').append(round(Graph.travelTime(route.getDistance(), speed))).append(',');
+        appendCsvField(out, String.join(";", route.getNames()));
+        out.append('\n');
+    }
+
+    /**
+     * Round to two decimals for output
+     */
+    private static double round(double value) {
+        return Math.round(value * 100.0) / 100.0;
+    }
+
+    static void appendJsonString(StringBuilder out, String text) {
+        out.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c < 0x20) {
+                out.append(String.format("\\u%04x", (int) c));
+            } else {
+                out.append(c);
+            }
+        }
+        out.append('"');
+    }
+
+    private static void appendCsvField(StringBuilder out, String text) {
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0) {
+            out.append(text);
+            return;
+        }
+        out.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"') {
+                out.append('"');
+            }
+            out.append(c);
+        }
+        out.append('"');
+    }
+
+    /**
+     * Split a request line on tabs if it has any, otherwise on commas, honouring double quotes
+     */
+    static List<String> splitFields(String line) {
+        char separator = line.indexOf('\t') >= 0 ? '\t' : ',';
+        List<String> fields = new ArrayList<>(3);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"' && field.toString().isBlank()) {
+                field.setLength(0);
+                quoted = true;
+            } else if (c == separator) {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString().trim());
+        return fields;
+    }
+}
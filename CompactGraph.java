@@ -0,0 +1,386 @@
+import java.util.*;
+
+/**
+ * CompactGraph class holding an immutable, int-indexed snapshot of a Graph.
+ * Adjacency is stored in compressed-sparse-row (CSR) form: the neighbours of node i
+ * are targets[offsets[i]] .. targets[offsets[i + 1] - 1], with the matching edge lengths
+ * (Euclidean unless a path length was set) precomputed in weights. Path attributes, when any were set, are held in
+ * further edge-indexed primitive columns so a cost function reads them without lookups.
+ * Names resolve to node ids through an open-addressing NodeIds table.
+ */
+public final class CompactGraph {
+    private final String[] names;
+    private final String[] types;
+    private final double[] xs;
+    private final double[] ys;
+    private final int[] offsets;
+    private final int[] targets;
+    private final double[] weights;
+    private final NodeIds ids;
+    // Edge attribute columns, all null when the graph has no path attributes
+    private final byte[] edgeFlags;
+    private final float[] edgeGrades;
+    private final short[] closedFrom;
+    private final short[] closedUntil;
+
+    private static final byte STAIRS = 1;
+    private static final byte COVERED = 2;
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    /**
+     * Constructor for CompactGraph (arrays are taken over, not copied)
+     */
+    CompactGraph(String[] names, String[] types, double[] xs, double[] ys,
+                 int[] offsets, int[] targets, double[] weights) {
+        this(names, types, xs, ys, NodeIds.of(names, names.length), offsets, targets, weights, null, null, null, null);
+    }
+
+    /**
+     * Constructor for CompactGraph with edge attribute columns (arrays are taken over, not copied)
+     */
+    private CompactGraph(String[] names, String[] types, double[] xs, double[] ys, NodeIds ids,
+                         int[] offsets, int[] targets, double[] weights,
+                         byte[] edgeFlags, float[] edgeGrades, short[] closedFrom, short[] closedUntil) {
+        this.names = names;
+        this.types = types;
+        this.xs = xs;
+        this.ys = ys;
+        this.ids = ids;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.edgeFlags = edgeFlags;
+        this.edgeGrades = edgeGrades;
+        this.closedFrom = closedFrom;
+        this.closedUntil = closedUntil;
+    }
+
+    /**
+     * Constructor for CompactGraph sharing everything but the edge lengths with another graph
+     */
+    private CompactGraph(CompactGraph graph, double[] weights) {
+        this.names = graph.names;
+        this.types = graph.types;
+        this.xs = graph.xs;
+        this.ys = graph.ys;
+        this.offsets = graph.offsets;
+        this.targets = graph.targets;
+        this.weights = weights;
+        this.ids = graph.ids;
+        this.edgeFlags = graph.edgeFlags;
+        this.edgeGrades = graph.edgeGrades;
+        this.closedFrom = graph.closedFrom;
+        this.closedUntil = graph.closedUntil;
+    }
+
+    /**
+     * Compile a location store and its path attributes into CSR form. The store's name,
+     * type and coordinate columns and its name table are shared rather than copied; the
+     * store copies them before its next write. Attribute columns are only allocated when at
+     * least one path has attributes.
+     * @param store Locations and adjacency
+     * @param pathAttributes Map of source name to destination name to attributes of that direction
+     * @param pathLengths Map of source name to destination name to a length used instead of the
+     *                    straight-line distance (Double.POSITIVE_INFINITY for a closed path)
+     * @return The compiled graph
+     */
+    static CompactGraph compile(LocationStore store, Map<String, Map<String, PathAttributes>> pathAttributes,
+                                Map<String, Map<String, Double>> pathLengths) {
+        store.share();
+        String[] names = store.nameColumn();
+        double[] xs = store.xColumn();
+        double[] ys = store.yColumn();
+        int n = store.size();
+        int edgeCount = 0;
+        for (int u = 0; u < n; u++) {
+            edgeCount += store.degree(u);
+        }
+
+        int[] offsets = new int[n + 1];
+        int[] targets = new int[edgeCount];
+        double[] weights = new double[edgeCount];
+        boolean attributed = !pathAttributes.isEmpty();
+        byte[] edgeFlags = attributed ? new byte[edgeCount] : null;
+        float[] edgeGrades = attributed ? new float[edgeCount] : null;
+        short[] closedFrom = attributed ? new short[edgeCount] : null;
+        short[] closedUntil = attributed ? new short[edgeCount] : null;
+        int e = 0;
+        for (int u = 0; u < n; u++) {
+            offsets[u] = e;
+            Map<String, PathAttributes> outgoing = pathAttributes.getOrDefault(names[u], Collections.emptyMap());
+            Map<String, Double> lengths = pathLengths.getOrDefault(names[u], Collections.emptyMap());
+            for (int i = 0; i < store.degree(u); i++) {
+                int v = store.neighbor(u, i);
+                double dx = xs[u] - xs[v];
+                double dy = ys[u] - ys[v];
+                targets[e] = v;
+                Double length = lengths.isEmpty() ? null : lengths.get(names[v]);
+                weights[e] = length != null ? length : Math.sqrt(dx * dx + dy * dy);
+                if (attributed) {
+                    PathAttributes attributes = outgoing.getOrDefault(names[v], PathAttributes.DEFAULT);
+                    edgeFlags[e] = (byte) ((attributes.hasStairs() ? STAIRS : 0) | (attributes.isCovered() ? COVERED : 0));
+                    edgeGrades[e] = (float) attributes.getGrade();
+                    closedFrom[e] = (short) (attributes.hasClosure() ? attributes.getClosedFrom() : -1);
+                    closedUntil[e] = (short) (attributes.hasClosure() ? attributes.getClosedUntil() : -1);
+                }
+                e++;
+            }
+        }
+        offsets[n] = e;
+
+        return new CompactGraph(names, store.typeColumn(), xs, ys, store.ids(), offsets, targets, weights,
+            edgeFlags, edgeGrades, closedFrom, closedUntil);
+    }
+
+    /**
+     * Build a compiled graph from node columns and an undirected edge list.
+     * Adjacency is laid out with one counting pass over the edges, so arrays are sized exactly.
+     * @param names Node names, index = node id
+     * @param types Node types
+     * @param xs Node x coordinates
+     * @param ys Node y coordinates
+     * @param edgeFrom First endpoint of each path
+     * @param edgeTo Second endpoint of each path
+     * @param pathCount Number of paths in edgeFrom/edgeTo
+     * @return The compiled graph
+     */
+    static CompactGraph fromPaths(String[] names, String[] types, double[] xs, double[] ys,
+                                  int[] edgeFrom, int[] edgeTo, int pathCount) {
+        int n = names.length;
+        int[] offsets = new int[n + 1];
+        for (int i = 0; i < pathCount; i++) {
+            offsets[edgeFrom[i] + 1]++;
+            offsets[edgeTo[i] + 1]++;
+        }
+        for (int u = 0; u < n; u++) {
+            offsets[u + 1] += offsets[u];
+        }
+        int[] fill = Arrays.copyOf(offsets, n);
+        int[] targets = new int[pathCount * 2];
+        double[] weights = new double[pathCount * 2];
+        for (int i = 0; i < pathCount; i++) {
+            int u = edgeFrom[i];
+            int v = edgeTo[i];
+            double dx = xs[u] - xs[v];
+            double dy = ys[u] - ys[v];
+            double weight = Math.sqrt(dx * dx + dy * dy);
+            targets[fill[u]] = v;
+            weights[fill[u]++] = weight;
+            targets[fill[v]] = u;
+            weights[fill[v]++] = weight;
+        }
+        return new CompactGraph(names, types, xs, ys, offsets, targets, weights);
+    }
+
+    /**
+     * Copy of this graph with a new length on every edge between two nodes, in both directions.
+     * Only the edge lengths are copied; everything else is shared.
+     * @param a First node id
+     * @param b Second node id
+     * @param length The new length (Double.POSITIVE_INFINITY to make the edges impassable)
+     * @return The patched graph
+     */
+    CompactGraph withPathLength(int a, int b, double length) {
+        double[] patched = weights.clone();
+        for (int e = offsets[a]; e < offsets[a + 1]; e++) {
+            if (targets[e] == b) {
+                patched[e] = length;
+            }
+        }
+        for (int e = offsets[b]; e < offsets[b + 1]; e++) {
+            if (targets[e] == a) {
+                patched[e] = length;
+            }
+        }
+        return new CompactGraph(this, patched);
+    }
+
+    /**
+     * Editable store over this graph's locations and paths, sharing the name, type and
+     * coordinate columns and the name table (the store copies them before its first write)
+     * @return The store; node ids are the same as in this graph
+     */
+    LocationStore toLocationStore() {
+        return new LocationStore(names, types, xs, ys, ids, offsets, targets);
+    }
+
+    /**
+     * Get the number of nodes
+     * @return Number of nodes
+     */
+    public int nodeCount() {
+        return names.length;
+    }
+
+    /**
+     * Get the number of directed edges (each bidirectional path counts twice)
+     * @return Number of directed edges
+     */
+    public int edgeCount() {
+        return targets.length;
+    }
+
+    /**
+     * Get the id of a node by location name
+     * @param name The location name
+     * @return The node id, or -1 if not present
+     */
+    public int indexOf(String name) {
+        return ids.find(name, names);
+    }
+
+    /**
+     * Materialize a node as a Location
+     * @param node The node id
+     * @return A new Location with the node's name, type and coordinates
+     */
+    public Location location(int node) {
+        return new Location(names[node], types[node], xs[node], ys[node]);
+    }
+
+    public String name(int node) {
+        return names[node];
+    }
+
+    public String type(int node) {
+        return types[node];
+    }
+
+    public double x(int node) {
+        return xs[node];
+    }
+
+    public double y(int node) {
+        return ys[node];
+    }
+
+    /**
+     * First edge index of a node; edges run up to (excluding) edgeStart(node + 1)
+     * @param node The node id
+     * @return Index into the edge arrays
+     */
+    public int edgeStart(int node) {
+        return offsets[node];
+    }
+
+    public int edgeEnd(int node) {
+        return offsets[node + 1];
+    }
+
+    public int edgeTarget(int edge) {
+        return targets[edge];
+    }
+
+    /**
+     * Length of an edge
+     * @param edge The edge id
+     * @return Length, Double.POSITIVE_INFINITY if the path is closed or removed
+     */
+    public double edgeWeight(int edge) {
+        return weights[edge];
+    }
+
+    /**
+     * Whether path attribute columns are present; without them every edge is flat,
+     * open-air, step-free and never closed
+     * @return true if edge attributes were compiled in
+     */
+    public boolean hasEdgeAttributes() {
+        return edgeFlags != null;
+    }
+
+    public boolean edgeHasStairs(int edge) {
+        return edgeFlags != null && (edgeFlags[edge] & STAIRS) != 0;
+    }
+
+    public boolean edgeIsCovered(int edge) {
+        return edgeFlags != null && (edgeFlags[edge] & COVERED) != 0;
+    }
+
+    /**
+     * Grade walking along an edge, rise over run
+     * @param edge The edge id
+     * @return Signed grade, positive uphill
+     */
+    public double edgeGrade(int edge) {
+        return edgeGrades == null ? 0.0 : edgeGrades[edge];
+    }
+
+    /**
+     * Whether an edge is closed at a time of day
+     * @param edge The edge id
+     * @param minute Minutes after midnight (taken modulo one day)
+     * @return true if the edge's closure window covers the time
+     */
+    public boolean isEdgeClosed(int edge, double minute) {
+        return minutesUntilEdgeOpens(edge, minute) > 0.0;
+    }
+
+    /**
+     * Time to wait before an edge can be entered
+     * @param edge The edge id
+     * @param minute Minutes after midnight (taken modulo one day)
+     * @return Minutes until the edge reopens, or 0 if it is open
+     */
+    public double minutesUntilEdgeOpens(int edge, double minute) {
+        if (closedFrom == null || closedFrom[edge] < 0) {
+            return 0.0;
+        }
+        double time = minute % MINUTES_PER_DAY;
+        if (time < 0) {
+            time += MINUTES_PER_DAY;
+        }
+        int from = closedFrom[edge];
+        int until = closedUntil[edge];
+        if (from < until) {
+            return time >= from && time < until ? until - time : 0.0;
+        }
+        // The window wraps past midnight
+        if (time >= from) {
+            return MINUTES_PER_DAY - time + until;
+        }
+        return time < until ? until - time : 0.0;
+    }
+
+    /**
+     * Length of the shortest edge from one node to another
+     * @param from Tail node id
+     * @param to Head node id
+     * @return Edge length, Double.POSITIVE_INFINITY if there is no open edge
+     */
+    double pathLength(int from, int to) {
+        double length = Double.POSITIVE_INFINITY;
+        for (int e = offsets[from]; e < offsets[from + 1]; e++) {
+            if (targets[e] == to) {
+                length = Math.min(length, weights[e]);
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Straight-line distance between two nodes
+     * @param a First node id
+     * @param b Second node id
+     * @return Euclidean distance
+     */
+    public double euclidean(int a, int b) {
+        double dx = xs[a] - xs[b];
+        double dy = ys[a] - ys[b];
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    /**
+     * Convert a list of node ids into location names
+     * @param nodes Node ids
+     * @param count Number of ids to convert
+     * @return List of location names
+     */
+    List<String> toNames(int[] nodes, int count) {
+        List<String> path = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            path.add(names[nodes[i]]);
+        }
+        return path;
+    }
+}
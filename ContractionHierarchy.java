@@ -0,0 +1,775 @@
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * ContractionHierarchy class - shortcut-augmented graph for fast point-to-point queries.
+ * Preprocessing contracts nodes one at a time in order of importance (edge difference plus
+ * contracted neighbours), adding a shortcut u-w via v whenever u-v-w is the only shortest
+ * path found by a bounded witness search. A query is a bidirectional Dijkstra that only
+ * follows edges towards more important nodes; shortcuts are unpacked into original edges
+ * before the path is returned.
+ *
+ * Paths are undirected, so one upward graph serves both search directions. For each node
+ * it holds the edges (original or shortcut) to more important neighbours, in CSR form.
+ */
+public final class ContractionHierarchy {
+    private static final int MAGIC = 0x55474348; // "UGCH"
+    private static final int FORMAT_VERSION = 2; // 2: edge count and length checksum of the source graph
+    // Witness searches stop after this many settled nodes; a missed witness only costs a
+    // superfluous shortcut, so priority estimates use a much tighter budget
+    private static final int WITNESS_SETTLE_LIMIT = 100;
+    private static final int ESTIMATE_SETTLE_LIMIT = 10;
+
+    private final String[] names;
+    private final Map<String, Integer> ids;
+    private final int[] upOffsets;
+    private final int[] upTargets;
+    private final double[] upWeights;
+    private final int[] upMiddles; // contracted node a shortcut bypasses, -1 for an original edge
+    private final int sourceEdgeCount; // directed edges of the compiled graph it was built from
+    private final long sourceChecksum; // pathChecksum of that graph
+    private final Queue<Query> idleQueries = new ConcurrentLinkedQueue<>(); // used by the public queries
+
+    private ContractionHierarchy(String[] names, int[] upOffsets, int[] upTargets, double[] upWeights,
+                                 int[] upMiddles, int sourceEdgeCount, long sourceChecksum) {
+        this.names = names;
+        this.sourceEdgeCount = sourceEdgeCount;
+        this.sourceChecksum = sourceChecksum;
+        this.upOffsets = upOffsets;
+        this.upTargets = upTargets;
+        this.upWeights = upWeights;
+        this.upMiddles = upMiddles;
+        this.ids = new HashMap<>(names.length * 2);
+        for (int i = 0; i < names.length; i++) {
+            ids.put(names[i], i);
+        }
+    }
+
+    /**
+     * Preprocess a graph
+     * @param graph The graph to contract
+     * @return The contraction hierarchy
+     */
+    public static ContractionHierarchy build(Graph graph) {
+        return build(graph.compile());
+    }
+
+    /**
+     * Preprocess a compiled graph
+     * @param graph The compiled graph to contract
+     * @return The contraction hierarchy
+     */
+    public static ContractionHierarchy build(CompactGraph graph) {
+        return new Builder(graph).build();
+    }
+
+    /**
+     * Get the number of nodes
+     * @return Number of nodes
+     */
+    public int nodeCount() {
+        return names.length;
+    }
+
+    /**
+     * Get the number of upward edges, original and shortcut
+     * @return Number of upward edges
+     */
+    public int upwardEdgeCount() {
+        return upTargets.length;
+    }
+
+    /**
+     * Get the number of shortcut edges added by preprocessing
+     * @return Number of shortcuts
+     */
+    public int shortcutCount() {
+        int count = 0;
+        for (int middle : upMiddles) {
+            if (middle >= 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Check whether this hierarchy was built for the given compiled graph's locations and paths
+     * @param graph The compiled graph
+     * @return true if both contain exactly the same location names, and the graph has as many
+     *         paths as the one the hierarchy was built from, with the same length checksum
+     */
+    boolean covers(CompactGraph graph) {
+        if (graph.nodeCount() != names.length || graph.edgeCount() != sourceEdgeCount) {
+            return false;
+        }
+        for (int i = 0; i < names.length; i++) {
+            if (!ids.containsKey(graph.name(i))) {
+                return false;
+            }
+        }
+        return pathChecksum(graph) == sourceChecksum;
+    }
+
+    /**
+     * Checksum of every path's endpoints and routing length, independent of node numbering
+     * (a loaded hierarchy may number the locations differently from the graph)
+     * @param graph The compiled graph
+     * @return The checksum
+     */
+    static long pathChecksum(CompactGraph graph) {
+        int n = graph.nodeCount();
+        long[] nameHashes = new long[n];
+        for (int u = 0; u < n; u++) {
+            nameHashes[u] = mix(graph.name(u).hashCode());
+        }
+        long sum = 0;
+        for (int u = 0; u < n; u++) {
+            for (int e = graph.edgeStart(u); e < graph.edgeEnd(u); e++) {
+                long edge = nameHashes[u] * 31 + nameHashes[graph.edgeTarget(e)];
+                // Summing mixed edge hashes makes the result independent of edge order
+                sum += mix(edge ^ mix(Double.doubleToLongBits(graph.edgeWeight(e))));
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * SplitMix64 finalizer
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Find the shortest path between two locations
+     * @param source The starting location name
+     * @param destination The destination location name
+     * @return List of location names representing the shortest path (empty if no path found)
+     */
+    public List<String> findShortestPath(String source, String destination) {
+        Query query = acquireQuery();
+        try {
+            return findShortestPath(query, source, destination);
+        } finally {
+            idleQueries.offer(query);
+        }
+    }
+
+    /**
+     * Find the shortest path between two locations with the caller's query state
+     * @param query Query state, not in use by another thread
+     * @param source The starting location name
+     * @param destination The destination location name
+     * @return List of location names representing the shortest path (empty if no path found)
+     */
+    List<String> findShortestPath(Query query, String source, String destination) {
+        Integer from = ids.get(source);
+        Integer to = ids.get(destination);
+        List<String> path = new ArrayList<>();
+        query.settled = 0;
+        if (from == null || to == null) {
+            return path;
+        }
+        if (from.intValue() == to.intValue()) {
+            path.add(source);
+            return path;
+        }
+        if (query.run(this, from, to) == Double.MAX_VALUE) {
+            return path;
+        }
+        int count = query.unpack(this, from, to);
+        for (int i = 0; i < count; i++) {
+            path.add(names[query.path[i]]);
+        }
+        return path;
+    }
+
+    /**
+     * Shortest distance between two locations, without unpacking the path
+     * @param source The starting location name
+     * @param destination The destination location name
+     * @return The distance, or Double.MAX_VALUE if either is unknown or they are not connected
+     */
+    public double getDistance(String source, String destination) {
+        Integer from = ids.get(source);
+        Integer to = ids.get(destination);
+        if (from == null || to == null) {
+            return Double.MAX_VALUE;
+        }
+        if (from.intValue() == to.intValue()) {
+            return 0.0;
+        }
+        Query query = acquireQuery();
+        try {
+            return query.run(this, from, to);
+        } finally {
+            idleQueries.offer(query);
+        }
+    }
+
+    private Query acquireQuery() {
+        Query query = idleQueries.poll();
+        return query != null ? query : new Query();
+    }
+
+    /**
+     * Write the hierarchy to a file so that preprocessing can be skipped at startup
+     * @param file The file to write
+     * @throws IOException If the file cannot be written
+     */
+    public void save(Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(names.length);
+            out.writeInt(upTargets.length);
+            out.writeInt(sourceEdgeCount);
+            out.writeLong(sourceChecksum);
+            for (String name : names) {
+                out.writeUTF(name);
+            }
+            for (int offset : upOffsets) {
+                out.writeInt(offset);
+            }
+            for (int e = 0; e < upTargets.length; e++) {
+                out.writeInt(upTargets[e]);
+                out.writeDouble(upWeights[e]);
+                out.writeInt(upMiddles[e]);
+            }
+        }
+    }
+
+    /**
+     * Read a hierarchy written by save
+     * @param file The file to read
+     * @return The contraction hierarchy
+     * @throws IOException If the file cannot be read or is not a contraction hierarchy
+     */
+    public static ContractionHierarchy load(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a contraction hierarchy file: " + file);
+            }
+            int version = in.readInt();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported contraction hierarchy version " + version + " in " + file);
+            }
+            int n = in.readInt();
+            int m = in.readInt();
+            int sourceEdgeCount = in.readInt();
+            long sourceChecksum = in.readLong();
+            String[] names = new String[n];
+            for (int i = 0; i < n; i++) {
+                names[i] = in.readUTF();
+            }
+            int[] offsets = new int[n + 1];
+            for (int i = 0; i <= n; i++) {
+                offsets[i] = in.readInt();
+            }
+            int[] targets = new int[m];
+            double[] weights = new double[m];
+            int[] middles = new int[m];
+            for (int e = 0; e < m; e++) {
+                targets[e] = in.readInt();
+                weights[e] = in.readDouble();
+                middles[e] = in.readInt();
+            }
+            return new ContractionHierarchy(names, offsets, targets, weights, middles, sourceEdgeCount, sourceChecksum);
+        }
+    }
+
+    /**
+     * Node id of a location in this hierarchy
+     * @param name The location name
+     * @return The node id, or -1 if unknown
+     */
+    int indexOf(String name) {
+        Integer id = ids.get(name);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * First upward edge of a node; upward edges of node v are upwardStart(v) .. upwardStart(v + 1) - 1
+     * @param node The node id
+     * @return Edge index
+     */
+    int upwardStart(int node) {
+        return upOffsets[node];
+    }
+
+    int upwardTarget(int edge) {
+        return upTargets[edge];
+    }
+
+    double upwardWeight(int edge) {
+        return upWeights[edge];
+    }
+
+    /**
+     * Upward edge from a node to a more important neighbour
+     * @return The edge index, or -1 if there is none
+     */
+    private int upwardEdge(int from, int to) {
+        for (int e = upOffsets[from]; e < upOffsets[from + 1]; e++) {
+            if (upTargets[e] == to) {
+                return e;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Bidirectional query state, reusable across hierarchies; callers keep a pool of idle ones
+     */
+    static final class Query {
+        private final double[][] distance = new double[2][0];
+        private final int[][] parentEdge = new int[2][0];
+        private final int[][] parentNode = new int[2][0];
+        private final int[][] reachedStamp = new int[2][0];
+        private final IndexedMinHeap[] heaps = {new IndexedMinHeap(0), new IndexedMinHeap(0)};
+        private int generation;
+        private int meeting;
+        private int settled;
+        private int[] path = new int[16];
+        private final IntStack pending = new IntStack();
+        private final IntStack chain = new IntStack();
+
+        /**
+         * Get the number of nodes settled by the last query run with this state
+         * @return Nodes settled, both directions combined
+         */
+        int settledCount() {
+            return settled;
+        }
+
+        /**
+         * Grow the arrays to hold n nodes
+         */
+        private void ensureCapacity(int n) {
+            if (n > distance[0].length) {
+                for (int side = 0; side < 2; side++) {
+                    distance[side] = new double[n];
+                    parentEdge[side] = new int[n];
+                    parentNode[side] = new int[n];
+                    reachedStamp[side] = new int[n];
+                    heaps[side].ensureCapacity(n);
+                }
+                generation = 0;
+            }
+        }
+
+        /**
+         * Run the upward search from both ends
+         * @return The shortest distance, or Double.MAX_VALUE if not connected
+         */
+        double run(ContractionHierarchy h, int source, int target) {
+            ensureCapacity(h.names.length);
+            if (++generation == 0) {
+                Arrays.fill(reachedStamp[0], 0);
+                Arrays.fill(reachedStamp[1], 0);
+                generation = 1;
+            }
+            settled = 0;
+            meeting = -1;
+            double best = Double.MAX_VALUE;
+            start(0, source);
+            start(1, target);
+
+            while (true) {
+                IndexedMinHeap forward = heaps[0];
+                IndexedMinHeap backward = heaps[1];
+                boolean forwardOpen = !forward.isEmpty() && forward.peekKey() < best;
+                boolean backwardOpen = !backward.isEmpty() && backward.peekKey() < best;
+                if (!forwardOpen && !backwardOpen) {
+                    break;
+                }
+                int side = forwardOpen && (!backwardOpen || forward.peekKey() <= backward.peekKey()) ? 0 : 1;
+                int node = heaps[side].pop();
+                settled++;
+                int other = 1 - side;
+                if (reachedStamp[other][node] == generation) {
+                    double total = distance[side][node] + distance[other][node];
+                    if (total < best) {
+                        best = total;
+                        meeting = node;
+                    }
+                }
+                double base = distance[side][node];
+                for (int e = h.upOffsets[node]; e < h.upOffsets[node + 1]; e++) {
+                    int next = h.upTargets[e];
+                    double candidate = base + h.upWeights[e];
+                    if (reachedStamp[side][next] != generation || candidate < distance[side][next]) {
+                        reachedStamp[side][next] = generation;
+                        distance[side][next] = candidate;
+                        parentEdge[side][next] = e;
+                        parentNode[side][next] = node;
+                        heaps[side].push(next, candidate);
+                    }
+                }
+            }
+            heaps[0].clear();
+            heaps[1].clear();
+            return best;
+        }
+
+        private void start(int side, int node) {
+            reachedStamp[side][node] = generation;
+            distance[side][node] = 0.0;
+            parentEdge[side][node] = -1;
+            parentNode[side][node] = -1;
+            heaps[side].push(node, 0.0);
+        }
+
+        /**
+         * Expand the last query's path into original edges
+         * @return Number of nodes written to path, source first
+         */
+        int unpack(ContractionHierarchy h, int source, int target) {
+            // Upward chain source .. meeting (forward), then meeting .. target (backward)
+            chain.clear();
+            for (int node = meeting; node != source; node = parentNode[0][node]) {
+                chain.push(parentEdge[0][node]);
+            }
+            int count = append(0, source);
+            int from = source;
+            while (!chain.isEmpty()) {
+                int e = chain.pop();
+                int to = h.upTargets[e];
+                count = expand(h, count, from, to, h.upMiddles[e]);
+                from = to;
+            }
+            for (int node = meeting; node != target; node = parentNode[1][node]) {
+                count = expand(h, count, node, parentNode[1][node], h.upMiddles[parentEdge[1][node]]);
+            }
+            return count;
+        }
+
+        /**
+         * Append the original edges of edge from-to (bypassing middle) after from
+         */
+        private int expand(ContractionHierarchy h, int count, int from, int to, int middle) {
+            pending.clear();
+            pending.push(to);
+            pending.push(middle);
+            int current = from;
+            while (!pending.isEmpty()) {
+                int mid = pending.pop();
+                int end = pending.pop();
+                if (mid < 0) {
+                    count = append(count, end);
+                    current = end;
+                    continue;
+                }
+                // Both halves run upwards from the bypassed node
+                int second = h.upwardEdge(mid, end);
+                int first = h.upwardEdge(mid, current);
+                pending.push(end);
+                pending.push(h.upMiddles[second]);
+                pending.push(mid);
+                pending.push(h.upMiddles[first]);
+            }
+            return count;
+        }
+
+        private int append(int count, int node) {
+            if (count == path.length) {
+                path = Arrays.copyOf(path, count * 2);
+            }
+            path[count] = node;
+            return count + 1;
+        }
+    }
+
+    /**
+     * Minimal growable int stack
+     */
+    private static final class IntStack {
+        private int[] values = new int[16];
+        private int size;
+
+        void push(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int pop() {
+            return values[--size];
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void clear() {
+            size = 0;
+        }
+    }
+
+    /**
+     * Node ordering and contraction
+     */
+    private static final class Builder {
+        private final CompactGraph graph;
+        private final int n;
+        // Current adjacency among uncontracted nodes, including shortcuts
+        private final int[][] neighbors;
+        private final double[][] weights;
+        private final int[][] middles;
+        private final int[] degree;
+        private final boolean[] contracted;
+        private final int[] contractedNeighbors;
+        private final int[] level; // 1 + highest level among contracted neighbours
+        // Witness search state
+        private final double[] witnessDistance;
+        private final int[] witnessStamp;
+        private final IndexedMinHeap witnessHeap;
+        private int witnessGeneration;
+
+        Builder(CompactGraph graph) {
+            this.graph = graph;
+            this.n = graph.nodeCount();
+            neighbors = new int[n][];
+            weights = new double[n][];
+            middles = new int[n][];
+            degree = new int[n];
+            contracted = new boolean[n];
+            contractedNeighbors = new int[n];
+            level = new int[n];
+            witnessDistance = new double[n];
+            witnessStamp = new int[n];
+            witnessHeap = new IndexedMinHeap(n);
+            for (int u = 0; u < n; u++) {
+                int size = graph.edgeEnd(u) - graph.edgeStart(u);
+                neighbors[u] = new int[Math.max(size, 2)];
+                weights[u] = new double[neighbors[u].length];
+                middles[u] = new int[neighbors[u].length];
+                for (int e = graph.edgeStart(u); e < graph.edgeEnd(u); e++) {
+                    int v = graph.edgeTarget(e);
+                    if (v != u && graph.edgeWeight(e) != Double.POSITIVE_INFINITY) {
+                        addOrImprove(u, v, graph.edgeWeight(e), -1);
+                    }
+                }
+            }
+        }
+
+        ContractionHierarchy build() {
+            IndexedMinHeap order = new IndexedMinHeap(n);
+            for (int v = 0; v < n; v++) {
+                order.push(v, priority(v));
+            }
+
+            int[] upOffsets = new int[n + 1];
+            int[][] upTargets = new int[n][];
+            double[][] upWeights = new double[n][];
+            int[][] upMiddles = new int[n][];
+            int upEdges = 0;
+
+            while (!order.isEmpty()) {
+                double key = order.peekKey();
+                int v = order.pop();
+                // Lazy update: re-queue if the node became more costly since it was keyed
+                double current = priority(v);
+                if (!order.isEmpty() && current > key && current > order.peekKey()) {
+                    order.push(v, current);
+                    continue;
+                }
+
+                // Remaining neighbours are all more important than v
+                int count = 0;
+                for (int i = 0; i < degree[v]; i++) {
+                    if (!contracted[neighbors[v][i]]) {
+                        count++;
+                    }
+                }
+                upTargets[v] = new int[count];
+                upWeights[v] = new double[count];
+                upMiddles[v] = new int[count];
+                for (int i = 0, j = 0; i < degree[v]; i++) {
+                    if (!contracted[neighbors[v][i]]) {
+                        upTargets[v][j] = neighbors[v][i];
+                        upWeights[v][j] = weights[v][i];
+                        upMiddles[v][j] = middles[v][i];
+                        j++;
+                    }
+                }
+                upEdges += count;
+
+                contract(v, false);
+                contracted[v] = true;
+                for (int i = 0; i < degree[v]; i++) {
+                    int u = neighbors[v][i];
+                    if (!contracted[u]) {
+                        remove(u, v);
+                        contractedNeighbors[u]++;
+                        level[u] = Math.max(level[u], level[v] + 1);
+                    }
+                }
+                for (int i = 0; i < degree[v]; i++) {
+                    int u = neighbors[v][i];
+                    if (!contracted[u]) {
+                        order.push(u, priority(u));
+                    }
+                }
+            }
+
+            int[] targets = new int[upEdges];
+            double[] edgeWeights = new double[upEdges];
+            int[] edgeMiddles = new int[upEdges];
+            int e = 0;
+            for (int v = 0; v < n; v++) {
+                upOffsets[v] = e;
+                System.arraycopy(upTargets[v], 0, targets, e, upTargets[v].length);
+                System.arraycopy(upWeights[v], 0, edgeWeights, e, upWeights[v].length);
+                System.arraycopy(upMiddles[v], 0, edgeMiddles, e, upMiddles[v].length);
+                e += upTargets[v].length;
+            }
+            upOffsets[n] = e;
+
+            String[] names = new String[n];
+            for (int v = 0; v < n; v++) {
+                names[v] = graph.name(v);
+            }
+            return new ContractionHierarchy(names, upOffsets, targets, edgeWeights, edgeMiddles,
+                graph.edgeCount(), pathChecksum(graph));
+        }
+
+        /**
+         * Importance of a node: shortcuts it would add minus edges it removes, plus
+         * contracted neighbours and hierarchy level to spread contraction evenly over the graph
+         */
+        private double priority(int v) {
+            int removed = 0;
+            for (int i = 0; i < degree[v]; i++) {
+                if (!contracted[neighbors[v][i]]) {
+                    removed++;
+                }
+            }
+            return 2 * (contract(v, true) - removed) + contractedNeighbors[v] + level[v];
+        }
+
+        /**
+         * Contract a node, or only count the shortcuts that contracting it would add
+         * @param v The node to contract
+         * @param simulate true to count without adding shortcuts
+         * @return Number of shortcuts needed
+         */
+        private int contract(int v, boolean simulate) {
+            int shortcuts = 0;
+            int deg = degree[v];
+            for (int i = 0; i < deg; i++) {
+                int u = neighbors[v][i];
+                if (contracted[u]) {
+                    continue;
+                }
+                double toV = weights[v][i];
+                double limit = -1.0;
+                for (int j = i + 1; j < deg; j++) {
+                    if (!contracted[neighbors[v][j]]) {
+                        limit = Math.max(limit, toV + weights[v][j]);
+                    }
+                }
+                if (limit < 0.0) {
+                    continue; // no remaining neighbour pairs with u
+                }
+                witnessSearch(u, v, limit, simulate ? ESTIMATE_SETTLE_LIMIT : WITNESS_SETTLE_LIMIT);
+                for (int j = i + 1; j < deg; j++) {
+                    int w = neighbors[v][j];
+                    if (contracted[w]) {
+                        continue;
+                    }
+                    double via = toV + weights[v][j];
+                    double witness = witnessStamp[w] == witnessGeneration ? witnessDistance[w] : Double.MAX_VALUE;
+                    if (witness > via) {
+                        shortcuts++;
+                        if (!simulate) {
+                            addOrImprove(u, w, via, v);
+                            addOrImprove(w, u, via, v);
+                        }
+                    }
+                }
+            }
+            return shortcuts;
+        }
+
+        /**
+         * Bounded Dijkstra from source over uncontracted nodes, avoiding the node being contracted
+         */
+        private void witnessSearch(int source, int avoid, double limit, int settleLimit) {
+            if (++witnessGeneration == 0) {
+                Arrays.fill(witnessStamp, 0);
+                witnessGeneration = 1;
+            }
+            witnessHeap.clear();
+            witnessDistance[source] = 0.0;
+            witnessStamp[source] = witnessGeneration;
+            witnessHeap.push(source, 0.0);
+            int settled = 0;
+            while (!witnessHeap.isEmpty() && witnessHeap.peekKey() <= limit && settled < settleLimit) {
+                int u = witnessHeap.pop();
+                settled++;
+                double base = witnessDistance[u];
+                for (int i = 0; i < degree[u]; i++) {
+                    int w = neighbors[u][i];
+                    if (w == avoid || contracted[w]) {
+                        continue;
+                    }
+                    double candidate = base + weights[u][i];
+                    if (witnessStamp[w] != witnessGeneration || candidate < witnessDistance[w]) {
+                        witnessStamp[w] = witnessGeneration;
+                        witnessDistance[w] = candidate;
+                        witnessHeap.push(w, candidate);
+                    }
+                }
+            }
+            witnessHeap.clear();
+        }
+
+        /**
+         * Drop edge u-v from u's list so later searches do not scan contracted nodes
+         */
+        private void remove(int u, int v) {
+            for (int i = 0; i < degree[u]; i++) {
+                if (neighbors[u][i] == v) {
+                    int last = --degree[u];
+                    neighbors[u][i] = neighbors[u][last];
+                    weights[u][i] = weights[u][last];
+                    middles[u][i] = middles[u][last];
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Add edge u-v, or lower its weight if already present
+         */
+        private void addOrImprove(int u, int v, double weight, int middle) {
+            for (int i = 0; i < degree[u]; i++) {
+                if (neighbors[u][i] == v) {
+                    if (weight < weights[u][i]) {
+                        weights[u][i] = weight;
+                        middles[u][i] = middle;
+                    }
+                    return;
+                }
+            }
+            if (degree[u] == neighbors[u].length) {
+                int capacity = degree[u] * 2;
+                neighbors[u] = Arrays.copyOf(neighbors[u], capacity);
+                weights[u] = Arrays.copyOf(weights[u], capacity);
+                middles[u] = Arrays.copyOf(middles[u], capacity);
+            }
+            neighbors[u][degree[u]] = v;
+            weights[u][degree[u]] = weight;
+            middles[u][degree[u]] = middle;
+            degree[u]++;
+        }
+    }
+}
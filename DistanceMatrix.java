@@ -0,0 +1,109 @@
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * DistanceMatrix class - one-to-many and many-to-many shortest distances on a CompactGraph.
+ * Each source runs a single Dijkstra that stops as soon as every target is settled, and
+ * sources are spread over the common fork-join pool. Unknown or unreachable cells hold
+ * Double.MAX_VALUE, as in ShortestPathSearch.distance and RouteTable.
+ */
+final class DistanceMatrix {
+    private DistanceMatrix() {
+    }
+
+    /**
+     * Resolve location names to node ids
+     * @param graph The compiled graph
+     * @param names Location names
+     * @return Node ids, -1 for unknown names
+     */
+    static int[] resolve(CompactGraph graph, List<String> names) {
+        int[] nodes = new int[names.size()];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = graph.indexOf(names.get(i));
+        }
+        return nodes;
+    }
+
+    /**
+     * Shortest distances from one node to each target
+     * @param graph The compiled graph
+     * @param search Search state to use (bound to graph by this call)
+     * @param source Source node id, -1 if unknown
+     * @param targets Target node ids, -1 for unknown
+     * @return Distance to each target, in target order
+     */
+    static double[] oneToMany(CompactGraph graph, ShortestPathSearch search, int source, int[] targets) {
+        double[] row = new double[targets.length];
+        fillRow(graph, search, source, targets, row);
+        return row;
+    }
+
+    /**
+     * Shortest distances between every source and every target, computed in parallel
+     * @param graph The compiled graph
+     * @param sources Source node ids, -1 for unknown
+     * @param targets Target node ids, -1 for unknown
+     * @return matrix[i][j] = distance from sources[i] to targets[j]
+     */
+    static double[][] manyToMany(CompactGraph graph, int[] sources, int[] targets) {
+        double[][] matrix = new double[sources.length][targets.length];
+        // A few leaves per worker balances load without giving every source its own search arrays
+        int perTask = Math.max(1, sources.length / (ForkJoinPool.getCommonPoolParallelism() * 4));
+        ForkJoinPool.commonPool().invoke(new SourceRange(graph, sources, targets, matrix, perTask, 0, sources.length));
+        return matrix;
+    }
+
+    private static void fillRow(CompactGraph graph, ShortestPathSearch search, int source, int[] targets, double[] row) {
+        Arrays.fill(row, Double.MAX_VALUE);
+        if (source < 0) {
+            return;
+        }
+        search.bind(graph);
+        search.runToTargets(source, targets);
+        for (int j = 0; j < targets.length; j++) {
+            if (targets[j] >= 0) {
+                row[j] = search.distance(targets[j]);
+            }
+        }
+    }
+
+    /**
+     * Fork-join task filling the matrix rows of a range of sources
+     */
+    private static final class SourceRange extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final transient CompactGraph graph;
+        private final int[] sources;
+        private final int[] targets;
+        private final double[][] matrix;
+        private final int perTask;
+        private final int from;
+        private final int to;
+
+        SourceRange(CompactGraph graph, int[] sources, int[] targets, double[][] matrix, int perTask, int from, int to) {
+            this.graph = graph;
+            this.sources = sources;
+            this.targets = targets;
+            this.matrix = matrix;
+            this.perTask = perTask;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > perTask) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new SourceRange(graph, sources, targets, matrix, perTask, from, mid),
+                          new SourceRange(graph, sources, targets, matrix, perTask, mid, to));
+                return;
+            }
+            ShortestPathSearch search = new ShortestPathSearch();
+            for (int i = from; i < to; i++) {
+                fillRow(graph, search, sources[i], targets, matrix[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,433 @@
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * DistanceOracle class - shortest distances without path reconstruction, for callers that
+ * only need the number.
+ *
+ * Landmarks (ALT): a few nodes spread around the edge of the map, with their distance to every
+ * node. By the triangle inequality |d(L, v) - d(L, t)| never exceeds d(v, t), which gives an
+ * A* lower bound much tighter than the straight line once paths detour. Landmark rows are
+ * computed in parallel, one Dijkstra per landmark, and stored node-major so one bound reads
+ * one contiguous run of doubles.
+ *
+ * Hub labels (optional): for every node, the nodes settled by its upward search in a
+ * contraction hierarchy, with their distances, less those stalled on demand. Two labels
+ * always share the top node of a shortest path, so the exact distance is a merge of two
+ * sorted arrays, with no search. Labels are computed in parallel across nodes and packed
+ * into three primitive arrays; if they would outgrow the memory budget the oracle keeps
+ * answering with ALT searches.
+ *
+ * An oracle belongs to one compiled graph; after an edit, build a new one.
+ */
+public final class DistanceOracle {
+    private final CompactGraph graph;
+    private final int[] landmarks;
+    private final double[] landmarkDistances; // [node * landmarks.length + i] = d(landmark i, node)
+    private final int[] labelOffsets;          // label of node v is labelOffsets[v] .. labelOffsets[v + 1] - 1
+    private final int[] labelHubs;             // hub ids, ascending within a label
+    private final double[] labelDistances;
+    private final ThreadLocal<ShortestPathSearch> searches = ThreadLocal.withInitial(ShortestPathSearch::new);
+
+    private DistanceOracle(CompactGraph graph, int[] landmarks, double[] landmarkDistances,
+                           int[] labelOffsets, int[] labelHubs, double[] labelDistances) {
+        this.graph = graph;
+        this.landmarks = landmarks;
+        this.landmarkDistances = landmarkDistances;
+        this.labelOffsets = labelOffsets;
+        this.labelHubs = labelHubs;
+        this.labelDistances = labelDistances;
+    }
+
+    /**
+     * Choose landmarks and compute their distances to every node, one landmark per fork-join task
+     * @param graph The compiled graph
+     * @param landmarkCount Number of landmarks wanted (fewer if the graph has fewer connected nodes)
+     * @return An oracle without hub labels
+     */
+    static DistanceOracle build(CompactGraph graph, int landmarkCount) {
+        if (landmarkCount < 1) {
+            throw new IllegalArgumentException("At least one landmark is needed: " + landmarkCount);
+        }
+        int n = graph.nodeCount();
+        int[] chosen = chooseLandmarks(graph, landmarkCount);
+        int[] all = new int[n];
+        for (int v = 0; v < n; v++) {
+            all[v] = v;
+        }
+        double[][] rows = DistanceMatrix.manyToMany(graph, chosen, all);
+        int k = chosen.length;
+        double[] packed = new double[n * k];
+        for (int i = 0; i < k; i++) {
+            double[] row = rows[i];
+            rows[i] = null; // let each row go once copied
+            for (int v = 0; v < n; v++) {
+                packed[v * k + i] = row[v];
+            }
+        }
+        return new DistanceOracle(graph, chosen, packed, null, null, null);
+    }
+
+    /**
+     * Spread landmarks around the map: split the plane into equal angular sectors around the
+     * centroid of the connected nodes and take the node farthest out in each. Farthest-first
+     * selection gives slightly better bounds but needs one search per landmark in sequence.
+     */
+    private static int[] chooseLandmarks(CompactGraph graph, int wanted) {
+        int n = graph.nodeCount();
+        double cx = 0;
+        double cy = 0;
+        int connected = 0;
+        for (int v = 0; v < n; v++) {
+            if (graph.edgeEnd(v) > graph.edgeStart(v)) {
+                cx += graph.x(v);
+                cy += graph.y(v);
+                connected++;
+            }
+        }
+        if (connected == 0) {
+            return new int[0];
+        }
+        cx /= connected;
+        cy /= connected;
+        int k = Math.min(wanted, connected);
+        int[] best = new int[k];
+        double[] bestRadius = new double[k];
+        Arrays.fill(best, -1);
+        for (int v = 0; v < n; v++) {
+            if (graph.edgeEnd(v) == graph.edgeStart(v)) {
+                continue;
+            }
+            double dx = graph.x(v) - cx;
+            double dy = graph.y(v) - cy;
+            int sector = Math.min(k - 1, (int) ((Math.atan2(dy, dx) + Math.PI) / (2 * Math.PI) * k));
+            double radius = dx * dx + dy * dy;
+            if (best[sector] < 0 || radius > bestRadius[sector]) {
+                best[sector] = v;
+                bestRadius[sector] = radius;
+            }
+        }
+        // Sectors left empty (e.g. a long thin map) are dropped rather than filled with near-duplicates
+        return Arrays.stream(best).filter(v -> v >= 0).toArray();
+    }
+
+    /**
+     * Add exact hub labels from a contraction hierarchy of the same graph
+     * @param hierarchy A contraction hierarchy covering this oracle's graph
+     * @param budgetBytes Most memory the packed labels may take
+     * @return A new oracle with hub labels, or this one if the labels do not fit the budget
+     */
+    DistanceOracle withHubLabels(ContractionHierarchy hierarchy, long budgetBytes) {
+        if (!hierarchy.covers(graph)) {
+            throw new IllegalArgumentException("Contraction hierarchy was built for different locations or path lengths");
+        }
+        int n = graph.nodeCount();
+        int[][] hubs = new int[n][];
+        double[][] distances = new double[n][];
+        // Offsets are always needed; every entry costs a hub id and a distance
+        long budgetEntries = (budgetBytes - 4L * (n + 1)) / (Integer.BYTES + Double.BYTES);
+        AtomicLong entries = new AtomicLong();
+        int perTask = Math.max(64, n / (ForkJoinPool.getCommonPoolParallelism() * 8));
+        ForkJoinPool.commonPool().invoke(new LabelRange(hierarchy, hubs, distances, entries, budgetEntries, perTask, 0, n));
+        if (entries.get() > budgetEntries) {
+            return this;
+        }
+        int[] offsets = new int[n + 1];
+        for (int v = 0; v < n; v++) {
+            offsets[v + 1] = offsets[v] + hubs[v].length;
+        }
+        int[] packedHubs = new int[offsets[n]];
+        double[] packedDistances = new double[offsets[n]];
+        for (int v = 0; v < n; v++) {
+            System.arraycopy(hubs[v], 0, packedHubs, offsets[v], hubs[v].length);
+            System.arraycopy(distances[v], 0, packedDistances, offsets[v], hubs[v].length);
+        }
+        return new DistanceOracle(graph, landmarks, landmarkDistances, offsets, packedHubs, packedDistances);
+    }
+
+    /**
+     * Check whether this oracle was built for a compiled graph
+     * @param graph The compiled graph
+     * @return true if the oracle's distances are those of graph
+     */
+    boolean covers(CompactGraph graph) {
+        return this.graph == graph;
+    }
+
+    /**
+     * Shortest distance between two locations: a label merge if hub labels were built,
+     * otherwise an A* search guided by the landmarks
+     * @param source The starting location name
+     * @param destination The destination location name
+     * @return The distance, or Double.MAX_VALUE if either is unknown or they are not connected
+     */
+    public double getDistance(String source, String destination) {
+        int from = graph.indexOf(source);
+        int to = graph.indexOf(destination);
+        if (from < 0 || to < 0) {
+            return Double.MAX_VALUE;
+        }
+        return distance(from, to);
+    }
+
+    /**
+     * Shortest distances between every source and every target
+     * @param sources The starting location names
+     * @param targets The destination location names
+     * @return matrix[i][j] = distance from sources[i] to targets[j] (Double.MAX_VALUE if unknown or unreachable)
+     */
+    public double[][] getDistances(List<String> sources, List<String> targets) {
+        if (labelOffsets == null) {
+            return DistanceMatrix.manyToMany(graph, DistanceMatrix.resolve(graph, sources),
+                DistanceMatrix.resolve(graph, targets));
+        }
+        int[] to = DistanceMatrix.resolve(graph, targets);
+        double[][] matrix = new double[sources.size()][to.length];
+        for (int i = 0; i < matrix.length; i++) {
+            int from = graph.indexOf(sources.get(i));
+            for (int j = 0; j < to.length; j++) {
+                matrix[i][j] = from < 0 || to[j] < 0 ? Double.MAX_VALUE : labelDistance(from, to[j]);
+            }
+        }
+        return matrix;
+    }
+
+    /**
+     * Lower bound on the distance between two locations, from landmarks and the straight line
+     * @param source The starting location name
+     * @param destination The destination location name
+     * @return A distance no longer than the shortest path (0 if either is unknown)
+     */
+    public double getLowerBound(String source, String destination) {
+        int from = graph.indexOf(source);
+        int to = graph.indexOf(destination);
+        if (from < 0 || to < 0) {
+            return 0.0;
+        }
+        return Math.max(graph.euclidean(from, to), lowerBound(from, to));
+    }
+
+    /**
+     * Find the shortest path with A* guided by the landmark bounds
+     * @param search Search state to use (bound to this oracle's graph by this call)
+     * @param source The starting location name
+     * @param destination The destination location name
+     * @return List of location names representing the shortest path (empty if no path found)
+     */
+    List<String> findShortestPath(ShortestPathSearch search, String source, String destination) {
+        int from = graph.indexOf(source);
+        int to = graph.indexOf(destination);
+        if (from < 0 || to < 0) {
+            return new ArrayList<>();
+        }
+        search.bind(graph);
+        if (!search.runLandmarkGuided(from, to, this)) {
+            return new ArrayList<>();
+        }
+        int count = search.tracePath(to);
+        return graph.toNames(search.pathNodes(), count);
+    }
+
+    double distance(int from, int to) {
+        if (from == to) {
+            return 0.0;
+        }
+        if (labelOffsets != null) {
+            return labelDistance(from, to);
+        }
+        ShortestPathSearch search = searches.get();
+        search.bind(graph);
+        return search.runLandmarkGuided(from, to, this) ? search.distance(to) : Double.MAX_VALUE;
+    }
+
+    /**
+     * Largest landmark bound |d(L, v) - d(L, t)|, skipping landmarks that cannot reach both
+     */
+    double lowerBound(int node, int target) {
+        int k = landmarks.length;
+        int a = node * k;
+        int b = target * k;
+        double bound = 0.0;
+        for (int i = 0; i < k; i++) {
+            double toNode = landmarkDistances[a + i];
+            double toTarget = landmarkDistances[b + i];
+            if (toNode != Double.MAX_VALUE && toTarget != Double.MAX_VALUE) {
+                bound = Math.max(bound, Math.abs(toNode - toTarget));
+            }
+        }
+        return bound;
+    }
+
+    private double labelDistance(int from, int to) {
+        int i = labelOffsets[from];
+        int iEnd = labelOffsets[from + 1];
+        int j = labelOffsets[to];
+        int jEnd = labelOffsets[to + 1];
+        double best = Double.MAX_VALUE;
+        while (i < iEnd && j < jEnd) {
+            int a = labelHubs[i];
+            int b = labelHubs[j];
+            if (a < b) {
+                i++;
+            } else if (a > b) {
+                j++;
+            } else {
+                best = Math.min(best, labelDistances[i++] + labelDistances[j++]);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Get the number of landmarks
+     * @return Landmark count
+     */
+    public int landmarkCount() {
+        return landmarks.length;
+    }
+
+    /**
+     * Get the landmark locations
+     * @return Landmark names
+     */
+    public List<String> getLandmarks() {
+        return graph.toNames(landmarks, landmarks.length);
+    }
+
+    public boolean hasHubLabels() {
+        return labelOffsets != null;
+    }
+
+    /**
+     * Mean number of hubs per label
+     * @return Average label size, 0 without hub labels
+     */
+    public double getAverageLabelSize() {
+        int n = graph.nodeCount();
+        return labelOffsets == null || n == 0 ? 0.0 : (double) labelHubs.length / n;
+    }
+
+    /**
+     * Memory held by the landmark distances
+     * @return Size of the landmark arrays in bytes
+     */
+    public long getLandmarkBytes() {
+        return (long) landmarks.length * Integer.BYTES + (long) landmarkDistances.length * Double.BYTES;
+    }
+
+    /**
+     * Memory held by the hub labels
+     * @return Size of the packed label arrays in bytes, 0 without hub labels
+     */
+    public long getLabelBytes() {
+        if (labelOffsets == null) {
+            return 0L;
+        }
+        return (long) labelOffsets.length * Integer.BYTES + (long) labelHubs.length * Integer.BYTES
+            + (long) labelDistances.length * Double.BYTES;
+    }
+
+    /**
+     * Memory held by the oracle's arrays (the compiled graph not included)
+     * @return Size in bytes
+     */
+    public long getMemoryBytes() {
+        return getLandmarkBytes() + getLabelBytes();
+    }
+
+    /**
+     * Fork-join task computing the hub labels of a range of nodes
+     */
+    private final class LabelRange extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final transient ContractionHierarchy hierarchy;
+        private final int[][] hubs;
+        private final double[][] distances;
+        private final AtomicLong entries;
+        private final long budgetEntries;
+        private final int perTask;
+        private final int from;
+        private final int to;
+
+        LabelRange(ContractionHierarchy hierarchy, int[][] hubs, double[][] distances, AtomicLong entries,
+                   long budgetEntries, int perTask, int from, int to) {
+            this.hierarchy = hierarchy;
+            this.hubs = hubs;
+            this.distances = distances;
+            this.entries = entries;
+            this.budgetEntries = budgetEntries;
+            this.perTask = perTask;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > perTask) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new LabelRange(hierarchy, hubs, distances, entries, budgetEntries, perTask, from, mid),
+                          new LabelRange(hierarchy, hubs, distances, entries, budgetEntries, perTask, mid, to));
+                return;
+            }
+            int n = hierarchy.nodeCount();
+            IndexedMinHeap heap = new IndexedMinHeap(n);
+            double[] distance = new double[n];
+            int[] stamp = new int[n];
+            int[] settled = new int[16];
+            for (int v = from; v < to && entries.get() <= budgetEntries; v++) {
+                // Settle the whole upward search space; its nodes and distances are the label
+                int source = hierarchy.indexOf(graph.name(v));
+                int generation = v - from + 1;
+                distance[source] = 0.0;
+                stamp[source] = generation;
+                heap.push(source, 0.0);
+                int count = 0;
+                while (!heap.isEmpty()) {
+                    int node = heap.pop();
+                    if (stalled(node, distance, stamp, generation)) {
+                        continue;
+                    }
+                    if (count == settled.length) {
+                        settled = Arrays.copyOf(settled, count * 2);
+                    }
+                    settled[count++] = node;
+                    for (int e = hierarchy.upwardStart(node), end = hierarchy.upwardStart(node + 1); e < end; e++) {
+                        int next = hierarchy.upwardTarget(e);
+                        double candidate = distance[node] + hierarchy.upwardWeight(e);
+                        if (stamp[next] != generation || candidate < distance[next]) {
+                            stamp[next] = generation;
+                            distance[next] = candidate;
+                            heap.push(next, candidate);
+                        }
+                    }
+                }
+                int[] label = Arrays.copyOf(settled, count);
+                Arrays.sort(label);
+                double[] labelDistance = new double[count];
+                for (int i = 0; i < count; i++) {
+                    labelDistance[i] = distance[label[i]];
+                }
+                hubs[v] = label;
+                distances[v] = labelDistance;
+                entries.addAndGet(count);
+            }
+        }
+
+        /**
+         * Stall on demand: a node reached more cheaply from above is not on any shortest
+         * upward path, so it neither joins the label nor is expanded. Paths are undirected,
+         * so the edges down into a node are its own upward edges.
+         */
+        private boolean stalled(int node, double[] distance, int[] stamp, int generation) {
+            for (int e = hierarchy.upwardStart(node), end = hierarchy.upwardStart(node + 1); e < end; e++) {
+                int above = hierarchy.upwardTarget(e);
+                if (stamp[above] == generation && distance[above] + hierarchy.upwardWeight(e) < distance[node]) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
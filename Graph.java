@@ -1,27 +1,63 @@
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
- * Graph class to hold all locations and paths for the UG campus navigation system
+ * Graph class to hold all locations and paths for the UG campus navigation system.
+ * Locations are stored by interned int node ids in compact columns (see LocationStore);
+ * Location objects are created on demand.
  */
 public class Graph {
-    private Map<String, Location> locations;
-    private Map<String, List<String>> adjacencyList;
+    private static final int MAX_LOGGED_CHANGES = 4096;
+    static final int DEFAULT_LANDMARKS = 16;
+    
+    private LocationStore locations; // names, types, coordinates and neighbours by node id
+    private Map<String, Map<String, PathAttributes>> pathAttributes = new HashMap<>(); // only paths with attributes
+    private Map<String, Map<String, Double>> pathLengths = new HashMap<>(); // lengths set by setPathLength
+    private Map<String, Set<String>> closedPaths = new HashMap<>(); // closed paths, both directions
+    private final List<PathChange> changeLog = new ArrayList<>(); // path changes since version logStart
+    private long logStart;
+    private CompactGraph compiled; // CSR snapshot used for routing, rebuilt after edits
+    private ContractionHierarchy contractionHierarchy; // built on first use, dropped after edits
+    private DistanceOracle distanceOracle; // built on first use, dropped after edits
+    private MultiLevelOverlay overlay; // built on first use, re-customized after length edits
+    private int cellSize = MultiLevelOverlay.DEFAULT_CELL_SIZE;
+    private final SpatialIndex spatialIndex = new SpatialIndex(); // updated on every addLocation
+    private NameIndex nameIndex; // built on first name search, then updated on every addLocation
+    private volatile long version; // incremented on every topology change
+    private final ThreadLocal<ShortestPathSearch> searches = ThreadLocal.withInitial(ShortestPathSearch::new);
+    private final Queue<ShortestPathSearch> idleSpurSearches = new ConcurrentLinkedQueue<>(); // lent to parallel route options
+    private final Queue<ContractionHierarchy.Query> idleHierarchyQueries = new ConcurrentLinkedQueue<>();
+    private volatile RoutingMetrics metrics; // null while instrumentation is off
     
     /**
      * Constructor for Graph
      */
     public Graph() {
-        this.locations = new HashMap<>();
-        this.adjacencyList = new HashMap<>();
+        this.locations = new LocationStore(16);
+    }
+    
+    /**
+     * Constructor for Graph, pre-sized from an already compiled graph (used by bulk loaders)
+     * @param graph The compiled graph holding all locations and paths
+     */
+    Graph(CompactGraph graph) {
+        this.locations = graph.toLocationStore();
+        this.compiled = graph;
+        spatialIndex.insertAll(locations.xColumn(), locations.yColumn(), locations.size());
     }
     
     /**
-     * Add a location to the graph
+     * Add a location to the graph, or replace the type and coordinates of the one with the
+     * same name. The fields are copied; later changes to the Location are not seen.
      * @param location The location to add
      */
     public void addLocation(Location location) {
-        locations.put(location.getName(), location);
-        adjacencyList.putIfAbsent(location.getName(), new ArrayList<>());
+        int id = locations.put(location.getName(), location.getType(), location.getX(), location.getY());
+        spatialIndex.insert(id, location.getX(), location.getY());
+        if (nameIndex != null) {
+            nameIndex.add(location.getName());
+        }
+        changed();
     }
     
     /**
@@ -30,9 +66,294 @@ public class Graph {
      * @param destination The destination location name
      */
     public void addPath(String source, String destination) {
-        if (locations.containsKey(source) && locations.containsKey(destination)) {
-            adjacencyList.get(source).add(destination);
-            adjacencyList.get(destination).add(source); // Bidirectional path
+        int from = locations.indexOf(source);
+        int to = locations.indexOf(destination);
+        if (from >= 0 && to >= 0) {
+            boolean existed = locations.linked(from, to);
+            double oldLength = existed ? pathLength(source, destination) : Double.POSITIVE_INFINITY;
+            locations.link(from, to);
+            locations.link(to, from); // Bidirectional path
+            compiled = null;
+            contractionHierarchy = null;
+            distanceOracle = null;
+            overlay = null;
+            logChange(new PathChange(source, destination, oldLength, pathLength(source, destination)));
+        }
+    }
+    
+    /**
+     * Remove the path between two locations (every copy, if it was added more than once),
+     * along with its attributes, length and closure
+     * @param source The source location name
+     * @param destination The destination location name
+     * @return true if a path existed and was removed
+     */
+    public boolean removePath(String source, String destination) {
+        if (!pathExists(source, destination)) {
+            return false;
+        }
+        double oldLength = pathLength(source, destination);
+        int from = locations.indexOf(source);
+        int to = locations.indexOf(destination);
+        locations.unlink(from, to);
+        locations.unlink(to, from);
+        forget(pathAttributes, source, destination);
+        forget(pathLengths, source, destination);
+        reopen(source, destination);
+        updateLength(source, destination, oldLength, Double.POSITIVE_INFINITY);
+        return true;
+    }
+    
+    /**
+     * Set the length of a path, e.g. to account for a detour around works, in both directions.
+     * Routing uses it instead of the straight-line distance until it is set again.
+     * @param source The source location name
+     * @param destination The destination location name
+     * @param length The new length in coordinate units (meters)
+     * @return true if a path between the locations exists and was updated
+     * @throws IllegalArgumentException If length is shorter than the straight-line distance
+     *         (which A* relies on as a lower bound) or not finite
+     */
+    public boolean setPathLength(String source, String destination, double length) {
+        if (!pathExists(source, destination)) {
+            return false;
+        }
+        double straightLine = getDistance(source, destination);
+        if (!(length >= straightLine * (1 - 1e-12)) || Double.isInfinite(length)) {
+            throw new IllegalArgumentException("Path length " + length + " is shorter than the straight-line distance "
+                + straightLine + " or not finite; use closePath to make a path impassable");
+        }
+        double oldLength = pathLength(source, destination);
+        pathLengths.computeIfAbsent(source, name -> new HashMap<>()).put(destination, length);
+        pathLengths.computeIfAbsent(destination, name -> new HashMap<>()).put(source, length);
+        updateLength(source, destination, oldLength, pathLength(source, destination));
+        return true;
+    }
+    
+    /**
+     * Get the length routing uses for a path
+     * @param source The source location name
+     * @param destination The destination location name
+     * @return The set or straight-line length, Double.POSITIVE_INFINITY if the path is closed,
+     *         or Double.MAX_VALUE if there is no path
+     */
+    public double getPathLength(String source, String destination) {
+        return pathExists(source, destination) ? pathLength(source, destination) : Double.MAX_VALUE;
+    }
+    
+    /**
+     * Temporarily close a path in both directions; routing avoids it until reopenPath
+     * @param source The source location name
+     * @param destination The destination location name
+     * @return true if an open path existed and was closed
+     */
+    public boolean closePath(String source, String destination) {
+        if (!pathExists(source, destination) || isPathClosed(source, destination)) {
+            return false;
+        }
+        double oldLength = pathLength(source, destination);
+        closedPaths.computeIfAbsent(source, name -> new HashSet<>()).add(destination);
+        closedPaths.computeIfAbsent(destination, name -> new HashSet<>()).add(source);
+        updateLength(source, destination, oldLength, Double.POSITIVE_INFINITY);
+        return true;
+    }
+    
+    /**
+     * Reopen a path closed with closePath
+     * @param source The source location name
+     * @param destination The destination location name
+     * @return true if the path was closed and is now open
+     */
+    public boolean reopenPath(String source, String destination) {
+        if (!isPathClosed(source, destination)) {
+            return false;
+        }
+        reopen(source, destination);
+        updateLength(source, destination, Double.POSITIVE_INFINITY, pathLength(source, destination));
+        return true;
+    }
+    
+    /**
+     * Check if a path is closed
+     * @param source The source location name
+     * @param destination The destination location name
+     * @return true if the path was closed with closePath and not reopened
+     */
+    public boolean isPathClosed(String source, String destination) {
+        return closedPaths.getOrDefault(source, Collections.emptySet()).contains(destination);
+    }
+    
+    /**
+     * Get the path changes made since a version, so derived data such as cached routes or a
+     * route table can be repaired rather than rebuilt. Each change to a path (added, removed,
+     * closed, reopened, length or attributes set) advances the version by one.
+     * @param since A version previously returned by getVersion
+     * @return The changes in order, or null if a location was added since then or the
+     *         changes are too old to be kept
+     */
+    public List<PathChange> changesSince(long since) {
+        if (since < logStart || since > version) {
+            return null;
+        }
+        return new ArrayList<>(changeLog.subList((int) (since - logStart), changeLog.size()));
+    }
+    
+    /**
+     * Set the walking conditions on a path, in both directions (the grade is negated walking
+     * from destination to source). Only time-dependent queries such as findFastestRoute use them.
+     * @param source The source location name
+     * @param destination The destination location name
+     * @param attributes Attributes as seen walking from source to destination
+     * @return true if a path between the locations exists and was updated
+     */
+    public boolean setPathAttributes(String source, String destination, PathAttributes attributes) {
+        if (!pathExists(source, destination)) {
+            return false;
+        }
+        pathAttributes.computeIfAbsent(source, name -> new HashMap<>()).put(destination, attributes);
+        pathAttributes.computeIfAbsent(destination, name -> new HashMap<>()).put(source, attributes.reversed());
+        // Lengths are unchanged, so a contraction hierarchy stays valid
+        compiled = null;
+        double length = pathLength(source, destination);
+        logChange(new PathChange(source, destination, length, length));
+        return true;
+    }
+    
+    /**
+     * Get the walking conditions on a path
+     * @param source The source location name
+     * @param destination The destination location name
+     * @return Attributes walking from source to destination (PathAttributes.DEFAULT if none were set)
+     */
+    public PathAttributes getPathAttributes(String source, String destination) {
+        return pathAttributes.getOrDefault(source, Collections.emptyMap())
+            .getOrDefault(destination, PathAttributes.DEFAULT);
+    }
+    
+    /**
+     * Whether any path has a set length, a closure or attributes (for graph snapshots)
+     * @return true if a path length was set, a path closed or path attributes set
+     */
+    boolean hasPathOverrides() {
+        return !pathLengths.isEmpty() || !closedPaths.isEmpty() || !pathAttributes.isEmpty();
+    }
+    
+    /**
+     * Get the length set with setPathLength; a closed path keeps it for when it reopens
+     * @param source The source location name
+     * @param destination The destination location name
+     * @return The set length, or Double.NaN if none was set
+     */
+    double setPathLengthOf(String source, String destination) {
+        Double length = pathLengths.getOrDefault(source, Collections.emptyMap()).get(destination);
+        return length != null ? length : Double.NaN;
+    }
+    
+    /**
+     * Restore the set length, closure and attributes of a path read from a graph snapshot,
+     * without logging a change. The compiled graph must already hold the resulting lengths.
+     * @param source The source location name
+     * @param destination The destination location name
+     * @param length The set length, or Double.NaN if none was set
+     * @param closed true if the path is closed
+     * @param attributes Attributes walking from source to destination, or null if none were set
+     */
+    void restorePath(String source, String destination, double length, boolean closed, PathAttributes attributes) {
+        if (!Double.isNaN(length)) {
+            pathLengths.computeIfAbsent(source, name -> new HashMap<>()).put(destination, length);
+            pathLengths.computeIfAbsent(destination, name -> new HashMap<>()).put(source, length);
+        }
+        if (closed) {
+            closedPaths.computeIfAbsent(source, name -> new HashSet<>()).add(destination);
+            closedPaths.computeIfAbsent(destination, name -> new HashSet<>()).add(source);
+        }
+        if (attributes != null) {
+            pathAttributes.computeIfAbsent(source, name -> new HashMap<>()).put(destination, attributes);
+            pathAttributes.computeIfAbsent(destination, name -> new HashMap<>()).put(source, attributes.reversed());
+            compiled = null; // the next compile adds the attribute columns
+        }
+    }
+    
+    /**
+     * Get the modification version of the graph; it changes whenever a location is added or
+     * a path is added, removed, closed, reopened or given a length or attributes
+     * @return The current version
+     */
+    public long getVersion() {
+        return version;
+    }
+    
+    /**
+     * Drop derived routing structures after a location change
+     */
+    private void changed() {
+        compiled = null;
+        contractionHierarchy = null;
+        distanceOracle = null;
+        overlay = null;
+        version++;
+        changeLog.clear();
+        logStart = version;
+    }
+    
+    /**
+     * Patch the compiled graph's edge lengths in place of a recompile after a path's length changed
+     */
+    private void updateLength(String source, String destination, double oldLength, double newLength) {
+        CompactGraph graph = compiled;
+        if (graph != null) {
+            compiled = graph.withPathLength(graph.indexOf(source), graph.indexOf(destination), newLength);
+        }
+        contractionHierarchy = null;
+        distanceOracle = null;
+        MultiLevelOverlay cells = overlay;
+        if (cells != null) {
+            // Only the cells holding both ends need customizing again
+            overlay = cells.withPathLength(source, destination, newLength);
+        }
+        logChange(new PathChange(source, destination, oldLength, newLength));
+    }
+    
+    private void logChange(PathChange change) {
+        if (changeLog.size() == MAX_LOGGED_CHANGES) {
+            // Forget the older half; consumers that far behind rebuild instead
+            changeLog.subList(0, MAX_LOGGED_CHANGES / 2).clear();
+            logStart += MAX_LOGGED_CHANGES / 2;
+        }
+        changeLog.add(change);
+        version++;
+    }
+    
+    private boolean pathExists(String source, String destination) {
+        int from = locations.indexOf(source);
+        int to = locations.indexOf(destination);
+        return from >= 0 && to >= 0 && locations.linked(from, to);
+    }
+    
+    /**
+     * Length routing uses for an existing path
+     */
+    private double pathLength(String source, String destination) {
+        if (isPathClosed(source, destination)) {
+            return Double.POSITIVE_INFINITY;
+        }
+        Double length = pathLengths.getOrDefault(source, Collections.emptyMap()).get(destination);
+        return length != null ? length : getDistance(source, destination);
+    }
+    
+    private void reopen(String source, String destination) {
+        closedPaths.getOrDefault(source, Collections.emptySet()).remove(destination);
+        closedPaths.getOrDefault(destination, Collections.emptySet()).remove(source);
+    }
+    
+    private static void forget(Map<String, ? extends Map<String, ?>> byPath, String source, String destination) {
+        Map<String, ?> outgoing = byPath.get(source);
+        if (outgoing != null) {
+            outgoing.remove(destination);
+        }
+        Map<String, ?> incoming = byPath.get(destination);
+        if (incoming != null) {
+            incoming.remove(source);
         }
     }
     
@@ -42,24 +363,69 @@ public class Graph {
      * @return true if location exists, false otherwise
      */
     public boolean locationExists(String locationName) {
-        return locations.containsKey(locationName);
+        return locations.indexOf(locationName) >= 0;
     }
     
     /**
-     * Get a location by name
+     * Get a location by name. The result is a new snapshot on every call: changing it does
+     * not change the graph (re-add the location with addLocation to move or retype it).
      * @param locationName The name of the location
-     * @return The Location object if found, null otherwise
+     * @return A Location with its current type and coordinates if found, null otherwise
      */
     public Location getLocation(String locationName) {
-        return locations.get(locationName);
+        int id = locations.indexOf(locationName);
+        return id < 0 ? null : locations.location(id);
     }
     
     /**
      * Get all location names
-     * @return Set of all location names
+     * @return Read-only view of all location names, in the order they were added
      */
     public Set<String> getAllLocationNames() {
-        return locations.keySet();
+        return locations.nameSet();
+    }
+    
+    /**
+     * Find location names starting with a prefix, ignoring case
+     * @param prefix The typed prefix
+     * @param limit Maximum number of names to return
+     * @return Matching names, shorter first
+     */
+    public List<String> findLocationNamesByPrefix(String prefix, int limit) {
+        return getNameIndex().complete(prefix, limit);
+    }
+    
+    /**
+     * Find location names within a few typing errors of a query, ignoring case
+     * @param query The typed name
+     * @param maxEdits Maximum number of inserted, deleted, substituted or swapped characters
+     * @param limit Maximum number of names to return
+     * @return Matching names, closest first
+     */
+    public List<String> findSimilarLocationNames(String query, int maxEdits, int limit) {
+        return getNameIndex().search(query, maxEdits, limit);
+    }
+    
+    /**
+     * Suggest location names for partially typed, possibly misspelled input
+     * @param query The typed text
+     * @param limit Maximum number of names to return
+     * @return Suggested names, best first
+     */
+    public List<String> suggestLocationNames(String query, int limit) {
+        return getNameIndex().suggest(query, limit);
+    }
+    
+    private NameIndex getNameIndex() {
+        NameIndex index = nameIndex;
+        if (index == null) {
+            index = new NameIndex();
+            for (int id = 0; id < locations.size(); id++) {
+                index.add(locations.name(id));
+            }
+            nameIndex = index;
+        }
+        return index;
     }
     
     /**
@@ -68,7 +434,8 @@ public class Graph {
      * @return List of neighboring location names
      */
     public List<String> getNeighbors(String locationName) {
-        return adjacencyList.getOrDefault(locationName, new ArrayList<>());
+        int id = locations.indexOf(locationName);
+        return id < 0 ? new ArrayList<>() : locations.neighborNames(id);
     }
     
     /**
@@ -84,8 +451,8 @@ public class Graph {
      */
     public void displayAllLocations() {
         System.out.println("Available locations on UG Campus:");
-        for (Location location : locations.values()) {
-            System.out.println("- " + location);
+        for (int id = 0; id < locations.size(); id++) {
+            System.out.println("- " + locations.location(id));
         }
     }
     
@@ -96,14 +463,67 @@ public class Graph {
      * @return The distance between the locations, or Double.MAX_VALUE if not connected
      */
     public double getDistance(String source, String destination) {
-        Location sourceLocation = locations.get(source);
-        Location destLocation = locations.get(destination);
+        int from = locations.indexOf(source);
+        int to = locations.indexOf(destination);
         
-        if (sourceLocation == null || destLocation == null) {
+        if (from < 0 || to < 0) {
             return Double.MAX_VALUE;
         }
         
-        return sourceLocation.distanceTo(destLocation);
+        return locations.distance(from, to);
+    }
+    
+    /**
+     * Find the location closest to a point
+     * @param x The x coordinate
+     * @param y The y coordinate
+     * @return The nearest Location, or null if the graph is empty
+     */
+    public Location findNearestLocation(double x, double y) {
+        int[] nearest = spatialIndex.nearest(x, y, 1);
+        return nearest.length == 0 ? null : locations.location(nearest[0]);
+    }
+    
+    /**
+     * Find the k locations closest to a point
+     * @param x The x coordinate
+     * @param y The y coordinate
+     * @param k Maximum number of locations to return
+     * @return Locations ordered by increasing distance
+     */
+    public List<Location> findNearestLocations(double x, double y, int k) {
+        return toLocations(spatialIndex.nearest(x, y, k));
+    }
+    
+    /**
+     * Find all locations within a distance of a point
+     * @param x The x coordinate
+     * @param y The y coordinate
+     * @param radius Maximum distance, in the same units as the coordinates
+     * @return Locations ordered by increasing distance
+     */
+    public List<Location> findLocationsWithinRadius(double x, double y, double radius) {
+        return toLocations(spatialIndex.withinRadius(x, y, radius));
+    }
+    
+    /**
+     * Find all locations inside a rectangle (edges inclusive)
+     * @param minX Left edge
+     * @param minY Bottom edge
+     * @param maxX Right edge
+     * @param maxY Top edge
+     * @return Locations in no particular order
+     */
+    public List<Location> findLocationsInArea(double minX, double minY, double maxX, double maxY) {
+        return toLocations(spatialIndex.inBox(minX, minY, maxX, maxY));
+    }
+    
+    private List<Location> toLocations(int[] ids) {
+        List<Location> list = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            list.add(locations.location(id));
+        }
+        return list;
     }
     
     /**
@@ -113,69 +533,414 @@ public class Graph {
      * @return List of location names representing the shortest path (empty if no path found)
      */
     public List<String> findShortestPath(String source, String destination) {
+        return findShortestPath(source, destination, SearchAlgorithm.DIJKSTRA);
+    }
+    
+    /**
+     * Find the shortest path between two locations with the chosen search algorithm.
+     * All algorithms return a shortest path; they differ in how many nodes they settle.
+     * @param source The starting location name
+     * @param destination The destination location name
+     * @param algorithm The search algorithm to use
+     * @return List of location names representing the shortest path (empty if no path found)
+     */
+    public List<String> findShortestPath(String source, String destination, SearchAlgorithm algorithm) {
+        ShortestPathSearch search = searches.get();
+        RoutingMetrics m = metrics;
+        long started = m == null ? 0L : m.begin(search);
+        List<String> path;
+        long settled = -1; // nodes settled outside search, -1 if the query used search
+        if (algorithm == SearchAlgorithm.CONTRACTION_HIERARCHY) {
+            ContractionHierarchy.Query query = idleHierarchyQueries.poll();
+            if (query == null) {
+                query = new ContractionHierarchy.Query();
+            }
+            path = getContractionHierarchy().findShortestPath(query, source, destination);
+            settled = query.settledCount();
+            idleHierarchyQueries.offer(query);
+        } else if (algorithm == SearchAlgorithm.ALT) {
+            path = getDistanceOracle().findShortestPath(search, source, destination);
+        } else if (algorithm == SearchAlgorithm.MULTI_LEVEL) {
+            MultiLevelOverlay cells = getMultiLevelOverlay();
+            path = cells.findShortestPath(source, destination);
+            settled = cells.getLastNodesSettled();
+        } else {
+            path = shortestPath(compile(), search, source, destination, algorithm);
+        }
+        if (m != null) {
+            if (settled < 0) {
+                m.end(RoutingMetrics.Operation.SHORTEST_PATH, search, started, source, destination, !path.isEmpty());
+            } else {
+                m.end(RoutingMetrics.Operation.SHORTEST_PATH, started, settled, source, destination, !path.isEmpty());
+            }
+        }
+        return path;
+    }
+    
+    /**
+     * Find the shortest path on a compiled graph
+     * @param graph The compiled graph
+     * @param search Search state to use (bound to graph by this call)
+     * @param source The starting location name
+     * @param destination The destination location name
+     * @param algorithm The search algorithm to use (DIJKSTRA, A_STAR or BIDIRECTIONAL)
+     * @return List of location names representing the shortest path (empty if no path found)
+     */
+    static List<String> shortestPath(CompactGraph graph, ShortestPathSearch search,
+                                     String source, String destination, SearchAlgorithm algorithm) {
+        if (algorithm == SearchAlgorithm.CONTRACTION_HIERARCHY) {
+            throw new IllegalArgumentException("Contraction hierarchy queries need a prebuilt hierarchy");
+        }
+        if (algorithm == SearchAlgorithm.ALT) {
+            throw new IllegalArgumentException("Landmark queries need a prebuilt distance oracle");
+        }
+        if (algorithm == SearchAlgorithm.MULTI_LEVEL) {
+            throw new IllegalArgumentException("Multi-level queries need a customized overlay");
+        }
         // Validate input locations
-        if (!locationExists(source) || !locationExists(destination)) {
+        int start = graph.indexOf(source);
+        int target = graph.indexOf(destination);
+        if (start < 0 || target < 0) {
             return new ArrayList<>();
         }
         
-        if (source.equals(destination)) {
+        if (start == target) {
             List<String> path = new ArrayList<>();
             path.add(source);
             return path;
         }
         
-        // Initialize distances and previous nodes
-        Map<String, Double> distances = new HashMap<>();
-        Map<String, String> previous = new HashMap<>();
-        Set<String> unvisited = new HashSet<>(locations.keySet());
-        
-        // Initialize all distances to infinity except source
-        for (String locationName : locations.keySet()) {
-            distances.put(locationName, Double.MAX_VALUE);
-        }
-        distances.put(source, 0.0);
-        
-        // Dijkstra's algorithm
-        while (!unvisited.isEmpty()) {
-            // Find unvisited node with minimum distance
-            String current = null;
-            double minDistance = Double.MAX_VALUE;
-            for (String node : unvisited) {
-                if (distances.get(node) < minDistance) {
-                    minDistance = distances.get(node);
-                    current = node;
-                }
-            }
-            
-            // If no reachable unvisited nodes, break
-            if (current == null || minDistance == Double.MAX_VALUE) {
-                break;
-            }
-            
-            // Remove current from unvisited
-            unvisited.remove(current);
-            
-            // Found destination
-            if (current.equals(destination)) {
-                break;
-            }
-            
-            // Check all neighbors
-            for (String neighbor : getNeighbors(current)) {
-                if (unvisited.contains(neighbor)) {
-                    double edgeWeight = getDistance(current, neighbor);
-                    double newDistance = distances.get(current) + edgeWeight;
-                    
-                    if (newDistance < distances.get(neighbor)) {
-                        distances.put(neighbor, newDistance);
-                        previous.put(neighbor, current);
-                    }
-                }
-            }
+        search.bind(graph);
+        boolean found = algorithm == SearchAlgorithm.BIDIRECTIONAL ? search.runBidirectional(start, target)
+            : search.run(start, target, algorithm == SearchAlgorithm.A_STAR);
+        if (!found) {
+            return new ArrayList<>();
         }
         
         // Reconstruct path
-        return reconstructPath(previous, source, destination);
+        int count = search.tracePath(target);
+        return graph.toNames(search.pathNodes(), count);
+    }
+    
+    /**
+     * Find the shortest route between two locations as node ids with distance prefix sums;
+     * location names are only resolved if asked for
+     * @param source The starting location name
+     * @param destination The destination location name
+     * @return The shortest route, or null if either location is unknown or no path exists
+     */
+    public Route findShortestRoute(String source, String destination) {
+        ShortestPathSearch search = searches.get();
+        RoutingMetrics m = metrics;
+        long started = m == null ? 0L : m.begin(search);
+        Route route = shortestRoute(compile(), search, source, destination);
+        if (m != null) {
+            m.end(RoutingMetrics.Operation.SHORTEST_ROUTE, search, started, source, destination, route != null);
+        }
+        return route;
+    }
+    
+    /**
+     * Find the shortest route on a compiled graph
+     * @param graph The compiled graph
+     * @param search Search state to use (bound to graph by this call)
+     * @param source The starting location name
+     * @param destination The destination location name
+     * @return The shortest route, or null if either location is unknown or no path exists
+     */
+    static Route shortestRoute(CompactGraph graph, ShortestPathSearch search, String source, String destination) {
+        int start = graph.indexOf(source);
+        int target = graph.indexOf(destination);
+        if (start < 0 || target < 0) {
+            return null;
+        }
+        search.bind(graph);
+        return search.run(start, target) ? Route.traced(search, target) : null;
+    }
+    
+    /**
+     * Find the shortest path between two points, each snapped to its nearest location
+     * @param sourceX The starting x coordinate
+     * @param sourceY The starting y coordinate
+     * @param destinationX The destination x coordinate
+     * @param destinationY The destination y coordinate
+     * @return List of location names from the snapped source to the snapped destination
+     *         (empty if the graph is empty or no path found)
+     */
+    public List<String> findShortestPath(double sourceX, double sourceY, double destinationX, double destinationY) {
+        Location source = findNearestLocation(sourceX, sourceY);
+        Location destination = findNearestLocation(destinationX, destinationY);
+        if (source == null || destination == null) {
+            return new ArrayList<>();
+        }
+        return findShortestPath(source.getName(), destination.getName());
+    }
+    
+    /**
+     * Find the shortest distances from one location to many, with a single search that
+     * stops once every target is reached
+     * @param source The starting location name
+     * @param targets The destination location names
+     * @return Distance to each target in the order given (Double.MAX_VALUE if unknown or unreachable)
+     */
+    public double[] oneToMany(String source, List<String> targets) {
+        ShortestPathSearch search = searches.get();
+        RoutingMetrics m = metrics;
+        long started = m == null ? 0L : m.begin(search);
+        CompactGraph graph = compile();
+        int start = graph.indexOf(source);
+        double[] row = DistanceMatrix.oneToMany(graph, search, start, DistanceMatrix.resolve(graph, targets));
+        if (m != null) {
+            m.end(RoutingMetrics.Operation.ONE_TO_MANY, search, started, source, targets.size() + " targets", start >= 0);
+        }
+        return row;
+    }
+    
+    /**
+     * Find the shortest distances between every source and every target, one search per
+     * source, with sources searched in parallel on the common fork-join pool
+     * @param sources The starting location names
+     * @param targets The destination location names
+     * @return matrix[i][j] = distance from sources[i] to targets[j] (Double.MAX_VALUE if unknown or unreachable)
+     */
+    public double[][] distanceMatrix(List<String> sources, List<String> targets) {
+        // Rows are searched on pool threads, so only latency is recorded, not search effort
+        ShortestPathSearch search = searches.get();
+        RoutingMetrics m = metrics;
+        long started = m == null ? 0L : m.begin(search);
+        CompactGraph graph = compile();
+        double[][] matrix = DistanceMatrix.manyToMany(graph, DistanceMatrix.resolve(graph, sources),
+            DistanceMatrix.resolve(graph, targets));
+        if (m != null) {
+            m.end(RoutingMetrics.Operation.DISTANCE_MATRIX, search, started,
+                sources.size() + " sources", targets.size() + " targets", true);
+        }
+        return matrix;
+    }
+    
+    /**
+     * Find every location reachable within a walking time, in a single search that stops
+     * at the budget
+     * @param source The starting location name
+     * @param maxMinutes Walking time budget in minutes
+     * @param walkingSpeedKmh Walking speed in km/h
+     * @return Reachable locations with arrival times, nearest first (empty if source is unknown)
+     */
+    public Isochrone findReachableWithin(String source, double maxMinutes, double walkingSpeedKmh) {
+        double maxDistance = maxMinutes / 60.0 * walkingSpeedKmh * 1000.0; // inverse of travelTime
+        return findReachableWithinDistance(source, maxDistance, walkingSpeedKmh);
+    }
+    
+    /**
+     * Find every location reachable within a walking distance
+     * @param source The starting location name
+     * @param maxDistance Distance budget in coordinate units (meters)
+     * @param walkingSpeedKmh Walking speed in km/h, used for arrival times
+     * @return Reachable locations with arrival times, nearest first (empty if source is unknown)
+     */
+    public Isochrone findReachableWithinDistance(String source, double maxDistance, double walkingSpeedKmh) {
+        ShortestPathSearch search = searches.get();
+        RoutingMetrics m = metrics;
+        long started = m == null ? 0L : m.begin(search);
+        Isochrone reachable = Isochrone.reachable(compile(), search, source, maxDistance, walkingSpeedKmh);
+        if (m != null) {
+            m.end(RoutingMetrics.Operation.REACHABLE, search, started, source,
+                "within " + Math.round(maxDistance), reachable.size() > 0);
+        }
+        return reachable;
+    }
+    
+    /**
+     * Plan a walk through a list of stops in a short visiting order. The stop-to-stop
+     * distances take one search per stop; up to 12 stops the order is optimal, beyond that
+     * it comes from nearest-neighbour tours improved by 2-opt and Or-opt in parallel restarts.
+     * @param stops Stop names; the first is the start, the others may be visited in any order
+     * @param roundTrip true to end back at the first stop
+     * @param walkingSpeedKmh Walking speed in km/h
+     * @return The itinerary, or null if a stop is unknown or cannot be reached
+     */
+    public Itinerary planItinerary(List<String> stops, boolean roundTrip, double walkingSpeedKmh) {
+        // The distance matrix is searched on pool threads, so its effort is not recorded
+        ShortestPathSearch search = searches.get();
+        RoutingMetrics m = metrics;
+        long started = m == null ? 0L : m.begin(search);
+        Itinerary itinerary = Itinerary.plan(compile(), search, stops, roundTrip, walkingSpeedKmh);
+        if (m != null) {
+            m.end(RoutingMetrics.Operation.ITINERARY, search, started, stops.isEmpty() ? "" : stops.get(0),
+                stops.size() + " stops", itinerary != null);
+        }
+        return itinerary;
+    }
+    
+    /**
+     * Get the contraction hierarchy for this graph, preprocessing it on first use
+     * @return The contraction hierarchy
+     */
+    public ContractionHierarchy getContractionHierarchy() {
+        ContractionHierarchy hierarchy = contractionHierarchy;
+        if (hierarchy == null) {
+            hierarchy = ContractionHierarchy.build(compile());
+            contractionHierarchy = hierarchy;
+        }
+        return hierarchy;
+    }
+    
+    /**
+     * Use a previously saved contraction hierarchy instead of preprocessing again
+     * @param hierarchy A hierarchy built for this graph's current locations and paths
+     * @throws IllegalArgumentException If the hierarchy was built for different locations,
+     *         paths or path lengths
+     */
+    public void setContractionHierarchy(ContractionHierarchy hierarchy) {
+        if (!hierarchy.covers(compile())) {
+            throw new IllegalArgumentException("Contraction hierarchy was built for different locations or path lengths");
+        }
+        this.contractionHierarchy = hierarchy;
+    }
+    
+    /**
+     * Get the distance oracle for this graph, choosing landmarks and computing their
+     * distances on first use (hub labels are only added by buildHubLabels)
+     * @return The distance oracle
+     */
+    public DistanceOracle getDistanceOracle() {
+        CompactGraph graph = compile();
+        DistanceOracle oracle = distanceOracle;
+        if (oracle == null || !oracle.covers(graph)) {
+            oracle = DistanceOracle.build(graph, DEFAULT_LANDMARKS);
+            distanceOracle = oracle;
+        }
+        return oracle;
+    }
+    
+    /**
+     * Add exact hub labels to the distance oracle, from the contraction hierarchy's upward
+     * search spaces (preprocessing the hierarchy too if needed)
+     * @param budgetBytes Most memory the packed labels may take
+     * @return true if the labels fit the budget; otherwise distances keep using landmark searches
+     */
+    public boolean buildHubLabels(long budgetBytes) {
+        DistanceOracle oracle = getDistanceOracle();
+        if (!oracle.hasHubLabels()) {
+            oracle = oracle.withHubLabels(getContractionHierarchy(), budgetBytes);
+            distanceOracle = oracle;
+        }
+        return oracle.hasHubLabels();
+    }
+    
+    /**
+     * Get the multi-level overlay for this graph, partitioning and customizing it on first use.
+     * Path length changes re-customize only the cells around the path; adding locations or
+     * paths partitions again.
+     * @return The overlay
+     */
+    public MultiLevelOverlay getMultiLevelOverlay() {
+        MultiLevelOverlay cells = overlay;
+        if (cells == null) {
+            cells = MultiLevelOverlay.build(compile(), cellSize);
+            overlay = cells;
+        }
+        return cells;
+    }
+    
+    /**
+     * Get the multi-level overlay if one is built and customized for the current paths
+     * @return The overlay, or null if it would have to be partitioned first
+     */
+    MultiLevelOverlay builtMultiLevelOverlay() {
+        return overlay;
+    }
+    
+    /**
+     * Keep an overlay built elsewhere for this graph's current compiled form, so later
+     * path length edits re-customize it; ignored if one is already kept or the graph changed since
+     * @param cells An overlay built on compile()
+     */
+    void adoptMultiLevelOverlay(MultiLevelOverlay cells) {
+        if (overlay == null && cells.graph() == compiled) {
+            overlay = cells;
+        }
+    }
+    
+    /**
+     * Partition this graph into cells of a given size for MULTI_LEVEL queries, replacing
+     * any overlay built before
+     * @param cellSize Most locations in a lowest-level cell
+     * @return The customized overlay
+     * @throws IllegalArgumentException If cellSize is not positive
+     */
+    public MultiLevelOverlay partition(int cellSize) {
+        MultiLevelOverlay cells = MultiLevelOverlay.build(compile(), cellSize);
+        this.cellSize = cellSize;
+        this.overlay = cells;
+        return cells;
+    }
+    
+    /**
+     * Find the shortest distance between two locations without building the path, through
+     * the distance oracle (a label lookup if hub labels were built, else a landmark search)
+     * @param source The starting location name
+     * @param destination The destination location name
+     * @return The distance, or Double.MAX_VALUE if either is unknown or they are not connected
+     */
+    public double findShortestDistance(String source, String destination) {
+        return getDistanceOracle().getDistance(source, destination);
+    }
+    
+    /**
+     * Attach instrumentation to this graph's routing queries, or switch it off
+     * @param metrics Metrics to record into, or null to stop recording
+     */
+    public void setMetrics(RoutingMetrics metrics) {
+        this.metrics = metrics;
+    }
+    
+    /**
+     * Get the instrumentation attached to this graph
+     * @return The metrics being recorded into, or null if instrumentation is off
+     */
+    public RoutingMetrics getMetrics() {
+        return metrics;
+    }
+    
+    /**
+     * Get the number of nodes settled by the last DIJKSTRA, A_STAR or BIDIRECTIONAL query on the
+     * calling thread (both directions counted for BIDIRECTIONAL)
+     * @return Nodes settled by the last query (0 if none has run)
+     */
+    public int getLastNodesSettled() {
+        return searches.get().settledCount();
+    }
+    
+    /**
+     * Get the compiled CSR form of this graph, rebuilding it if the graph changed.
+     * The compiled graph shares the location columns; the next edit copies them.
+     * @return The compiled graph
+     */
+    CompactGraph compile() {
+        CompactGraph graph = compiled;
+        if (graph == null) {
+            graph = CompactGraph.compile(locations, pathAttributes, effectivePathLengths());
+            compiled = graph;
+        }
+        return graph;
+    }
+    
+    /**
+     * Path lengths for compiling: set lengths, overridden by infinity for closed paths
+     */
+    private Map<String, Map<String, Double>> effectivePathLengths() {
+        if (closedPaths.values().stream().allMatch(Set::isEmpty)) {
+            return pathLengths;
+        }
+        Map<String, Map<String, Double>> lengths = new HashMap<>();
+        pathLengths.forEach((source, outgoing) -> lengths.put(source, new HashMap<>(outgoing)));
+        closedPaths.forEach((source, closed) -> {
+            for (String destination : closed) {
+                lengths.computeIfAbsent(source, name -> new HashMap<>()).put(destination, Double.POSITIVE_INFINITY);
+            }
+        });
+        return lengths;
     }
     
     /**
@@ -190,34 +955,20 @@ public class Graph {
         
         double totalDistance = 0.0;
         for (int i = 0; i < path.size() - 1; i++) {
-            totalDistance += getDistance(path.get(i), path.get(i + 1));
+            totalDistance += segmentLength(path.get(i), path.get(i + 1));
         }
         return totalDistance;
     }
     
     /**
-     * Reconstruct the shortest path from the previous nodes map
-     * @param previous Map of previous nodes
-     * @param source Starting location
-     * @param destination Ending location
-     * @return List of location names representing the path
+     * Length of one step of a path: the routing length if a path joins the two locations,
+     * otherwise the straight-line distance
      */
-    private List<String> reconstructPath(Map<String, String> previous, String source, String destination) {
-        List<String> path = new ArrayList<>();
-        String current = destination;
-        
-        // Build path backwards from destination to source
-        while (current != null) {
-            path.add(0, current); // Add to front
-            current = previous.get(current);
-        }
-        
-        // Check if path is valid (should start with source)
-        if (path.isEmpty() || !path.get(0).equals(source)) {
-            return new ArrayList<>(); // No valid path found
+    private double segmentLength(String source, String destination) {
+        if (pathLengths.isEmpty() && closedPaths.isEmpty()) {
+            return getDistance(source, destination);
         }
-        
-        return path;
+        return pathExists(source, destination) ? pathLength(source, destination) : getDistance(source, destination);
     }
     
     /**
@@ -227,97 +978,268 @@ public class Graph {
      * @return Estimated travel time in minutes
      */
     public double calculateTravelTime(List<String> path, double walkingSpeedKmh) {
-        double distanceKm = getPathDistance(path) / 1000.0; // Convert to km (assuming coordinates are in meters)
+        return travelTime(getPathDistance(path), walkingSpeedKmh);
+    }
+    
+    /**
+     * Convert a distance into walking time
+     * @param distance Distance in coordinate units (meters)
+     * @param walkingSpeedKmh Walking speed in km/h
+     * @return Estimated travel time in minutes
+     */
+    static double travelTime(double distance, double walkingSpeedKmh) {
+        double distanceKm = distance / 1000.0; // Convert to km (assuming coordinates are in meters)
         double timeHours = distanceKm / walkingSpeedKmh;
         return timeHours * 60.0; // Convert to minutes
     }
     
     /**
-     * Find multiple route options between two locations and sort by travel time
+     * Find multiple route options between two locations and sort by travel time.
+     * Routes are the k shortest loopless paths (Yen's algorithm); alternatives more
+     * than 50% slower than the fastest route are not considered.
      * @param source The starting location name
      * @param destination The destination location name
      * @param walkingSpeedKmh Walking speed in km/h
      * @return List of RouteOption objects sorted by travel time (fastest first)
      */
     public List<RouteOption> findRouteOptionsSortedByTime(String source, String destination, double walkingSpeedKmh) {
+        return findRouteOptionsSortedByTime(source, destination, walkingSpeedKmh, false);
+    }
+    
+    /**
+     * Find multiple route options between two locations and sort by travel time, optionally
+     * running the spur searches of each Yen round in parallel on the common fork-join pool.
+     * The options are the same in both modes; only the search effort of the calling thread
+     * is counted by metrics.
+     * @param source The starting location name
+     * @param destination The destination location name
+     * @param walkingSpeedKmh Walking speed in km/h
+     * @param parallel true to search in parallel
+     * @return List of RouteOption objects sorted by travel time (fastest first)
+     */
+    public List<RouteOption> findRouteOptionsSortedByTime(String source, String destination, double walkingSpeedKmh,
+                                                          boolean parallel) {
+        ShortestPathSearch search = searches.get();
+        RoutingMetrics m = metrics;
+        long started = m == null ? 0L : m.begin(search);
+        List<RouteOption> options = routeOptions(compile(), search, source, destination, walkingSpeedKmh,
+            parallel ? idleSpurSearches : null);
+        if (m != null) {
+            m.end(RoutingMetrics.Operation.ROUTE_OPTIONS, search, started, source, destination, !options.isEmpty());
+        }
+        return options;
+    }
+    
+    /**
+     * Find route options on a compiled graph, sorted by travel time
+     * @param graph The compiled graph
+     * @param search Search state to use (bound to graph by this call)
+     * @param source The starting location name
+     * @param destination The destination location name
+     * @param walkingSpeedKmh Walking speed in km/h
+     * @param workers Idle search states to borrow for running spur searches on the common
+     *                fork-join pool, or null to search on the calling thread
+     * @return List of RouteOption objects sorted by travel time (fastest first)
+     */
+    static List<RouteOption> routeOptions(CompactGraph graph, ShortestPathSearch search, String source,
+                                          String destination, double walkingSpeedKmh,
+                                          Queue<ShortestPathSearch> workers) {
         List<RouteOption> routeOptions = new ArrayList<>();
+        int start = graph.indexOf(source);
+        int target = graph.indexOf(destination);
+        if (start < 0 || target < 0) {
+            return routeOptions;
+        }
+        if (start == target) {
+            Route here = new Route(graph, new int[] {start}, new double[] {0.0}, -1);
+            routeOptions.add(new RouteOption(here, 0.0, "Shortest Distance Route"));
+            return routeOptions;
+        }
+        
+        search.bind(graph);
         
-        // Get the shortest path (primary route)
-        List<String> shortestPath = findShortestPath(source, destination);
-        if (!shortestPath.isEmpty()) {
-            double distance = getPathDistance(shortestPath);
-            double time = calculateTravelTime(shortestPath, walkingSpeedKmh);
-            routeOptions.add(new RouteOption(shortestPath, distance, time, "Shortest Distance Route"));
+        // Top 3 loopless routes, none more than 50% longer (and so slower) than the shortest
+        List<Route> routes = new KShortestPaths(search, workers).find(start, target, 3, 1.5);
+        for (Route route : routes) {
+            double time = travelTime(route.getDistance(), walkingSpeedKmh);
+            String description = route.deviation < 0 ? "Shortest Distance Route"
+                : "Alternative Route via " + graph.name(route.deviation);
+            routeOptions.add(new RouteOption(route, time, description));
         }
         
-        // Find alternative routes by exploring different intermediate points
-        Set<String> allLocations = getAllLocationNames();
-        for (String intermediate : allLocations) {
-            if (!intermediate.equals(source) && !intermediate.equals(destination)) {
-                // Try route through this intermediate location
-                List<String> route1 = findShortestPath(source, intermediate);
-                List<String> route2 = findShortestPath(intermediate, destination);
-                
-                if (!route1.isEmpty() && !route2.isEmpty()) {
-                    // Combine the routes (remove duplicate intermediate location)
-                    List<String> combinedPath = new ArrayList<>(route1);
-                    combinedPath.addAll(route2.subList(1, route2.size()));
-                    
-                    double distance = getPathDistance(combinedPath);
-                    double time = calculateTravelTime(combinedPath, walkingSpeedKmh);
-                    
-                    // Only add if it's a different route and not too much longer
-                    if (!isDuplicateRoute(routeOptions, combinedPath) && 
-                        time <= routeOptions.get(0).getTravelTime() * 1.5) { // Within 50% of shortest time
-                        routeOptions.add(new RouteOption(combinedPath, distance, time, 
-                            "Alternative Route via " + intermediate));
-                    }
-                }
-            }
+        // Already sorted by distance, hence by travel time (fastest first)
+        return routeOptions;
+    }
+    
+    /**
+     * Find the route arriving earliest when leaving at a given time, with every path costed
+     * by a travel cost function at the moment it is reached (e.g. waiting for a closed
+     * path to reopen, or slowing down on stairs and slopes)
+     * @param source The starting location name
+     * @param destination The destination location name
+     * @param departureMinute Departure time in minutes after midnight (e.g. 480 for 08:00)
+     * @param travelCost The cost function, e.g. a WalkingCost
+     * @return The fastest route, or null if no route exists
+     */
+    public RouteOption findFastestRoute(String source, String destination, int departureMinute, TravelCost travelCost) {
+        ShortestPathSearch search = searches.get();
+        RoutingMetrics m = metrics;
+        long started = m == null ? 0L : m.begin(search);
+        RouteOption route = fastestRoute(compile(), search, source, destination, departureMinute, travelCost);
+        if (m != null) {
+            m.end(RoutingMetrics.Operation.FASTEST_ROUTE, search, started, source, destination, route != null);
+        }
+        return route;
+    }
+    
+    /**
+     * Find the earliest-arrival route on a compiled graph
+     * @param graph The compiled graph
+     * @param search Search state to use (bound to graph by this call)
+     * @param source The starting location name
+     * @param destination The destination location name
+     * @param departureMinute Departure time in minutes after midnight
+     * @param travelCost The cost function
+     * @return The fastest route, or null if no route exists
+     */
+    static RouteOption fastestRoute(CompactGraph graph, ShortestPathSearch search, String source,
+                                    String destination, int departureMinute, TravelCost travelCost) {
+        int start = graph.indexOf(source);
+        int target = graph.indexOf(destination);
+        if (start < 0 || target < 0) {
+            return null;
         }
         
-        // Sort by travel time (fastest first)
-        routeOptions.sort((r1, r2) -> Double.compare(r1.getTravelTime(), r2.getTravelTime()));
+        search.bind(graph);
+        if (!search.runTimeDependent(start, target, departureMinute, travelCost)) {
+            return null;
+        }
         
-        // Return top 3 routes
-        return routeOptions.subList(0, Math.min(3, routeOptions.size()));
+        double time = search.distance(target) - departureMinute;
+        int count = search.tracePath(target);
+        int[] nodes = Arrays.copyOf(search.pathNodes(), count);
+        // Distances along the route, not the arrival times the search kept
+        double[] prefix = new double[count];
+        for (int i = 1; i < count; i++) {
+            prefix[i] = prefix[i - 1] + graph.pathLength(nodes[i - 1], nodes[i]);
+        }
+        String description = String.format("Fastest Route leaving at %02d:%02d",
+            Math.floorMod(departureMinute, 24 * 60) / 60, Math.floorMod(departureMinute, 60));
+        return new RouteOption(new Route(graph, nodes, prefix, -1), time, description);
     }
     
     /**
-     * Check if a route is already in the list (to avoid duplicates)
-     * @param existingRoutes List of existing route options
-     * @param newPath New path to check
-     * @return true if the route is a duplicate
+     * Search algorithms available for point-to-point queries
      */
-    private boolean isDuplicateRoute(List<RouteOption> existingRoutes, List<String> newPath) {
-        for (RouteOption route : existingRoutes) {
-            if (route.getPath().equals(newPath)) {
-                return true;
-            }
+    public enum SearchAlgorithm {
+        /** Uninformed Dijkstra, expands nodes in every direction */
+        DIJKSTRA,
+        /** A* guided by the straight-line distance to the destination */
+        A_STAR,
+        /** Dijkstra from both ends at once, meeting in the middle */
+        BIDIRECTIONAL,
+        /** A* with landmark lower bounds from the distance oracle (preprocessed on first use) */
+        ALT,
+        /** Bidirectional upward search over a contraction hierarchy (preprocessed on first use) */
+        CONTRACTION_HIERARCHY,
+        /** Bidirectional search over the cliques of a partitioned overlay (customized on first use) */
+        MULTI_LEVEL
+    }
+    
+    /**
+     * Inner class to represent a change to one path: its routing length before and after
+     * (Double.POSITIVE_INFINITY while the path is absent or closed; equal for attribute changes)
+     */
+    public static final class PathChange {
+        private final String source;
+        private final String destination;
+        private final double oldLength;
+        private final double newLength;
+        
+        PathChange(String source, String destination, double oldLength, double newLength) {
+            this.source = source;
+            this.destination = destination;
+            this.oldLength = oldLength;
+            this.newLength = newLength;
+        }
+        
+        public String getSource() {
+            return source;
+        }
+        
+        public String getDestination() {
+            return destination;
+        }
+        
+        public double getOldLength() {
+            return oldLength;
+        }
+        
+        public double getNewLength() {
+            return newLength;
+        }
+        
+        /**
+         * Whether the change joins the same two locations as a step between two others
+         * @param a One location name
+         * @param b The other location name
+         * @return true if the change is to the path between a and b
+         */
+        public boolean joins(String a, String b) {
+            return (source.equals(a) && destination.equals(b)) || (source.equals(b) && destination.equals(a));
+        }
+        
+        @Override
+        public String toString() {
+            return source + " <-> " + destination + ": " + oldLength + " -> " + newLength;
         }
-        return false;
     }
     
     /**
      * Inner class to represent a route option with distance, time, and description
      */
     public static class RouteOption {
+        private final Route route; // null when built from location names
         private final List<String> path;
         private final double distance;
         private final double travelTime;
         private final String description;
         
         public RouteOption(List<String> path, double distance, double travelTime, String description) {
-            this.path = new ArrayList<>(path);
+            this.route = null;
+            this.path = List.copyOf(path);
             this.distance = distance;
             this.travelTime = travelTime;
             this.description = description;
         }
         
+        /**
+         * Constructor for a route option over a compact route; names are resolved on demand
+         */
+        RouteOption(Route route, double travelTime, String description) {
+            this.route = route;
+            this.path = route.getNames();
+            this.distance = route.getDistance();
+            this.travelTime = travelTime;
+            this.description = description;
+        }
+        
+        /**
+         * Get the location names along the route
+         * @return A new list of names, source first, which the caller may change
+         */
         public List<String> getPath() {
             return new ArrayList<>(path);
         }
         
+        /**
+         * Get the route as node ids with distance prefix sums
+         * @return The compact route, or null if this option was built from location names
+         */
+        public Route getRoute() {
+            return route;
+        }
+        
         public double getDistance() {
             return distance;
         }
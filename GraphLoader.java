@@ -0,0 +1,945 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * GraphLoader class - streaming importer for large campus maps.
+ *
+ * Files are parsed byte by byte from one reusable FileChannel buffer, in two passes: the
+ * first counts rows so every array is allocated once at its final size, the second fills
+ * them. Edge endpoints are resolved against a table of UTF-8 name bytes, so edge rows
+ * create no objects, and the result is laid out directly as a CompactGraph.
+ *
+ * Supported formats:
+ *   CSV nodes file: name,type,x,y   CSV edges file: source,destination
+ *   (optional header row; lines starting with # are ignored; fields may be double-quoted)
+ *   GeoJSON FeatureCollection: Point features with properties "name" and "type" are
+ *   locations; LineString features with properties "from" and "to" are paths.
+ */
+public class GraphLoader {
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    // Heap buffer so the parser indexes the backing array directly
+    private final byte[] bytes = new byte[BUFFER_SIZE];
+    private final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    private byte[] field = new byte[256];
+    private int fieldLength;
+    private LoadStats lastStats;
+
+    // Nodes being loaded
+    private String[] names;
+    private String[] types;
+    private double[] xs;
+    private double[] ys;
+    private int nodeCount;
+    private NameTable nameTable;
+    private NameTable typeTable; // location types repeat, so each distinct one is decoded once
+    private String[] typeNames;
+    private int typeCount;
+    // Paths being loaded
+    private int[] edgeFrom;
+    private int[] edgeTo;
+    private int pathCount;
+    private long skippedRows;
+    private long bytesRead;
+
+    /**
+     * Load a graph from CSV node and edge files
+     * @param nodesFile CSV file with name,type,x,y rows
+     * @param edgesFile CSV file with source,destination rows
+     * @return The loaded graph
+     * @throws IOException If a file cannot be read or a row is malformed
+     */
+    public Graph loadCsv(Path nodesFile, Path edgesFile) throws IOException {
+        long start = System.nanoTime();
+        resetCounters();
+
+        beginNodes(countLines(nodesFile));
+        try (Input in = new Input(nodesFile)) {
+            boolean header = true;
+            long line = 0;
+            while (in.peek() >= 0) {
+                line++;
+                if (!skipCommentOrBlank(in)) {
+                    readNodeRow(in, header, line);
+                    header = false;
+                }
+            }
+        }
+
+        beginPaths(countLines(edgesFile));
+        try (Input in = new Input(edgesFile)) {
+            boolean header = true;
+            while (in.peek() >= 0) {
+                if (!skipCommentOrBlank(in)) {
+                    readPathRow(in, header);
+                    header = false;
+                }
+            }
+        }
+        return finish(start);
+    }
+
+    /**
+     * Parse one name,type,x,y row
+     * @param header true if this is the first row, which may be a header
+     * @param line Line number of the row, for error messages
+     */
+    private void readNodeRow(Input in, boolean header, long line) throws IOException {
+        int end = readCsvField(in);
+        if (header && fieldEqualsIgnoreCase("name")) {
+            skipLine(in, end);
+            return;
+        }
+        String name = fieldString();
+        String type = "";
+        double x = Double.NaN;
+        double y = Double.NaN;
+        if (end == ',') {
+            end = readCsvField(in);
+            type = internType();
+        }
+        try {
+            if (end == ',') {
+                end = readCsvField(in);
+                x = parseField();
+            }
+            if (end == ',') {
+                end = readCsvField(in);
+                y = parseField();
+            }
+        } catch (NumberFormatException e) {
+            throw new IOException("Malformed coordinate '" + fieldString() + "' in the node row on line "
+                + line + " of " + in.file, e);
+        }
+        if (Double.isNaN(x) || Double.isNaN(y)) {
+            throw new IOException("Malformed node row for '" + name + "' on line " + line + " of " + in.file);
+        }
+        putNode(name, type, x, y);
+        skipLine(in, end);
+    }
+
+    /**
+     * Parse one source,destination row
+     * @param header true if this is the first row, which may be a header
+     */
+    private void readPathRow(Input in, boolean header) throws IOException {
+        int end = readCsvField(in);
+        if (header && (fieldEqualsIgnoreCase("source") || fieldEqualsIgnoreCase("from"))) {
+            skipLine(in, end);
+            return;
+        }
+        int from = nameTable.find(field, fieldLength);
+        int to = -1;
+        if (end == ',') {
+            end = readCsvField(in);
+            to = nameTable.find(field, fieldLength);
+        }
+        putPath(from, to);
+        skipLine(in, end);
+    }
+
+    /**
+     * Load a graph from a GeoJSON FeatureCollection
+     * @param file The GeoJSON file
+     * @return The loaded graph
+     * @throws IOException If the file cannot be read or is not valid GeoJSON
+     */
+    public Graph loadGeoJson(Path file) throws IOException {
+        long start = System.nanoTime();
+        resetCounters();
+        GeoJsonReader reader = new GeoJsonReader();
+
+        // Pass 1: locations, and a count of the paths to size the edge arrays
+        beginNodes(16);
+        long paths;
+        try (Input in = new Input(file)) {
+            paths = reader.read(in, true);
+        }
+        // Pass 2: paths, now that every location name is known
+        beginPaths(paths);
+        try (Input in = new Input(file)) {
+            reader.read(in, false);
+        }
+        return finish(start);
+    }
+
+    /**
+     * Get throughput figures for the most recent load
+     * @return Statistics of the last load, or null if nothing was loaded yet
+     */
+    public LoadStats getLastStats() {
+        return lastStats;
+    }
+
+    private void resetCounters() {
+        skippedRows = 0;
+        bytesRead = 0;
+        nodeCount = 0;
+        pathCount = 0;
+    }
+
+    private void beginNodes(long expected) {
+        int capacity = (int) Math.max(16, Math.min(expected, Integer.MAX_VALUE - 8));
+        names = new String[capacity];
+        types = new String[capacity];
+        xs = new double[capacity];
+        ys = new double[capacity];
+        nameTable = new NameTable(capacity);
+        typeTable = new NameTable(16);
+        typeNames = new String[16];
+        typeCount = 0;
+    }
+
+    private void beginPaths(long expected) {
+        int capacity = (int) Math.max(16, Math.min(expected, Integer.MAX_VALUE - 8));
+        edgeFrom = new int[capacity];
+        edgeTo = new int[capacity];
+    }
+
+    /**
+     * Decode the field buffer as a location type, reusing the String for repeated types
+     */
+    private String internType() {
+        int id = typeTable.find(field, fieldLength);
+        if (id < 0) {
+            if (typeCount == typeNames.length) {
+                typeNames = Arrays.copyOf(typeNames, typeCount * 2);
+            }
+            id = typeCount++;
+            typeNames[id] = fieldString();
+            typeTable.add(field, fieldLength);
+        }
+        return typeNames[id];
+    }
+
+    private void putNode(String name, String type, double x, double y) {
+        byte[] key = name.getBytes(StandardCharsets.UTF_8);
+        int id = nameTable.find(key, key.length);
+        if (id < 0) {
+            if (nodeCount == names.length) {
+                int capacity = nodeCount * 2;
+                names = Arrays.copyOf(names, capacity);
+                types = Arrays.copyOf(types, capacity);
+                xs = Arrays.copyOf(xs, capacity);
+                ys = Arrays.copyOf(ys, capacity);
+            }
+            id = nodeCount++;
+            nameTable.add(key, key.length);
+        }
+        // A repeated name replaces the earlier location, as Graph.addLocation does
+        names[id] = name;
+        types[id] = type;
+        xs[id] = x;
+        ys[id] = y;
+    }
+
+    private void putPath(int from, int to) {
+        if (from < 0 || to < 0) {
+            skippedRows++; // unknown location, ignored as Graph.addPath does
+            return;
+        }
+        if (pathCount == edgeFrom.length) {
+            edgeFrom = Arrays.copyOf(edgeFrom, pathCount * 2);
+            edgeTo = Arrays.copyOf(edgeTo, pathCount * 2);
+        }
+        edgeFrom[pathCount] = from;
+        edgeTo[pathCount] = to;
+        pathCount++;
+    }
+
+    private Graph finish(long start) {
+        CompactGraph compact = CompactGraph.fromPaths(
+            Arrays.copyOf(names, nodeCount), Arrays.copyOf(types, nodeCount),
+            Arrays.copyOf(xs, nodeCount), Arrays.copyOf(ys, nodeCount), edgeFrom, edgeTo, pathCount);
+        Graph graph = new Graph(compact);
+        lastStats = new LoadStats(nodeCount, pathCount, skippedRows, bytesRead, System.nanoTime() - start);
+        // Release the load buffers
+        names = null;
+        types = null;
+        xs = null;
+        ys = null;
+        edgeFrom = null;
+        edgeTo = null;
+        nameTable = null;
+        typeTable = null;
+        typeNames = null;
+        return graph;
+    }
+
+    /**
+     * Pass 1 for CSV: count lines with a raw scan for newline bytes
+     */
+    private long countLines(Path file) throws IOException {
+        long lines = 0;
+        byte last = '\n';
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            int read;
+            buffer.clear();
+            while ((read = channel.read(buffer)) >= 0) {
+                for (int i = 0; i < read; i++) {
+                    if (bytes[i] == '\n') {
+                        lines++;
+                    }
+                }
+                if (read > 0) {
+                    last = bytes[read - 1];
+                }
+                buffer.clear();
+            }
+        }
+        return last == '\n' ? lines : lines + 1;
+    }
+
+    private boolean skipCommentOrBlank(Input in) throws IOException {
+        int c = in.peek();
+        if (c == '#') {
+            skipLine(in, 0);
+            return true;
+        }
+        if (c == '\n' || c == '\r') {
+            in.next();
+            if (c == '\r' && in.peek() == '\n') {
+                in.next(); // one blank CRLF line
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Consume the rest of the current line unless the last field already ended it
+     */
+    private void skipLine(Input in, int fieldEnd) throws IOException {
+        if (fieldEnd == '\n' || fieldEnd < 0) {
+            return;
+        }
+        int c;
+        while ((c = in.next()) >= 0 && c != '\n') {
+            // skip
+        }
+    }
+
+    /**
+     * Read one CSV field into the field buffer, trimming surrounding blanks
+     * @return The byte that ended the field: ',' or '\n', or -1 at end of input
+     */
+    private int readCsvField(Input in) throws IOException {
+        fieldLength = 0;
+        int c = in.next();
+        while (c == ' ' || c == '\t') {
+            c = in.next();
+        }
+        if (c == '"') {
+            while ((c = in.next()) >= 0) {
+                if (c == '"') {
+                    if (in.peek() != '"') {
+                        break;
+                    }
+                    c = in.next(); // escaped quote
+                }
+                appendField(c);
+            }
+            c = in.next();
+            while (c >= 0 && c != ',' && c != '\n') {
+                c = in.next();
+            }
+            return c;
+        }
+        while (c >= 0 && c != ',' && c != '\n') {
+            appendField(c);
+            c = in.next();
+        }
+        while (fieldLength > 0 && (field[fieldLength - 1] == ' ' || field[fieldLength - 1] == '\t'
+                || field[fieldLength - 1] == '\r')) {
+            fieldLength--;
+        }
+        return c;
+    }
+
+    private void appendField(int c) {
+        if (fieldLength == field.length) {
+            field = Arrays.copyOf(field, fieldLength * 2);
+        }
+        field[fieldLength++] = (byte) c;
+    }
+
+    private String fieldString() {
+        return new String(field, 0, fieldLength, StandardCharsets.UTF_8);
+    }
+
+    private boolean fieldEqualsIgnoreCase(String text) {
+        if (fieldLength != text.length()) {
+            return false;
+        }
+        for (int i = 0; i < fieldLength; i++) {
+            if (Character.toLowerCase((char) field[i]) != text.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private double parseField() {
+        return fieldLength == 0 ? Double.NaN : parseDouble(field, 0, fieldLength);
+    }
+
+    /**
+     * Parse a decimal number without creating a String. Plain decimals with up to
+     * 18 significant digits take the exact fast path; anything else falls back to
+     * Double.parseDouble.
+     */
+    static double parseDouble(byte[] bytes, int offset, int length) {
+        int i = offset;
+        int end = offset + length;
+        boolean negative = false;
+        if (i < end && (bytes[i] == '-' || bytes[i] == '+')) {
+            negative = bytes[i] == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int significant = 0;
+        int exponent = 0;
+        boolean digits = false;
+        for (; i < end && bytes[i] >= '0' && bytes[i] <= '9'; i++) {
+            digits = true;
+            if (significant < 18) {
+                mantissa = mantissa * 10 + (bytes[i] - '0');
+                if (mantissa != 0) {
+                    significant++;
+                }
+            } else {
+                exponent++;
+            }
+        }
+        if (i < end && bytes[i] == '.') {
+            for (i++; i < end && bytes[i] >= '0' && bytes[i] <= '9'; i++) {
+                digits = true;
+                if (significant < 18) {
+                    mantissa = mantissa * 10 + (bytes[i] - '0');
+                    if (mantissa != 0) {
+                        significant++;
+                    }
+                    exponent--;
+                }
+            }
+        }
+        if (digits && i == end && mantissa < (1L << 53) && exponent >= -22 && exponent <= 22) {
+            // Both operands are exact doubles, so one multiply or divide rounds correctly
+            double value = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+            return negative ? -value : value;
+        }
+        return Double.parseDouble(new String(bytes, offset, length, StandardCharsets.ISO_8859_1));
+    }
+
+    /**
+     * Throughput figures for one load
+     */
+    public static final class LoadStats {
+        private final int locations;
+        private final int paths;
+        private final long skippedRows;
+        private final long bytes;
+        private final long elapsedNanos;
+
+        LoadStats(int locations, int paths, long skippedRows, long bytes, long elapsedNanos) {
+            this.locations = locations;
+            this.paths = paths;
+            this.skippedRows = skippedRows;
+            this.bytes = bytes;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public int getLocations() {
+            return locations;
+        }
+
+        public int getPaths() {
+            return paths;
+        }
+
+        public long getSkippedRows() {
+            return skippedRows;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public double getElapsedMillis() {
+            return elapsedNanos / 1e6;
+        }
+
+        public double getRowsPerSecond() {
+            return (locations + paths + skippedRows) / (elapsedNanos / 1e9);
+        }
+
+        public double getMegabytesPerSecond() {
+            return bytes / 1e6 / (elapsedNanos / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d locations, %d paths (%d rows skipped), %.1f MB in %.1f ms: %.0f rows/s, %.1f MB/s",
+                locations, paths, skippedRows, bytes / 1e6, getElapsedMillis(), getRowsPerSecond(),
+                getMegabytesPerSecond());
+        }
+    }
+
+    /**
+     * Buffered byte input over a file channel, sharing the loader's heap buffer
+     */
+    private final class Input implements Closeable {
+        private final Path file;
+        private final FileChannel channel;
+        private int position;
+        private int limit;
+
+        Input(Path file) throws IOException {
+            this.file = file;
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+        }
+
+        int peek() throws IOException {
+            return position < limit || fill() ? bytes[position] & 0xFF : -1;
+        }
+
+        int next() throws IOException {
+            return position < limit || fill() ? bytes[position++] & 0xFF : -1;
+        }
+
+        private boolean fill() throws IOException {
+            buffer.clear();
+            int read;
+            do {
+                read = channel.read(buffer);
+            } while (read == 0);
+            position = 0;
+            limit = Math.max(read, 0);
+            if (read < 0) {
+                return false;
+            }
+            bytesRead += read;
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * Open-addressing map from UTF-8 name bytes to dense ids (0, 1, 2, ... in insertion order).
+     * Key bytes live in one shared pool so a probe costs no pointer chasing.
+     */
+    private static final class NameTable {
+        private long[] slots; // hash << 32 | (id + 1), 0 = empty; one probe touches one array
+        private byte[] pool = new byte[1024];
+        private int[] keyStart;
+        private int size;
+
+        NameTable(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(16, expected) * 2 - 1) << 1;
+            slots = new long[capacity];
+            keyStart = new int[Math.max(16, expected) + 1];
+        }
+
+        /**
+         * Look up a name given as bytes
+         * @return The id, or -1 if absent
+         */
+        int find(byte[] bytes, int length) {
+            int hash = hash(bytes, length);
+            int mask = slots.length - 1;
+            for (int i = hash & mask; slots[i] != 0; i = (i + 1) & mask) {
+                long slot = slots[i];
+                if ((int) (slot >>> 32) == hash) {
+                    int id = (int) slot - 1;
+                    if (Arrays.equals(pool, keyStart[id], keyStart[id + 1], bytes, 0, length)) {
+                        return id;
+                    }
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Add a name that is not yet present; it receives the next id
+         * @param bytes The name's UTF-8 bytes
+         * @param length Number of bytes to use
+         */
+        void add(byte[] bytes, int length) {
+            if ((size + 1) * 2 > slots.length) {
+                grow();
+            }
+            if (size + 1 == keyStart.length) {
+                keyStart = Arrays.copyOf(keyStart, keyStart.length * 2);
+            }
+            int from = keyStart[size];
+            if (from + length > pool.length) {
+                pool = Arrays.copyOf(pool, Math.max(pool.length * 2, from + length));
+            }
+            System.arraycopy(bytes, 0, pool, from, length);
+            keyStart[size + 1] = from + length;
+            insert(((long) hash(bytes, length) << 32) | (size + 1));
+            size++;
+        }
+
+        private void insert(long slot) {
+            int mask = slots.length - 1;
+            int i = (int) (slot >>> 32) & mask;
+            while (slots[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            slots[i] = slot;
+        }
+
+        private void grow() {
+            long[] old = slots;
+            slots = new long[old.length * 2];
+            for (long slot : old) {
+                if (slot != 0) {
+                    insert(slot);
+                }
+            }
+        }
+
+        private static int hash(byte[] bytes, int length) {
+            int h = 0x811C9DC5; // FNV-1a
+            for (int i = 0; i < length; i++) {
+                h = (h ^ bytes[i]) * 0x01000193;
+            }
+            return h ^ (h >>> 16);
+        }
+    }
+
+    /**
+     * Streaming reader for the subset of GeoJSON used for campus maps
+     */
+    private final class GeoJsonReader {
+        private Input in;
+        private boolean nodePass;
+        private long lineStrings;
+        private long features; // features read so far, for error messages
+        // Current feature
+        private int geometry; // 0 unknown, 1 Point, 2 LineString
+        private final double[] coordinates = new double[2];
+        private int coordinateCount;
+        private String name;
+        private String type;
+        private int from;
+        private int to;
+
+        /**
+         * Read the file once
+         * @param nodePass true to collect Point features, false to collect LineString features
+         * @return Number of LineString features seen
+         */
+        long read(Input input, boolean nodePass) throws IOException {
+            this.in = input;
+            this.nodePass = nodePass;
+            this.lineStrings = 0;
+            this.features = 0;
+            expect('{');
+            if (!closes('}')) {
+                do {
+                    readKey();
+                    if (fieldEquals("features")) {
+                        expect('[');
+                        if (!closes(']')) {
+                            do {
+                                readFeature();
+                            } while (more(']'));
+                        }
+                    } else {
+                        skipValue();
+                    }
+                } while (more('}'));
+            }
+            return lineStrings;
+        }
+
+        private void readFeature() throws IOException {
+            features++;
+            try {
+                readFeatureFields();
+            } catch (NumberFormatException e) {
+                throw new IOException("Malformed coordinate '" + fieldString() + "' in feature " + features
+                    + " of " + in.file, e);
+            }
+            storeFeature();
+        }
+
+        private void readFeatureFields() throws IOException {
+            geometry = 0;
+            coordinateCount = 0;
+            name = null;
+            type = "";
+            from = -1;
+            to = -1;
+            expect('{');
+            if (!closes('}')) {
+                do {
+                    readKey();
+                    if (fieldEquals("geometry")) {
+                        readGeometry();
+                    } else if (fieldEquals("properties")) {
+                        readProperties();
+                    } else {
+                        skipValue();
+                    }
+                } while (more('}'));
+            }
+        }
+
+        private void storeFeature() {
+            if (geometry == 1 && nodePass) {
+                if (name == null || coordinateCount < 2) {
+                    skippedRows++;
+                } else {
+                    putNode(name, type, coordinates[0], coordinates[1]);
+                }
+            } else if (geometry == 2) {
+                lineStrings++;
+                if (!nodePass) {
+                    putPath(from, to);
+                }
+            }
+        }
+
+        private void readGeometry() throws IOException {
+            if (skipNull()) {
+                return;
+            }
+            expect('{');
+            if (!closes('}')) {
+                do {
+                    readKey();
+                    if (fieldEquals("type")) {
+                        readString();
+                        geometry = fieldEquals("Point") ? 1 : fieldEquals("LineString") ? 2 : 3;
+                    } else if (fieldEquals("coordinates")) {
+                        readCoordinates();
+                    } else {
+                        skipValue();
+                    }
+                } while (more('}'));
+            }
+        }
+
+        /**
+         * Keep the first two numbers of a (possibly nested) coordinate array
+         */
+        private void readCoordinates() throws IOException {
+            int c = peekToken();
+            if (c == '[') {
+                in.next();
+                if (!closes(']')) {
+                    do {
+                        readCoordinates();
+                    } while (more(']'));
+                }
+            } else {
+                readNumberField();
+                if (coordinateCount < 2) {
+                    coordinates[coordinateCount++] = parseDouble(field, 0, fieldLength);
+                }
+            }
+        }
+
+        private void readProperties() throws IOException {
+            if (skipNull()) {
+                return;
+            }
+            expect('{');
+            if (!closes('}')) {
+                do {
+                    readKey();
+                    int property = fieldEquals("name") ? 1 : fieldEquals("type") ? 2
+                        : fieldEquals("from") ? 3 : fieldEquals("to") ? 4 : 0;
+                    if (peekToken() != '"') {
+                        skipValue();
+                        continue;
+                    }
+                    readString();
+                    if (nodePass && property == 1) {
+                        name = fieldString();
+                    } else if (nodePass && property == 2) {
+                        type = internType();
+                    } else if (!nodePass && property == 3) {
+                        from = nameTable.find(field, fieldLength);
+                    } else if (!nodePass && property == 4) {
+                        to = nameTable.find(field, fieldLength);
+                    }
+                } while (more('}'));
+            }
+        }
+
+        /**
+         * Read an object key into the field buffer and consume the colon after it
+         */
+        private void readKey() throws IOException {
+            readString();
+            expect(':');
+        }
+
+        /**
+         * Read a JSON string into the field buffer as UTF-8
+         */
+        private void readString() throws IOException {
+            expect('"');
+            fieldLength = 0;
+            int c;
+            while ((c = in.next()) != '"') {
+                if (c < 0) {
+                    throw new IOException("Unterminated string in GeoJSON");
+                }
+                if (c == '\\') {
+                    c = in.next();
+                    switch (c) {
+                        case 'n': c = '\n'; break;
+                        case 't': c = '\t'; break;
+                        case 'r': c = '\r'; break;
+                        case 'b': c = '\b'; break;
+                        case 'f': c = '\f'; break;
+                        case 'u':
+                            appendCodePoint(readHex4());
+                            continue;
+                        default: break; // \" \\ \/
+                    }
+                }
+                appendField(c);
+            }
+        }
+
+        private int readHex4() throws IOException {
+            int value = 0;
+            for (int i = 0; i < 4; i++) {
+                value = value * 16 + Character.digit(in.next(), 16);
+            }
+            if (value >= 0xD800 && value < 0xDC00 && in.peek() == '\\') {
+                in.next();
+                in.next(); // 'u'
+                int low = readHex4();
+                return Character.toCodePoint((char) value, (char) low);
+            }
+            return value;
+        }
+
+        private void appendCodePoint(int codePoint) {
+            for (byte b : new String(Character.toChars(codePoint)).getBytes(StandardCharsets.UTF_8)) {
+                appendField(b);
+            }
+        }
+
+        private void readNumberField() throws IOException {
+            fieldLength = 0;
+            int c = peekToken();
+            while (c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E' || (c >= '0' && c <= '9')) {
+                appendField(in.next());
+                c = in.peek();
+            }
+            if (fieldLength == 0) {
+                throw new IOException("Expected a number in GeoJSON");
+            }
+        }
+
+        private void skipValue() throws IOException {
+            int c = peekToken();
+            if (c == '"') {
+                readString();
+            } else if (c == '{' || c == '[') {
+                int close = c == '{' ? '}' : ']';
+                in.next();
+                if (!closes(close)) {
+                    do {
+                        if (close == '}') {
+                            readString();
+                            expect(':');
+                        }
+                        skipValue();
+                    } while (more(close));
+                }
+            } else {
+                // number, true, false or null
+                while ((c = in.peek()) >= 0 && c != ',' && c != '}' && c != ']'
+                        && c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                    in.next();
+                }
+            }
+        }
+
+        private boolean skipNull() throws IOException {
+            if (peekToken() == 'n') {
+                skipValue();
+                return true;
+            }
+            return false;
+        }
+
+        private boolean fieldEquals(String text) {
+            if (fieldLength != text.length()) {
+                return false;
+            }
+            for (int i = 0; i < fieldLength; i++) {
+                if (field[i] != text.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int peekToken() throws IOException {
+            int c;
+            while ((c = in.peek()) == ' ' || c == '\n' || c == '\r' || c == '\t') {
+                in.next();
+            }
+            return c;
+        }
+
+        private void expect(int expected) throws IOException {
+            int c = peekToken();
+            if (c != expected) {
+                throw new IOException("Expected '" + (char) expected + "' in GeoJSON but found "
+                    + (c < 0 ? "end of file" : "'" + (char) c + "'"));
+            }
+            in.next();
+        }
+
+        /**
+         * Consume the closing bracket of an empty object or array
+         */
+        private boolean closes(int close) throws IOException {
+            if (peekToken() == close) {
+                in.next();
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * After a member or element: true if a comma follows, false if the closing bracket does
+         */
+        private boolean more(int close) throws IOException {
+            int c = peekToken();
+            in.next();
+            if (c == ',') {
+                return true;
+            }
+            if (c != close) {
+                throw new IOException("Expected ',' or '" + (char) close + "' in GeoJSON");
+            }
+            return false;
+        }
+    }
+}
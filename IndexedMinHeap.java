@@ -0,0 +1,152 @@
+import java.util.Arrays;
+
+/**
+ * IndexedMinHeap class - binary min-heap over int node ids with double keys.
+ * Supports decrease-key through a position index so each node appears at most once.
+ */
+final class IndexedMinHeap {
+    private int[] heap;
+    private int[] position; // -1 when the node is not in the heap
+    private double[] keys;
+    private int size;
+    private long pushes; // effective inserts and decrease-keys, for search-effort metrics
+    private long pops;
+
+    IndexedMinHeap(int capacity) {
+        heap = new int[capacity];
+        position = new int[capacity];
+        keys = new double[capacity];
+        Arrays.fill(position, -1);
+    }
+
+    /**
+     * Grow the heap so that node ids up to capacity - 1 can be stored
+     * @param capacity Required number of node ids
+     */
+    void ensureCapacity(int capacity) {
+        if (capacity > position.length) {
+            int oldLength = position.length;
+            heap = Arrays.copyOf(heap, capacity);
+            keys = Arrays.copyOf(keys, capacity);
+            position = Arrays.copyOf(position, capacity);
+            Arrays.fill(position, oldLength, capacity, -1);
+        }
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean contains(int node) {
+        return position[node] >= 0;
+    }
+
+    double peekKey() {
+        return keys[heap[0]];
+    }
+
+    /**
+     * Insert a node, or lower its key if already present with a larger key
+     * @param node The node id
+     * @param key The new key
+     */
+    void push(int node, double key) {
+        int pos = position[node];
+        if (pos < 0) {
+            pos = size++;
+            heap[pos] = node;
+            position[node] = pos;
+        } else if (key >= keys[node]) {
+            return;
+        }
+        keys[node] = key;
+        pushes++;
+        siftUp(pos);
+    }
+
+    /**
+     * Remove and return the node with the smallest key
+     * @return The node id
+     */
+    int pop() {
+        int top = heap[0];
+        position[top] = -1;
+        size--;
+        pops++;
+        if (size > 0) {
+            int last = heap[size];
+            heap[0] = last;
+            position[last] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    /**
+     * Get the number of inserts and decrease-keys since this heap was created
+     * @return Push count
+     */
+    long pushCount() {
+        return pushes;
+    }
+
+    /**
+     * Get the number of nodes popped since this heap was created
+     * @return Pop count
+     */
+    long popCount() {
+        return pops;
+    }
+
+    /**
+     * Remove all nodes, touching only the slots in use
+     */
+    void clear() {
+        for (int i = 0; i < size; i++) {
+            position[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    private void siftUp(int pos) {
+        int node = heap[pos];
+        double key = keys[node];
+        while (pos > 0) {
+            int parentPos = (pos - 1) >>> 1;
+            int parent = heap[parentPos];
+            if (keys[parent] <= key) {
+                break;
+            }
+            heap[pos] = parent;
+            position[parent] = pos;
+            pos = parentPos;
+        }
+        heap[pos] = node;
+        position[node] = pos;
+    }
+
+    private void siftDown(int pos) {
+        int node = heap[pos];
+        double key = keys[node];
+        int half = size >>> 1;
+        while (pos < half) {
+            int child = 2 * pos + 1;
+            int right = child + 1;
+            if (right < size && keys[heap[right]] < keys[heap[child]]) {
+                child = right;
+            }
+            if (key <= keys[heap[child]]) {
+                break;
+            }
+            heap[pos] = heap[child];
+            position[heap[pos]] = pos;
+            pos = child;
+        }
+        heap[pos] = node;
+        position[node] = pos;
+    }
+}
@@ -0,0 +1,131 @@
+import java.util.*;
+
+/**
+ * Isochrone class - the locations reachable from a source within a walking budget, nearest
+ * first, with distances and arrival times. Entries are held in two primitive arrays over
+ * the compiled graph the search ran on; Location objects are only created on request.
+ */
+public final class Isochrone {
+    private final CompactGraph graph;
+    private final int[] nodes;
+    private final double[] distances;
+    private final double walkingSpeedKmh;
+
+    /**
+     * Constructor for Isochrone (arrays are taken over, not copied)
+     * @param graph The compiled graph searched
+     * @param nodes Reached node ids, nearest first
+     * @param distances Distance to each reached node
+     * @param walkingSpeedKmh Walking speed used for arrival times
+     */
+    Isochrone(CompactGraph graph, int[] nodes, double[] distances, double walkingSpeedKmh) {
+        this.graph = graph;
+        this.nodes = nodes;
+        this.distances = distances;
+        this.walkingSpeedKmh = walkingSpeedKmh;
+    }
+
+    /**
+     * Run a bounded search and capture its result
+     * @param graph The compiled graph
+     * @param search Search state to use (bound to graph by this call)
+     * @param source The starting location name
+     * @param maxDistance Largest distance to include
+     * @param walkingSpeedKmh Walking speed used for arrival times
+     * @return The reachable set (empty if source is unknown)
+     */
+    static Isochrone reachable(CompactGraph graph, ShortestPathSearch search, String source,
+                               double maxDistance, double walkingSpeedKmh) {
+        int start = graph.indexOf(source);
+        if (start < 0 || maxDistance < 0) {
+            return new Isochrone(graph, new int[0], new double[0], walkingSpeedKmh);
+        }
+        search.bind(graph);
+        int count = search.runWithin(start, maxDistance);
+        int[] nodes = Arrays.copyOf(search.settledNodes(), count);
+        double[] distances = new double[count];
+        for (int i = 0; i < count; i++) {
+            distances[i] = search.distance(nodes[i]);
+        }
+        return new Isochrone(graph, nodes, distances, walkingSpeedKmh);
+    }
+
+    /**
+     * Get the number of reachable locations, including the source
+     * @return Number of locations
+     */
+    public int size() {
+        return nodes.length;
+    }
+
+    public String getName(int index) {
+        return graph.name(nodes[index]);
+    }
+
+    public Location getLocation(int index) {
+        return graph.location(nodes[index]);
+    }
+
+    public double getDistance(int index) {
+        return distances[index];
+    }
+
+    /**
+     * Walking time to a reachable location, as calculateTravelTime would report for its route
+     * @param index Position in the isochrone (0 is the source)
+     * @return Travel time in minutes
+     */
+    public double getTravelTime(int index) {
+        return Graph.travelTime(distances[index], walkingSpeedKmh);
+    }
+
+    /**
+     * Get the names of all reachable locations
+     * @return Location names, nearest first
+     */
+    public List<String> getNames() {
+        return graph.toNames(nodes, nodes.length);
+    }
+
+    /**
+     * Convex hull of the reachable locations (Andrew's monotone chain)
+     * @return Hull vertices in counter-clockwise order, without repeating the first;
+     *         fewer than three when the locations are fewer or collinear
+     */
+    public List<Location> getHull() {
+        Integer[] order = new Integer[nodes.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = nodes[i];
+        }
+        Arrays.sort(order, Comparator.<Integer>comparingDouble(graph::x).thenComparingDouble(graph::y));
+        int[] hull = new int[order.length * 2];
+        int size = 0;
+        for (int i = 0; i < order.length; i++) {
+            size = pushTurningLeft(hull, size, 1, order[i]);
+        }
+        int lower = size;
+        for (int i = order.length - 2; i >= 0; i--) {
+            size = pushTurningLeft(hull, size, lower, order[i]);
+        }
+        // The chain ends back at its first vertex
+        int count = order.length < 2 ? order.length : size - 1;
+        List<Location> vertices = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            vertices.add(graph.location(hull[i]));
+        }
+        return vertices;
+    }
+
+    private int pushTurningLeft(int[] hull, int size, int floor, int node) {
+        while (size > floor && cross(hull[size - 2], hull[size - 1], node) <= 0) {
+            size--;
+        }
+        hull[size] = node;
+        return size + 1;
+    }
+
+    private double cross(int o, int a, int b) {
+        return (graph.x(a) - graph.x(o)) * (graph.y(b) - graph.y(o))
+            - (graph.y(a) - graph.y(o)) * (graph.x(b) - graph.x(o));
+    }
+}
@@ -0,0 +1,145 @@
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Itinerary class - a walk through a list of stops in a short visiting order, as one
+ * continuous route. The first stop given is always the start; the others are reordered.
+ *
+ * Planning runs one search per stop for the stop-to-stop distance matrix (in parallel),
+ * orders the stops with TourOptimizer, then traces one shortest path per leg and joins them.
+ */
+public final class Itinerary {
+    private final List<String> stops;
+    private final double[] legDistances;
+    private final boolean roundTrip;
+    private final Graph.RouteOption route;
+
+    private Itinerary(List<String> stops, double[] legDistances, boolean roundTrip, Graph.RouteOption route) {
+        this.stops = stops;
+        this.legDistances = legDistances;
+        this.roundTrip = roundTrip;
+        this.route = route;
+    }
+
+    /**
+     * Plan an itinerary on a compiled graph
+     * @param graph The compiled graph
+     * @param search Search state to use (bound to graph by this call)
+     * @param stops Stop names; the first is the start
+     * @param roundTrip true to end back at the first stop
+     * @param walkingSpeedKmh Walking speed in km/h
+     * @return The itinerary, or null if a stop is unknown or some stop cannot be reached
+     */
+    static Itinerary plan(CompactGraph graph, ShortestPathSearch search, List<String> stops,
+                          boolean roundTrip, double walkingSpeedKmh) {
+        if (stops.isEmpty()) {
+            throw new IllegalArgumentException("An itinerary needs at least one stop");
+        }
+        int[] nodes = DistanceMatrix.resolve(graph, stops);
+        for (int node : nodes) {
+            if (node < 0) {
+                return null;
+            }
+        }
+        double[][] distances = DistanceMatrix.manyToMany(graph, nodes, nodes);
+        for (double[] row : distances) {
+            for (double distance : row) {
+                if (distance == Double.MAX_VALUE) {
+                    return null;
+                }
+            }
+        }
+        int restarts = Math.max(4, ForkJoinPool.getCommonPoolParallelism() * 2);
+        int[] order = new TourOptimizer(distances, roundTrip).optimize(restarts);
+
+        // Trace each leg and join them, dropping the repeated stop where legs meet
+        int legs = roundTrip && order.length > 1 ? order.length : order.length - 1;
+        double[] legDistances = new double[legs];
+        int[] path = new int[16];
+        double[] prefix = new double[16];
+        path[0] = nodes[order[0]];
+        int size = 1;
+        search.bind(graph);
+        for (int leg = 0; leg < legs; leg++) {
+            int from = nodes[order[leg]];
+            int to = nodes[order[(leg + 1) % order.length]];
+            search.run(from, to);
+            Route part = Route.traced(search, to);
+            if (size + part.size() > path.length) {
+                int capacity = Math.max(path.length * 2, size + part.size());
+                path = Arrays.copyOf(path, capacity);
+                prefix = Arrays.copyOf(prefix, capacity);
+            }
+            double base = prefix[size - 1];
+            for (int i = 1; i < part.size(); i++) {
+                path[size] = part.node(i);
+                prefix[size++] = base + part.distanceTo(i);
+            }
+            legDistances[leg] = part.getDistance();
+        }
+        List<String> ordered = new ArrayList<>(order.length);
+        for (int stop : order) {
+            ordered.add(stops.get(stop));
+        }
+        Route joined = new Route(graph, Arrays.copyOf(path, size), Arrays.copyOf(prefix, size), -1);
+        String description = (roundTrip ? "Round trip of " : "Tour of ") + order.length + " stops: "
+            + String.join(" -> ", ordered) + (roundTrip ? " -> " + ordered.get(0) : "");
+        Graph.RouteOption option = new Graph.RouteOption(joined, Graph.travelTime(joined.getDistance(), walkingSpeedKmh),
+            description);
+        return new Itinerary(Collections.unmodifiableList(ordered), legDistances, roundTrip, option);
+    }
+
+    /**
+     * Get the stops in visiting order
+     * @return Stop names, the start first (not repeated at the end of a round trip)
+     */
+    public List<String> getStops() {
+        return stops;
+    }
+
+    /**
+     * Get the whole walk as one route
+     * @return Route through every stop, with total distance and travel time
+     */
+    public Graph.RouteOption getRoute() {
+        return route;
+    }
+
+    public List<String> getPath() {
+        return route.getPath();
+    }
+
+    public double getDistance() {
+        return route.getDistance();
+    }
+
+    public double getTravelTime() {
+        return route.getTravelTime();
+    }
+
+    public boolean isRoundTrip() {
+        return roundTrip;
+    }
+
+    /**
+     * Get the number of legs between consecutive stops
+     * @return Leg count, including the way back on a round trip
+     */
+    public int getLegCount() {
+        return legDistances.length;
+    }
+
+    /**
+     * Distance of one leg
+     * @param leg Leg index; leg i runs from getStops().get(i) to the next stop
+     * @return Shortest distance between the two stops
+     */
+    public double getLegDistance(int leg) {
+        return legDistances[leg];
+    }
+
+    @Override
+    public String toString() {
+        return route.getDescription();
+    }
+}
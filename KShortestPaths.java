@@ -0,0 +1,178 @@
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * KShortestPaths class - Yen's algorithm for the k shortest loopless paths.
+ * Each new path costs one spur search per node of the previous path, and spur
+ * searches are A* runs cut off at the caller's length bound.
+ *
+ * The spur searches of one round are independent, so in parallel mode they run on the
+ * common fork-join pool, each task with search state borrowed from the caller's pool of
+ * idle searches and returned when it finishes. Candidates are merged in spur order either
+ * way, so both modes return the same paths.
+ */
+final class KShortestPaths {
+    private final ShortestPathSearch search;
+    private final Queue<ShortestPathSearch> workers; // null to run spur searches on the calling thread
+
+    /**
+     * Constructor for KShortestPaths, running spur searches on the calling thread
+     * @param search Search state bound to the graph to search; its bans are cleared on return
+     */
+    KShortestPaths(ShortestPathSearch search) {
+        this(search, null);
+    }
+
+    /**
+     * Constructor for KShortestPaths
+     * @param search Search state bound to the graph to search; its bans are cleared on return
+     * @param workers Thread-safe pool of idle search states to borrow for running the spur
+     *                searches of each round on the common fork-join pool (new ones are added
+     *                if it runs dry), or null to run them on the calling thread
+     */
+    KShortestPaths(ShortestPathSearch search, Queue<ShortestPathSearch> workers) {
+        this.search = search;
+        this.workers = workers;
+    }
+
+    /**
+     * Find up to k loopless paths in increasing length order
+     * @param source Source node id
+     * @param target Target node id
+     * @param k Maximum number of paths to return
+     * @param stretch Longest acceptable path as a multiple of the shortest (e.g. 1.5)
+     * @return Paths ordered by length, shortest first (empty if target is unreachable)
+     */
+    List<Route> find(int source, int target, int k, double stretch) {
+        List<Route> accepted = new ArrayList<>(k);
+        search.clearBans();
+        if (!search.run(source, target, true)) {
+            return accepted;
+        }
+        accepted.add(tracePath(search, target, null, 0, 0.0, -1));
+        double limit = accepted.get(0).getDistance() * stretch;
+
+        PriorityQueue<Route> candidates = new PriorityQueue<>();
+        Set<Route> seen = new HashSet<>();
+        seen.add(accepted.get(0));
+
+        while (accepted.size() < k) {
+            int spurs = accepted.get(accepted.size() - 1).nodes.length - 1;
+            Route[] found = new Route[spurs];
+            if (workers != null && spurs > 1) {
+                int perTask = Math.max(1, spurs / (ForkJoinPool.getCommonPoolParallelism() * 4));
+                ForkJoinPool.commonPool().invoke(new SpurRange(accepted, target, limit, found, perTask, 0, spurs));
+            } else {
+                for (int i = 0; i < spurs; i++) {
+                    found[i] = spurPath(search, accepted, target, i, limit);
+                }
+            }
+            // Offer in spur order, so equal-length candidates queue the same way in both modes
+            for (Route candidate : found) {
+                if (candidate != null && seen.add(candidate)) {
+                    candidates.add(candidate);
+                }
+            }
+            if (candidates.isEmpty()) {
+                break;
+            }
+            accepted.add(candidates.poll());
+        }
+        search.clearBans();
+        return accepted;
+    }
+
+    /**
+     * Search for the best path leaving the last accepted path at node i
+     * @return The root of the last accepted path joined with the spur path, or null if none is short enough
+     */
+    private static Route spurPath(ShortestPathSearch search, List<Route> accepted, int target, int i, double limit) {
+        Route previous = accepted.get(accepted.size() - 1);
+        int spur = previous.nodes[i];
+        double rootDistance = previous.prefix[i];
+
+        search.clearBans();
+        for (Route path : accepted) {
+            if (path.nodes.length > i + 1 && path.sharesPrefix(previous, i + 1)) {
+                search.banEdge(spur, path.nodes[i + 1]);
+            }
+        }
+        for (int j = 0; j < i; j++) {
+            search.banNode(previous.nodes[j]);
+        }
+
+        if (!search.run(spur, target, true, limit - rootDistance)) {
+            return null;
+        }
+        return tracePath(search, target, previous, i, rootDistance, spur);
+    }
+
+    /**
+     * Join the root of a previous path (nodes 0..rootLength) with the spur path just found
+     */
+    private static Route tracePath(ShortestPathSearch search, int target, Route root, int rootLength,
+                                   double rootDistance, int spur) {
+        int spurCount = search.tracePath(target);
+        int[] spurNodes = search.pathNodes();
+        int[] nodes = new int[rootLength + spurCount];
+        double[] prefix = new double[nodes.length];
+        if (root != null) {
+            System.arraycopy(root.nodes, 0, nodes, 0, rootLength);
+            System.arraycopy(root.prefix, 0, prefix, 0, rootLength);
+        }
+        for (int i = 0; i < spurCount; i++) {
+            nodes[rootLength + i] = spurNodes[i];
+            prefix[rootLength + i] = rootDistance + search.distance(spurNodes[i]);
+        }
+        int deviation = spur >= 0 && spurCount > 1 ? spurNodes[1] : -1;
+        return new Route(search.graph(), nodes, prefix, deviation);
+    }
+
+    /**
+     * Fork-join task running the spur searches of a range of spur nodes
+     */
+    private final class SpurRange extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final transient List<Route> accepted;
+        private final int target;
+        private final double limit;
+        private final transient Route[] found;
+        private final int perTask;
+        private final int from;
+        private final int to;
+
+        SpurRange(List<Route> accepted, int target, double limit, Route[] found, int perTask, int from, int to) {
+            this.accepted = accepted;
+            this.target = target;
+            this.limit = limit;
+            this.found = found;
+            this.perTask = perTask;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > perTask) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new SpurRange(accepted, target, limit, found, perTask, from, mid),
+                          new SpurRange(accepted, target, limit, found, perTask, mid, to));
+                return;
+            }
+            ShortestPathSearch worker = workers.poll();
+            if (worker == null) {
+                worker = new ShortestPathSearch();
+            }
+            try {
+                worker.bind(search.graph());
+                for (int i = from; i < to; i++) {
+                    found[i] = spurPath(worker, accepted, target, i, limit);
+                }
+                worker.clearBans();
+            } finally {
+                workers.offer(worker);
+            }
+        }
+    }
+}
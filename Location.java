@@ -1,5 +1,8 @@
 /**
- * Location class representing a place on the University of Ghana campus
+ * Location class representing a place on the University of Ghana campus.
+ * A Graph copies a location's fields when it is added and hands out new snapshots from
+ * getLocation and the spatial queries, so changing a Location never changes a graph;
+ * call Graph.addLocation again with the new values instead.
  */
 public class Location {
     private String name;
@@ -39,18 +42,34 @@ public class Location {
     }
     
     // Setters
+    /**
+     * @deprecated Does not rename the location in any graph; add a new Location instead
+     */
+    @Deprecated
     public void setName(String name) {
         this.name = name;
     }
     
+    /**
+     * @deprecated Does not affect any graph; re-add the location with Graph.addLocation instead
+     */
+    @Deprecated
     public void setType(String type) {
         this.type = type;
     }
     
+    /**
+     * @deprecated Does not move the location in any graph; re-add it with Graph.addLocation instead
+     */
+    @Deprecated
     public void setX(double x) {
         this.x = x;
     }
     
+    /**
+     * @deprecated Does not move the location in any graph; re-add it with Graph.addLocation instead
+     */
+    @Deprecated
     public void setY(double y) {
         this.y = y;
     }
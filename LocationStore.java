@@ -0,0 +1,289 @@
+import java.util.*;
+
+/**
+ * LocationStore class - the editable locations and paths behind a Graph, keyed by interned
+ * int node ids. A location is a row across parallel columns (name, type, x, y) found
+ * through an open-addressing NodeIds table, and its neighbours are an int[] of node ids,
+ * so a location costs a few dozen bytes instead of a Location object, map entries and a
+ * list of neighbour names.
+ *
+ * Ids are handed out in insertion order and never change. The columns and the name table
+ * are shared with the CompactGraph compiled from them; the first write after compiling
+ * copies them, so a compiled graph never sees later edits.
+ */
+final class LocationStore {
+    private static final int[] NO_NEIGHBORS = new int[0];
+
+    private String[] names;
+    private String[] types;
+    private double[] xs;
+    private double[] ys;
+    private NodeIds ids;
+    private int[][] neighbors; // neighbors[u][0 .. degrees[u] - 1], one entry per path (paths may repeat)
+    private int[] degrees;
+    private int size;
+    private boolean shared; // columns and ids are also held by a compiled graph
+
+    /**
+     * Constructor for LocationStore
+     * @param expected Number of locations to size the columns for
+     */
+    LocationStore(int expected) {
+        int capacity = Math.max(16, expected);
+        names = new String[capacity];
+        types = new String[capacity];
+        xs = new double[capacity];
+        ys = new double[capacity];
+        ids = new NodeIds(capacity);
+        neighbors = new int[capacity][];
+        degrees = new int[capacity];
+    }
+
+    /**
+     * Constructor for LocationStore taking over the columns of a compiled graph (shared, not
+     * copied) and copying its adjacency
+     */
+    LocationStore(String[] names, String[] types, double[] xs, double[] ys, NodeIds ids,
+                  int[] offsets, int[] targets) {
+        int n = names.length;
+        this.names = names;
+        this.types = types;
+        this.xs = xs;
+        this.ys = ys;
+        this.ids = ids;
+        this.size = n;
+        this.shared = true;
+        this.neighbors = new int[n][];
+        this.degrees = new int[n];
+        for (int u = 0; u < n; u++) {
+            neighbors[u] = Arrays.copyOfRange(targets, offsets[u], offsets[u + 1]);
+            degrees[u] = offsets[u + 1] - offsets[u];
+        }
+    }
+
+    /**
+     * Get the number of locations
+     * @return Number of locations
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Get the node id of a location
+     * @param name The location name
+     * @return The node id, or -1 if not present
+     */
+    int indexOf(String name) {
+        return ids.find(name, names);
+    }
+
+    /**
+     * Add a location, or replace the type and coordinates of the one with the same name
+     * @return The location's node id
+     */
+    int put(String name, String type, double x, double y) {
+        int id = ids.find(name, names);
+        unshare(id < 0 ? size + 1 : size);
+        if (id < 0) {
+            id = size++;
+            names[id] = name;
+            neighbors[id] = NO_NEIGHBORS;
+            ids.add(name, id);
+        }
+        types[id] = type;
+        xs[id] = x;
+        ys[id] = y;
+        return id;
+    }
+
+    String name(int node) {
+        return names[node];
+    }
+
+    String type(int node) {
+        return types[node];
+    }
+
+    double x(int node) {
+        return xs[node];
+    }
+
+    double y(int node) {
+        return ys[node];
+    }
+
+    /**
+     * Materialize a location
+     * @param node The node id
+     * @return A new Location with the node's name, type and coordinates
+     */
+    Location location(int node) {
+        return new Location(names[node], types[node], xs[node], ys[node]);
+    }
+
+    /**
+     * Straight-line distance between two locations
+     */
+    double distance(int a, int b) {
+        double dx = xs[a] - xs[b];
+        double dy = ys[a] - ys[b];
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    int degree(int node) {
+        return degrees[node];
+    }
+
+    int neighbor(int node, int index) {
+        return neighbors[node][index];
+    }
+
+    /**
+     * Add one direction of a path
+     */
+    void link(int from, int to) {
+        int degree = degrees[from];
+        if (degree == neighbors[from].length) {
+            neighbors[from] = Arrays.copyOf(neighbors[from], Math.max(4, degree * 2));
+        }
+        neighbors[from][degree] = to;
+        degrees[from] = degree + 1;
+    }
+
+    /**
+     * Remove every copy of one direction of a path
+     * @return Number of copies removed
+     */
+    int unlink(int from, int to) {
+        int[] list = neighbors[from];
+        int kept = 0;
+        for (int i = 0; i < degrees[from]; i++) {
+            if (list[i] != to) {
+                list[kept++] = list[i];
+            }
+        }
+        int removed = degrees[from] - kept;
+        degrees[from] = kept;
+        return removed;
+    }
+
+    boolean linked(int from, int to) {
+        int[] list = neighbors[from];
+        for (int i = 0; i < degrees[from]; i++) {
+            if (list[i] == to) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Neighbour names of a location, in the order their paths were added
+     * @return A new list
+     */
+    List<String> neighborNames(int node) {
+        List<String> list = new ArrayList<>(degrees[node]);
+        for (int i = 0; i < degrees[node]; i++) {
+            list.add(names[neighbors[node][i]]);
+        }
+        return list;
+    }
+
+    /**
+     * Read-only view of the location names, in id order
+     * @return Live set view
+     */
+    Set<String> nameSet() {
+        return new AbstractSet<String>() {
+            @Override
+            public boolean contains(Object o) {
+                return o instanceof String && indexOf((String) o) >= 0;
+            }
+
+            @Override
+            public Iterator<String> iterator() {
+                return new Iterator<String>() {
+                    private int next;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < size;
+                    }
+
+                    @Override
+                    public String next() {
+                        if (next >= size) {
+                            throw new NoSuchElementException();
+                        }
+                        return names[next++];
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Hand the columns and name table to a compiled graph: they are trimmed to size, and the
+     * next write here copies them. Read them with the column accessors below.
+     */
+    void share() {
+        if (names.length != size) {
+            names = Arrays.copyOf(names, size);
+            types = Arrays.copyOf(types, size);
+            xs = Arrays.copyOf(xs, size);
+            ys = Arrays.copyOf(ys, size);
+        }
+        shared = true;
+    }
+
+    String[] nameColumn() {
+        return names;
+    }
+
+    String[] typeColumn() {
+        return types;
+    }
+
+    double[] xColumn() {
+        return xs;
+    }
+
+    double[] yColumn() {
+        return ys;
+    }
+
+    NodeIds ids() {
+        return ids;
+    }
+
+    /**
+     * Make the columns private and large enough for a number of locations before a write
+     */
+    private void unshare(int needed) {
+        int capacity = names.length;
+        if (!shared && needed <= capacity) {
+            return;
+        }
+        if (needed > capacity) {
+            capacity = Math.max(16, Math.max(needed, capacity + (capacity >> 1)));
+        }
+        names = Arrays.copyOf(names, capacity);
+        types = Arrays.copyOf(types, capacity);
+        xs = Arrays.copyOf(xs, capacity);
+        ys = Arrays.copyOf(ys, capacity);
+        if (shared) {
+            ids = ids.copy();
+            shared = false;
+        }
+        if (capacity > neighbors.length) {
+            neighbors = Arrays.copyOf(neighbors, capacity);
+            degrees = Arrays.copyOf(degrees, capacity);
+        }
+    }
+}
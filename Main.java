@@ -1,22 +1,106 @@
+import javax.management.JMException;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
 /**
  * Main executable class for UG Navigate - Optimal Routing Solution
  * Entry point for the University of Ghana Campus Navigation System
  */
 public class Main {
+    private static final int DEFAULT_PORT = 8080;
     
     /**
      * Main method - entry point of the application
-     * @param args Command line arguments
+     * @param args Options then optional map files: nodes.csv edges.csv, map.geojson, or a .graph snapshot.
+     *             --batch[=file] answers newline-delimited route requests from file (or stdin),
+     *             --format=json|csv picks the batch output format, and --serve[=port] starts
+     *             the HTTP endpoint instead of the interactive menu
+     * @throws IOException If a map file cannot be read
      */
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        String batch = null;
+        BatchRouter.Format format = BatchRouter.Format.JSON;
+        int port = -1;
+        List<String> files = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.equals("--batch")) {
+                batch = "-";
+            } else if (arg.startsWith("--batch=")) {
+                batch = arg.substring("--batch=".length());
+            } else if (arg.startsWith("--format=")) {
+                format = BatchRouter.Format.valueOf(arg.substring("--format=".length()).toUpperCase(Locale.ROOT));
+            } else if (arg.equals("--serve")) {
+                port = DEFAULT_PORT;
+            } else if (arg.startsWith("--serve=")) {
+                port = Integer.parseInt(arg.substring("--serve=".length()));
+            } else {
+                files.add(arg);
+            }
+        }
+        
+        if (batch != null) {
+            // Results go to stdout, so the banner and load statistics stay off it
+            Graph graph = files.isEmpty() ? new UGNavigate().getCampusGraph() : loadGraph(files, System.err);
+            BatchRouter router = new BatchRouter(graph, format);
+            Writer out = new OutputStreamWriter(new FileOutputStream(FileDescriptor.out), StandardCharsets.UTF_8);
+            try (Reader in = batch.equals("-")
+                    ? new InputStreamReader(System.in, StandardCharsets.UTF_8)
+                    : Files.newBufferedReader(Path.of(batch), StandardCharsets.UTF_8)) {
+                router.run(in, out);
+            }
+            return;
+        }
+        
         System.out.println("🧭 Starting UG Navigate - Optimal Routing Solution");
         System.out.println("===================================================");
         
+        if (port >= 0) {
+            Graph graph = files.isEmpty() ? new UGNavigate().getCampusGraph() : loadGraph(files, System.out);
+            RoutingService service = new RoutingService(graph);
+            RoutingMetrics metrics = new RoutingMetrics();
+            try {
+                metrics.registerMBeans("ugnavigate");
+            } catch (JMException e) {
+                System.out.println("Metrics not exported over JMX: " + e.getMessage());
+            }
+            service.setMetrics(metrics);
+            RouteServer server = new RouteServer(service, port);
+            server.start();
+            System.out.println("Serving routes on http://localhost:" + server.getPort() + "/route"
+                + " (metrics at /metrics and over JMX)");
+            return;
+        }
+        
         // Create and run the navigation system
-        UGNavigate navigator = new UGNavigate();
+        UGNavigate navigator = files.isEmpty() ? new UGNavigate() : new UGNavigate(loadGraph(files, System.out));
         navigator.getUserInput();
         
         System.out.println("\n🎯 Thank you for using UG Navigate!");
         System.out.println("Safe travels on campus!");
     }
+    
+    /**
+     * Load a map from the command line files
+     * @param files nodes.csv edges.csv, map.geojson, or a .graph snapshot
+     * @param log Where to report load statistics
+     * @return The loaded graph
+     * @throws IOException If a map file cannot be read
+     */
+    private static Graph loadGraph(List<String> files, PrintStream log) throws IOException {
+        GraphLoader loader = new GraphLoader();
+        Graph graph;
+        if (files.size() > 1) {
+            graph = loader.loadCsv(Path.of(files.get(0)), Path.of(files.get(1)));
+            log.println("Loaded map: " + loader.getLastStats());
+        } else if (files.get(0).endsWith(".graph")) {
+            graph = MappedGraph.open(Path.of(files.get(0))).toGraph();
+        } else {
+            graph = loader.loadGeoJson(Path.of(files.get(0)));
+            log.println("Loaded map: " + loader.getLastStats());
+        }
+        return graph;
+    }
 }
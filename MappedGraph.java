@@ -0,0 +1,461 @@
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * MappedGraph class - a graph snapshot file served straight from a memory mapping.
+ * Opening a snapshot reads only the fixed header; names, coordinates and adjacency are
+ * read from the mapped pages on demand, so a large map costs no heap beyond the objects
+ * a caller actually asks for.
+ *
+ * File layout (little-endian, every section starts at the offset recorded in the header):
+ *   int magic, int format version, int node count n, int directed edge count m,
+ *   int string count s, int hash slot count h, int path override count p, then long
+ *   offsets of the sections
+ *   double[n] x, double[n] y, double[m] edge weights,
+ *   int[n + 1] CSR offsets, int[m] edge targets, int[n] type string ids,
+ *   int[s + 1] string offsets into the pool, int[h] name hash slots (node id + 1, 0 = empty),
+ *   UTF-8 string pool: strings 0 .. n-1 are node names, the rest are the distinct types,
+ *   p path overrides, one per path with a set length, a closure or attributes: int source,
+ *   int destination, double set length (NaN if none), int flags, double grade,
+ *   int closed-from minute, int closed-until minute.
+ *
+ * The edge weights already include set lengths and closures; the overrides let toGraph
+ * restore them so that later edits and path queries agree with routing.
+ */
+public final class MappedGraph {
+    private static final int MAGIC = 0x55474753; // "UGGS"
+    private static final int FORMAT_VERSION = 2; // 2: path overrides section
+    private static final int SECTIONS = 10;
+    private static final int HEADER_BYTES = 28 + SECTIONS * Long.BYTES;
+    private static final int OVERRIDE_BYTES = 36;
+    // Path override flags
+    private static final int CLOSED = 1;
+    private static final int ATTRIBUTED = 2;
+    private static final int STAIRS = 4;
+    private static final int COVERED = 8;
+
+    private final MappedByteBuffer buffer;
+    private final int nodeCount;
+    private final int edgeCount;
+    private final int hashMask;
+    private final int xStart;
+    private final int yStart;
+    private final int weightStart;
+    private final int offsetStart;
+    private final int targetStart;
+    private final int typeStart;
+    private final int stringStart;
+    private final int hashStart;
+    private final int poolStart;
+    private final int overrideCount;
+    private final int overrideStart;
+
+    private MappedGraph(MappedByteBuffer buffer, int nodeCount, int edgeCount, int hashSlots, int overrideCount,
+                        long[] sections) {
+        this.buffer = buffer;
+        this.nodeCount = nodeCount;
+        this.edgeCount = edgeCount;
+        this.hashMask = hashSlots - 1;
+        this.xStart = (int) sections[0];
+        this.yStart = (int) sections[1];
+        this.weightStart = (int) sections[2];
+        this.offsetStart = (int) sections[3];
+        this.targetStart = (int) sections[4];
+        this.typeStart = (int) sections[5];
+        this.stringStart = (int) sections[6];
+        this.hashStart = (int) sections[7];
+        this.poolStart = (int) sections[8];
+        this.overrideCount = overrideCount;
+        this.overrideStart = (int) sections[9];
+    }
+
+    /**
+     * Write a snapshot of a graph, including set path lengths, closures and path attributes
+     * @param graph The graph to save
+     * @param file The file to write (replaced if it exists)
+     * @throws IOException If the file cannot be written
+     */
+    public static void write(Graph graph, Path file) throws IOException {
+        CompactGraph compiled = graph.compile();
+        List<int[]> overridden = new ArrayList<>(); // source, destination pairs, source < destination
+        if (graph.hasPathOverrides()) {
+            for (int u = 0; u < compiled.nodeCount(); u++) {
+                for (int e = compiled.edgeStart(u); e < compiled.edgeEnd(u); e++) {
+                    int v = compiled.edgeTarget(e);
+                    String source = compiled.name(u);
+                    String destination = compiled.name(v);
+                    if (u < v && (graph.isPathClosed(source, destination)
+                            || !Double.isNaN(graph.setPathLengthOf(source, destination))
+                            || graph.getPathAttributes(source, destination) != PathAttributes.DEFAULT)) {
+                        overridden.add(new int[] {u, v});
+                    }
+                }
+            }
+        }
+        write(graph, compiled, overridden, file);
+    }
+
+    private static void write(Graph owner, CompactGraph graph, List<int[]> overridden, Path file) throws IOException {
+        int n = graph.nodeCount();
+        int m = graph.edgeCount();
+        int p = overridden.size();
+
+        // String table: node names first, then each distinct type once
+        List<byte[]> strings = new ArrayList<>(n + 16);
+        Map<String, Integer> typeIds = new HashMap<>();
+        int[] nodeTypes = new int[n];
+        for (int u = 0; u < n; u++) {
+            strings.add(graph.name(u).getBytes(StandardCharsets.UTF_8));
+        }
+        for (int u = 0; u < n; u++) {
+            String type = graph.type(u) == null ? "" : graph.type(u);
+            Integer id = typeIds.get(type);
+            if (id == null) {
+                id = strings.size();
+                typeIds.put(type, id);
+                strings.add(type.getBytes(StandardCharsets.UTF_8));
+            }
+            nodeTypes[u] = id;
+        }
+        long poolBytes = 0;
+        for (byte[] s : strings) {
+            poolBytes += s.length;
+        }
+        int hashSlots = Integer.highestOneBit(Math.max(2, n * 2 - 1)) << 1;
+
+        long[] sections = new long[SECTIONS];
+        long position = HEADER_BYTES;
+        sections[0] = position; position += (long) n * Double.BYTES;
+        sections[1] = position; position += (long) n * Double.BYTES;
+        sections[2] = position; position += (long) m * Double.BYTES;
+        sections[3] = position; position += (long) (n + 1) * Integer.BYTES;
+        sections[4] = position; position += (long) m * Integer.BYTES;
+        sections[5] = position; position += (long) n * Integer.BYTES;
+        sections[6] = position; position += (long) (strings.size() + 1) * Integer.BYTES;
+        sections[7] = position; position += (long) hashSlots * Integer.BYTES;
+        sections[8] = position; position += poolBytes;
+        sections[9] = position; position += (long) p * OVERRIDE_BYTES;
+        if (position > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Graph too large for a single snapshot mapping: " + position + " bytes");
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, position);
+            out.order(ByteOrder.LITTLE_ENDIAN);
+            out.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(n).putInt(m)
+               .putInt(strings.size()).putInt(hashSlots).putInt(p);
+            for (long section : sections) {
+                out.putLong(section);
+            }
+
+            for (int u = 0; u < n; u++) {
+                out.putDouble((int) sections[0] + u * Double.BYTES, graph.x(u));
+                out.putDouble((int) sections[1] + u * Double.BYTES, graph.y(u));
+                out.putInt((int) sections[3] + u * Integer.BYTES, graph.edgeStart(u));
+                out.putInt((int) sections[5] + u * Integer.BYTES, nodeTypes[u]);
+            }
+            out.putInt((int) sections[3] + n * Integer.BYTES, m);
+            for (int e = 0; e < m; e++) {
+                out.putDouble((int) sections[2] + e * Double.BYTES, graph.edgeWeight(e));
+                out.putInt((int) sections[4] + e * Integer.BYTES, graph.edgeTarget(e));
+            }
+
+            int offset = 0;
+            out.position((int) sections[8]);
+            for (int i = 0; i < strings.size(); i++) {
+                out.putInt((int) sections[6] + i * Integer.BYTES, offset);
+                out.put(strings.get(i));
+                offset += strings.get(i).length;
+            }
+            out.putInt((int) sections[6] + strings.size() * Integer.BYTES, offset);
+
+            int mask = hashSlots - 1;
+            for (int u = 0; u < n; u++) {
+                int slot = hash(strings.get(u)) & mask;
+                while (out.getInt((int) sections[7] + slot * Integer.BYTES) != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                out.putInt((int) sections[7] + slot * Integer.BYTES, u + 1);
+            }
+
+            out.position((int) sections[9]);
+            for (int[] path : overridden) {
+                String source = graph.name(path[0]);
+                String destination = graph.name(path[1]);
+                PathAttributes attributes = owner.getPathAttributes(source, destination);
+                boolean attributed = attributes != PathAttributes.DEFAULT;
+                int flags = (owner.isPathClosed(source, destination) ? CLOSED : 0)
+                    | (attributed ? ATTRIBUTED : 0)
+                    | (attributes.hasStairs() ? STAIRS : 0)
+                    | (attributes.isCovered() ? COVERED : 0);
+                out.putInt(path[0]).putInt(path[1])
+                   .putDouble(owner.setPathLengthOf(source, destination))
+                   .putInt(flags)
+                   .putDouble(attributes.getGrade())
+                   .putInt(attributes.getClosedFrom())
+                   .putInt(attributes.getClosedUntil());
+            }
+            out.force();
+        }
+    }
+
+    /**
+     * Offline stage: write a snapshot of the campus map or of a map loaded from files
+     * @param args Output file, then optionally nodes.csv edges.csv or map.geojson
+     * @throws IOException If a file cannot be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        Path file = Path.of(args.length > 0 ? args[0] : "campus.graph");
+        GraphLoader loader = new GraphLoader();
+        Graph graph;
+        if (args.length > 2) {
+            graph = loader.loadCsv(Path.of(args[1]), Path.of(args[2]));
+        } else if (args.length == 2) {
+            graph = loader.loadGeoJson(Path.of(args[1]));
+        } else {
+            graph = new UGNavigate().getCampusGraph();
+        }
+        long start = System.nanoTime();
+        write(graph, file);
+        System.out.printf("Wrote %d-location snapshot to %s in %.1f ms%n", graph.getLocationCount(),
+            file, (System.nanoTime() - start) / 1e6);
+    }
+
+    /**
+     * Map a snapshot file into memory
+     * @param file The file written by write
+     * @return The mapped graph
+     * @throws IOException If the file cannot be read or is not a graph snapshot
+     */
+    public static MappedGraph open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("Not a graph snapshot file: " + file);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.getInt(0) != MAGIC) {
+                throw new IOException("Not a graph snapshot file: " + file);
+            }
+            int version = buffer.getInt(4);
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported graph snapshot version " + version + " in " + file);
+            }
+            int n = buffer.getInt(8);
+            int m = buffer.getInt(12);
+            int hashSlots = buffer.getInt(20);
+            int overrideCount = buffer.getInt(24);
+            long[] sections = new long[SECTIONS];
+            for (int i = 0; i < sections.length; i++) {
+                sections[i] = buffer.getLong(28 + i * Long.BYTES);
+                if (sections[i] < HEADER_BYTES || sections[i] > size) {
+                    throw new IOException("Corrupt graph snapshot header in " + file);
+                }
+            }
+            // The mapping stays valid after the channel is closed
+            if (sections[9] + (long) overrideCount * OVERRIDE_BYTES > size) {
+                throw new IOException("Corrupt graph snapshot header in " + file);
+            }
+            return new MappedGraph(buffer, n, m, hashSlots, overrideCount, sections);
+        }
+    }
+
+    /**
+     * Get the number of nodes
+     * @return Number of nodes
+     */
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Get the number of directed edges (each bidirectional path counts twice)
+     * @return Number of directed edges
+     */
+    public int edgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * Get the id of a node by location name, probing the on-file hash table
+     * @param name The location name
+     * @return The node id, or -1 if not present or name is null
+     */
+    public int indexOf(String name) {
+        if (name == null) {
+            return -1;
+        }
+        byte[] key = name.getBytes(StandardCharsets.UTF_8);
+        int slot = hash(key) & hashMask;
+        while (true) {
+            int entry = buffer.getInt(hashStart + slot * Integer.BYTES);
+            if (entry == 0) {
+                return -1;
+            }
+            if (stringEquals(entry - 1, key)) {
+                return entry - 1;
+            }
+            slot = (slot + 1) & hashMask;
+        }
+    }
+
+    public String name(int node) {
+        return string(node);
+    }
+
+    public String type(int node) {
+        return string(buffer.getInt(typeStart + node * Integer.BYTES));
+    }
+
+    public double x(int node) {
+        return buffer.getDouble(xStart + node * Double.BYTES);
+    }
+
+    public double y(int node) {
+        return buffer.getDouble(yStart + node * Double.BYTES);
+    }
+
+    public int edgeStart(int node) {
+        return buffer.getInt(offsetStart + node * Integer.BYTES);
+    }
+
+    public int edgeEnd(int node) {
+        return buffer.getInt(offsetStart + (node + 1) * Integer.BYTES);
+    }
+
+    public int edgeTarget(int edge) {
+        return buffer.getInt(targetStart + edge * Integer.BYTES);
+    }
+
+    public double edgeWeight(int edge) {
+        return buffer.getDouble(weightStart + edge * Double.BYTES);
+    }
+
+    /**
+     * Check if a location exists
+     * @param locationName The name of the location
+     * @return true if location exists, false otherwise
+     */
+    public boolean locationExists(String locationName) {
+        return indexOf(locationName) >= 0;
+    }
+
+    /**
+     * Get a location by name, built from the mapped record
+     * @param locationName The name of the location
+     * @return The location object or null if not found
+     */
+    public Location getLocation(String locationName) {
+        int node = indexOf(locationName);
+        return node < 0 ? null : new Location(locationName, type(node), x(node), y(node));
+    }
+
+    /**
+     * Get neighbors of a location
+     * @param locationName The name of the location
+     * @return List of neighboring location names
+     */
+    public List<String> getNeighbors(String locationName) {
+        int node = indexOf(locationName);
+        if (node < 0) {
+            return new ArrayList<>();
+        }
+        int start = edgeStart(node);
+        int end = edgeEnd(node);
+        List<String> neighbors = new ArrayList<>(end - start);
+        for (int e = start; e < end; e++) {
+            neighbors.add(name(edgeTarget(e)));
+        }
+        return neighbors;
+    }
+
+    /**
+     * Get the number of locations in the graph
+     * @return Number of locations
+     */
+    public int getLocationCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Copy the snapshot onto the heap as an editable Graph (for route searches and edits)
+     * @return A new Graph with the same locations and paths, including set path lengths,
+     *         closures and path attributes
+     */
+    public Graph toGraph() {
+        int n = nodeCount;
+        int m = edgeCount;
+        String[] names = new String[n];
+        String[] types = new String[n];
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        int[] offsets = new int[n + 1];
+        int[] targets = new int[m];
+        double[] weights = new double[m];
+        Map<Integer, String> typeNames = new HashMap<>();
+        for (int u = 0; u < n; u++) {
+            names[u] = name(u);
+            types[u] = typeNames.computeIfAbsent(buffer.getInt(typeStart + u * Integer.BYTES), this::string);
+            xs[u] = x(u);
+            ys[u] = y(u);
+            offsets[u] = edgeStart(u);
+        }
+        offsets[n] = m;
+        for (int e = 0; e < m; e++) {
+            targets[e] = edgeTarget(e);
+            weights[e] = edgeWeight(e);
+        }
+        Graph graph = new Graph(new CompactGraph(names, types, xs, ys, offsets, targets, weights));
+        for (int i = 0; i < overrideCount; i++) {
+            int record = overrideStart + i * OVERRIDE_BYTES;
+            int flags = buffer.getInt(record + 16);
+            PathAttributes attributes = (flags & ATTRIBUTED) == 0 ? null : new PathAttributes(
+                (flags & STAIRS) != 0, (flags & COVERED) != 0, buffer.getDouble(record + 20),
+                buffer.getInt(record + 28), buffer.getInt(record + 32));
+            graph.restorePath(names[buffer.getInt(record)], names[buffer.getInt(record + 4)],
+                buffer.getDouble(record + 8), (flags & CLOSED) != 0, attributes);
+        }
+        return graph;
+    }
+
+    private String string(int id) {
+        int start = buffer.getInt(stringStart + id * Integer.BYTES);
+        int end = buffer.getInt(stringStart + (id + 1) * Integer.BYTES);
+        byte[] bytes = new byte[end - start];
+        buffer.get(poolStart + start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private boolean stringEquals(int id, byte[] key) {
+        int start = buffer.getInt(stringStart + id * Integer.BYTES);
+        int end = buffer.getInt(stringStart + (id + 1) * Integer.BYTES);
+        if (end - start != key.length) {
+            return false;
+        }
+        for (int i = 0; i < key.length; i++) {
+            if (buffer.get(poolStart + start + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * FNV-1a over the UTF-8 bytes of a name (part of the file format)
+     */
+    private static int hash(byte[] bytes) {
+        int h = 0x811c9dc5;
+        for (byte b : bytes) {
+            h = (h ^ (b & 0xff)) * 0x01000193;
+        }
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,658 @@
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * MultiLevelOverlay class - customizable route planning over a graph partitioned into nested cells.
+ *
+ * Partitioning depends only on coordinates and topology: the nodes are bisected recursively,
+ * each set split at the median along whichever of four directions (x, y and the two
+ * diagonals, as in inertial flow) cuts the fewest paths. The leaves of the bisection are the
+ * level-1 cells; every level above merges 2^LEVEL_BITS cells of the level below. A boundary
+ * node of a level has a path leaving its cell on that level.
+ *
+ * Customization then computes, for every cell, the shortest distances between its boundary
+ * nodes while staying inside it (a clique), from the graph on level 1 and from the cliques of
+ * the level below on higher levels. Cells of a level are customized in parallel on the common
+ * fork-join pool. After a path's length changes only the cells containing both its ends are
+ * customized again, one per level.
+ *
+ * A query is a bidirectional Dijkstra that uses the original paths inside the source's and
+ * target's level-1 cells and, elsewhere, the cliques of the highest level whose cell holds
+ * neither; clique edges are unpacked by searching inside their cell. Paths are undirected, so
+ * one clique serves both search directions.
+ */
+public final class MultiLevelOverlay {
+    static final int DEFAULT_CELL_SIZE = 128;
+    private static final int LEVEL_BITS = 3;
+    // A level with fewer cells than this costs more in clique size than it saves in a query
+    private static final int MIN_CELLS = 16;
+    private static final double[][] DIRECTIONS = {{1, 0}, {0, 1}, {1, 1}, {1, -1}};
+
+    private final CompactGraph graph;
+    private final int cellSize;
+    private final int depth; // bisection depth of the level-1 cells
+    private final int levels;
+    private final int[] leafCell; // level-1 cell of each node; higher levels drop LEVEL_BITS per level
+    // The arrays below are indexed by level, 1 .. levels
+    private final int[][] boundaryStart; // boundary nodes of cell c are boundaryNodes[boundaryStart[c] ..]
+    private final int[][] boundaryNodes;
+    private final int[][] slot; // position of a node among its cell's boundary nodes, -1 if inside the cell
+    private final double[][][] cliques; // per cell, row-major distances between its boundary nodes
+    private final ThreadLocal<Search> searches;
+
+    private MultiLevelOverlay(CompactGraph graph, int cellSize, int depth, int[] leafCell,
+                              int[][] boundaryStart, int[][] boundaryNodes, int[][] slot,
+                              double[][][] cliques, ThreadLocal<Search> searches) {
+        this.graph = graph;
+        this.cellSize = cellSize;
+        this.depth = depth;
+        this.levels = boundaryStart.length - 1;
+        this.leafCell = leafCell;
+        this.boundaryStart = boundaryStart;
+        this.boundaryNodes = boundaryNodes;
+        this.slot = slot;
+        this.cliques = cliques;
+        this.searches = searches;
+    }
+
+    /**
+     * Partition and customize a graph
+     * @param graph The graph to partition
+     * @return The customized overlay, with level-1 cells of at most DEFAULT_CELL_SIZE locations
+     */
+    public static MultiLevelOverlay build(Graph graph) {
+        return build(graph.compile(), DEFAULT_CELL_SIZE);
+    }
+
+    /**
+     * Partition and customize a compiled graph
+     * @param graph The compiled graph
+     * @param cellSize Most locations in a level-1 cell
+     * @return The customized overlay
+     */
+    static MultiLevelOverlay build(CompactGraph graph, int cellSize) {
+        if (cellSize < 1) {
+            throw new IllegalArgumentException("Cell size must be positive: " + cellSize);
+        }
+        int n = graph.nodeCount();
+        int depth = 0;
+        while ((long) cellSize << depth < n) {
+            depth++;
+        }
+        int[] leafCell = partition(graph, depth);
+        int levels = depth == 0 ? 0 : 1;
+        while ((depth - LEVEL_BITS * levels) >= 0 && 1 << (depth - LEVEL_BITS * levels) >= MIN_CELLS) {
+            levels++;
+        }
+        int[][] boundaryStart = new int[levels + 1][];
+        int[][] boundaryNodes = new int[levels + 1][];
+        int[][] slot = new int[levels + 1][];
+        double[][][] cliques = new double[levels + 1][][];
+        MultiLevelOverlay overlay = new MultiLevelOverlay(graph, cellSize, depth, leafCell, boundaryStart,
+            boundaryNodes, slot, cliques, ThreadLocal.withInitial(() -> new Search(n)));
+        for (int level = 1; level <= levels; level++) {
+            overlay.findBoundary(level);
+            cliques[level] = new double[overlay.cellCount(level)][];
+            ForkJoinPool.commonPool().invoke(overlay.new Customize(level, 0, cliques[level].length));
+        }
+        return overlay;
+    }
+
+    /**
+     * Copy of this overlay after a path's length changed, sharing the partition and every
+     * clique except those of the cells holding both ends of the path
+     * @param source One end of the path
+     * @param destination The other end
+     * @param length The new length, in both directions (Double.POSITIVE_INFINITY if closed or removed)
+     * @return The re-customized overlay, or this overlay if either location is unknown
+     */
+    MultiLevelOverlay withPathLength(String source, String destination, double length) {
+        int a = graph.indexOf(source);
+        int b = graph.indexOf(destination);
+        if (a < 0 || b < 0) {
+            return this;
+        }
+        double[][][] patched = cliques.clone();
+        MultiLevelOverlay overlay = new MultiLevelOverlay(graph.withPathLength(a, b, length), cellSize, depth,
+            leafCell, boundaryStart, boundaryNodes, slot, patched, searches);
+        // Below the first level whose cell holds both ends the path is between cells and read
+        // directly; from there up, lower levels first, since a clique is built on the level below
+        for (int level = 1; level <= levels; level++) {
+            if (cell(level, a) == cell(level, b)) {
+                patched[level] = patched[level].clone();
+                patched[level][cell(level, a)] = overlay.customize(level, cell(level, a));
+            }
+        }
+        return overlay;
+    }
+
+    /**
+     * Get the compiled graph this overlay was customized for
+     * @return The compiled graph, including any path lengths applied since partitioning
+     */
+    CompactGraph graph() {
+        return graph;
+    }
+
+    /**
+     * Get the number of cell levels above the locations themselves
+     * @return Number of levels, 0 if the graph fits in one cell
+     */
+    public int levelCount() {
+        return levels;
+    }
+
+    /**
+     * Get the number of cells on a level
+     * @param level Level, 1 .. levelCount()
+     * @return Number of cells
+     */
+    public int cellCount(int level) {
+        return 1 << (depth - LEVEL_BITS * (level - 1));
+    }
+
+    /**
+     * Get the number of boundary nodes on a level
+     * @param level Level, 1 .. levelCount()
+     * @return Locations with a path leaving their cell on that level
+     */
+    public int boundaryNodeCount(int level) {
+        return boundaryNodes[level].length;
+    }
+
+    /**
+     * Memory taken by the cliques of all levels
+     * @return Approximate size in bytes
+     */
+    public long getCliqueBytes() {
+        long bytes = 0;
+        for (int level = 1; level <= levels; level++) {
+            for (double[] clique : cliques[level]) {
+                bytes += 16 + 8L * clique.length;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Find the shortest path between two locations
+     * @param source The starting location name
+     * @param destination The destination location name
+     * @return List of location names representing the shortest path (empty if no path found)
+     */
+    public List<String> findShortestPath(String source, String destination) {
+        Route route = findShortestRoute(source, destination);
+        return route == null ? new ArrayList<>() : new ArrayList<>(route.getNames());
+    }
+
+    /**
+     * Find the shortest route between two locations
+     * @param source The starting location name
+     * @param destination The destination location name
+     * @return The shortest route, or null if either location is unknown or no path exists
+     */
+    public Route findShortestRoute(String source, String destination) {
+        int from = graph.indexOf(source);
+        int to = graph.indexOf(destination);
+        if (from < 0 || to < 0) {
+            return null;
+        }
+        if (from == to) {
+            return new Route(graph, new int[] {from}, new double[] {0.0}, -1);
+        }
+        Search search = searches.get();
+        if (query(search, from, to) == Double.MAX_VALUE) {
+            return null;
+        }
+        int count = unpack(search, from, to);
+        int[] nodes = Arrays.copyOf(search.path, count);
+        double[] prefix = new double[count];
+        for (int i = 1; i < count; i++) {
+            prefix[i] = prefix[i - 1] + graph.pathLength(nodes[i - 1], nodes[i]);
+        }
+        return new Route(graph, nodes, prefix, -1);
+    }
+
+    /**
+     * Shortest distance between two locations, without unpacking the path
+     * @param source The starting location name
+     * @param destination The destination location name
+     * @return The distance, or Double.MAX_VALUE if either is unknown or they are not connected
+     */
+    public double getDistance(String source, String destination) {
+        int from = graph.indexOf(source);
+        int to = graph.indexOf(destination);
+        if (from < 0 || to < 0) {
+            return Double.MAX_VALUE;
+        }
+        return from == to ? 0.0 : query(searches.get(), from, to);
+    }
+
+    /**
+     * Get the number of nodes settled by the last query on the calling thread
+     * @return Nodes settled, both directions combined (searches unpacking the path not counted)
+     */
+    public int getLastNodesSettled() {
+        return searches.get().settled;
+    }
+
+    private int cell(int level, int node) {
+        return leafCell[node] >>> (LEVEL_BITS * (level - 1));
+    }
+
+    /**
+     * Recursive median bisection to the given depth
+     * @return The leaf set of each node, in bisection order
+     */
+    private static int[] partition(CompactGraph graph, int depth) {
+        int n = graph.nodeCount();
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        int[] set = new int[n];
+        int[] rank = new int[n];
+        int[] start = {0, n};
+        for (int d = 0; d < depth; d++) {
+            int sets = start.length - 1;
+            int[] next = new int[sets * 2 + 1];
+            next[sets * 2] = n;
+            ForkJoinPool.commonPool().invoke(new Bisect(graph, order, set, rank, start, next, 0, sets));
+            // Only now that every set is split may the set ids change
+            for (int s = 0; s < sets * 2; s++) {
+                for (int i = next[s]; i < next[s + 1]; i++) {
+                    set[order[i]] = s;
+                }
+            }
+            start = next;
+        }
+        return set;
+    }
+
+    /**
+     * Split order[from .. to) at its median along the direction cutting the fewest paths,
+     * leaving it sorted along that direction
+     */
+    private static void bisect(CompactGraph graph, int[] order, int[] set, int[] rank, int from, int to) {
+        int size = to - from;
+        if (size < 2) {
+            return;
+        }
+        int mid = from + size / 2;
+        int id = set[order[from]];
+        long[] keyed = new long[size];
+        long[] best = null;
+        long fewest = Long.MAX_VALUE;
+        for (double[] direction : DIRECTIONS) {
+            for (int i = 0; i < size; i++) {
+                int node = order[from + i];
+                int bits = Float.floatToIntBits((float) (graph.x(node) * direction[0] + graph.y(node) * direction[1]));
+                // Order-preserving key in the high half, node id in the low half
+                keyed[i] = (long) (bits ^ ((bits >> 31) & 0x7fffffff)) << 32 | node;
+            }
+            Arrays.sort(keyed);
+            for (int i = 0; i < size; i++) {
+                rank[(int) keyed[i]] = from + i;
+            }
+            long cut = 0;
+            for (int i = 0; i < size / 2; i++) {
+                int node = (int) keyed[i];
+                for (int e = graph.edgeStart(node); e < graph.edgeEnd(node); e++) {
+                    int next = graph.edgeTarget(e);
+                    if (set[next] == id && rank[next] >= mid) {
+                        cut++;
+                    }
+                }
+            }
+            if (cut < fewest) {
+                fewest = cut;
+                best = keyed.clone();
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            order[from + i] = (int) best[i];
+        }
+    }
+
+    /**
+     * Collect the boundary nodes of every cell on a level
+     */
+    private void findBoundary(int level) {
+        int n = graph.nodeCount();
+        int cells = cellCount(level);
+        int[] levelSlot = new int[n];
+        int[] start = new int[cells + 1];
+        Arrays.fill(levelSlot, -1);
+        for (int node = 0; node < n; node++) {
+            int here = cell(level, node);
+            for (int e = graph.edgeStart(node); e < graph.edgeEnd(node); e++) {
+                if (cell(level, graph.edgeTarget(e)) != here) {
+                    levelSlot[node] = start[here + 1]++;
+                    break;
+                }
+            }
+        }
+        for (int c = 0; c < cells; c++) {
+            start[c + 1] += start[c];
+        }
+        int[] nodes = new int[start[cells]];
+        for (int node = 0; node < n; node++) {
+            if (levelSlot[node] >= 0) {
+                nodes[start[cell(level, node)] + levelSlot[node]] = node;
+            }
+        }
+        boundaryStart[level] = start;
+        boundaryNodes[level] = nodes;
+        slot[level] = levelSlot;
+    }
+
+    /**
+     * Distances between the boundary nodes of one cell, staying inside it
+     * @return Row-major matrix, Double.POSITIVE_INFINITY where the cell does not connect them
+     */
+    private double[] customize(int level, int cell) {
+        int from = boundaryStart[level][cell];
+        int count = boundaryStart[level][cell + 1] - from;
+        double[] clique = new double[count * count];
+        Search search = searches.get();
+        for (int i = 0; i < count; i++) {
+            searchCell(search, level, cell, boundaryNodes[level][from + i], -1);
+            for (int j = 0; j < count; j++) {
+                int node = boundaryNodes[level][from + j];
+                clique[i * count + j] = search.reachedStamp[0][node] == search.generation
+                    ? search.distance[0][node] : Double.POSITIVE_INFINITY;
+            }
+        }
+        return clique;
+    }
+
+    /**
+     * Dijkstra inside one cell over the level below it: the graph for a level-1 cell, else the
+     * cliques of its subcells and the paths between them
+     * @param target Node to stop at, or -1 to stop once every boundary node of the cell is settled
+     */
+    private void searchCell(Search search, int level, int cell, int source, int target) {
+        search.begin(false);
+        search.start(0, source);
+        int remaining = boundaryStart[level][cell + 1] - boundaryStart[level][cell];
+        IndexedMinHeap heap = search.heaps[0];
+        while (!heap.isEmpty()) {
+            int node = heap.pop();
+            if (node == target || target < 0 && slot[level][node] >= 0 && --remaining == 0) {
+                break;
+            }
+            expand(search, 0, node, level - 1, level, cell);
+        }
+        heap.clear();
+    }
+
+    /**
+     * Bidirectional search over the overlay
+     * @return The shortest distance, or Double.MAX_VALUE if not connected
+     */
+    private double query(Search search, int source, int target) {
+        search.begin(true);
+        search.settled = 0;
+        search.start(0, source);
+        search.start(1, target);
+        IndexedMinHeap forward = search.heaps[0];
+        IndexedMinHeap backward = search.heaps[1];
+        while (true) {
+            double forwardKey = forward.isEmpty() ? Double.MAX_VALUE : forward.peekKey();
+            double backwardKey = backward.isEmpty() ? Double.MAX_VALUE : backward.peekKey();
+            if (forwardKey + backwardKey >= search.best) {
+                break;
+            }
+            int side = forwardKey <= backwardKey ? 0 : 1;
+            int node = search.heaps[side].pop();
+            search.settled++;
+            expand(search, side, node, queryLevel(node, source, target), 0, 0);
+        }
+        forward.clear();
+        backward.clear();
+        return search.best;
+    }
+
+    /**
+     * Highest level on which a node's cell holds neither end of the query
+     */
+    private int queryLevel(int node, int source, int target) {
+        int level = levels;
+        while (level > 0 && (slot[level][node] < 0 || cell(level, node) == cell(level, source)
+                || cell(level, node) == cell(level, target))) {
+            level--;
+        }
+        return level;
+    }
+
+    /**
+     * Relax the edges of a node on a level: the clique of its cell there (none on level 0)
+     * and the paths leaving that cell, optionally only those staying inside an enclosing cell
+     * @param boundLevel Level of the enclosing cell, 0 for none
+     */
+    private void expand(Search search, int side, int node, int level, int boundLevel, int boundCell) {
+        double base = search.distance[side][node];
+        int here = 0;
+        if (level > 0) {
+            here = cell(level, node);
+            int from = boundaryStart[level][here];
+            int count = boundaryStart[level][here + 1] - from;
+            double[] clique = cliques[level][here];
+            int own = slot[level][node];
+            for (int j = 0; j < count; j++) {
+                double weight = clique[own * count + j];
+                if (j != own && weight != Double.POSITIVE_INFINITY) {
+                    relax(search, side, boundaryNodes[level][from + j], base + weight, node, level);
+                }
+            }
+        }
+        for (int e = graph.edgeStart(node); e < graph.edgeEnd(node); e++) {
+            int next = graph.edgeTarget(e);
+            double weight = graph.edgeWeight(e);
+            if (weight == Double.POSITIVE_INFINITY || level > 0 && cell(level, next) == here
+                    || boundLevel > 0 && cell(boundLevel, next) != boundCell) {
+                continue;
+            }
+            relax(search, side, next, base + weight, node, 0);
+        }
+    }
+
+    private static void relax(Search search, int side, int node, double candidate, int from, int level) {
+        int generation = search.generation;
+        if (search.reachedStamp[side][node] != generation || candidate < search.distance[side][node]) {
+            search.reachedStamp[side][node] = generation;
+            search.distance[side][node] = candidate;
+            search.parent[side][node] = from;
+            search.parentLevel[side][node] = (byte) level;
+            search.heaps[side].push(node, candidate);
+        }
+        if (search.bidirectional && search.reachedStamp[1 - side][node] == generation) {
+            double total = candidate + search.distance[1 - side][node];
+            if (total < search.best) {
+                search.best = total;
+                search.meeting = node;
+            }
+        }
+    }
+
+    /**
+     * Expand the last query's path into original paths
+     * @return Number of nodes written to search.path, source first
+     */
+    private int unpack(Search search, int source, int target) {
+        // Pending hops (node, level of the edge reaching it), the next hop on top. The backward
+        // half is collected from the meeting node outwards, then turned round.
+        search.pendingSize = 0;
+        for (int node = search.meeting; node != target; node = search.parent[1][node]) {
+            search.pushHop(search.parent[1][node], search.parentLevel[1][node]);
+        }
+        search.reverseHops();
+        for (int node = search.meeting; node != source; node = search.parent[0][node]) {
+            search.pushHop(node, search.parentLevel[0][node]);
+        }
+        int count = 0;
+        search.path[count++] = source;
+        int current = source;
+        while (search.pendingSize > 0) {
+            int level = search.pending[--search.pendingSize];
+            int node = search.pending[--search.pendingSize];
+            if (level == 0) {
+                if (count == search.path.length) {
+                    search.path = Arrays.copyOf(search.path, count * 2);
+                }
+                search.path[count++] = node;
+                current = node;
+                continue;
+            }
+            // A clique edge: find its path one level down and push those hops instead
+            searchCell(search, level, cell(level, current), current, node);
+            for (int hop = node; hop != current; hop = search.parent[0][hop]) {
+                search.pushHop(hop, search.parentLevel[0][hop]);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Per-thread search state; the backward arrays are allocated by the first query
+     */
+    private static final class Search {
+        private final double[][] distance = new double[2][];
+        private final int[][] parent = new int[2][];
+        private final byte[][] parentLevel = new byte[2][]; // 0 for a path, else the clique's level
+        private final int[][] reachedStamp = new int[2][];
+        private final IndexedMinHeap[] heaps = new IndexedMinHeap[2];
+        private final int n;
+        private int generation;
+        private boolean bidirectional;
+        private double best;
+        private int meeting;
+        private int settled;
+        private int[] path = new int[16];
+        private int[] pending = new int[32];
+        private int pendingSize;
+
+        Search(int n) {
+            this.n = n;
+            allocate(0);
+        }
+
+        private void allocate(int side) {
+            distance[side] = new double[n];
+            parent[side] = new int[n];
+            parentLevel[side] = new byte[n];
+            reachedStamp[side] = new int[n];
+            heaps[side] = new IndexedMinHeap(n);
+        }
+
+        void begin(boolean bidirectional) {
+            if (bidirectional && heaps[1] == null) {
+                allocate(1);
+            }
+            if (++generation == 0) {
+                for (int[] stamps : reachedStamp) {
+                    if (stamps != null) {
+                        Arrays.fill(stamps, 0);
+                    }
+                }
+                generation = 1;
+            }
+            this.bidirectional = bidirectional;
+            best = Double.MAX_VALUE;
+            meeting = -1;
+        }
+
+        void start(int side, int node) {
+            reachedStamp[side][node] = generation;
+            distance[side][node] = 0.0;
+            parent[side][node] = -1;
+            parentLevel[side][node] = 0;
+            heaps[side].push(node, 0.0);
+        }
+
+        void pushHop(int node, int level) {
+            if (pendingSize + 2 > pending.length) {
+                pending = Arrays.copyOf(pending, pending.length * 2);
+            }
+            pending[pendingSize++] = node;
+            pending[pendingSize++] = level;
+        }
+
+        void reverseHops() {
+            for (int i = 0, j = pendingSize - 2; i < j; i += 2, j -= 2) {
+                int node = pending[i];
+                int level = pending[i + 1];
+                pending[i] = pending[j];
+                pending[i + 1] = pending[j + 1];
+                pending[j] = node;
+                pending[j + 1] = level;
+            }
+        }
+    }
+
+    /**
+     * Fork-join task customizing a range of cells on one level
+     */
+    private final class Customize extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int level;
+        private final int from;
+        private final int to;
+
+        Customize(int level, int from, int to) {
+            this.level = level;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new Customize(level, from, mid), new Customize(level, mid, to));
+                return;
+            }
+            cliques[level][from] = customize(level, from);
+        }
+    }
+
+    /**
+     * Fork-join task bisecting a range of the current sets
+     */
+    private static final class Bisect extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final transient CompactGraph graph;
+        private final int[] order;
+        private final int[] set;
+        private final int[] rank;
+        private final int[] start;
+        private final int[] next;
+        private final int from;
+        private final int to;
+
+        Bisect(CompactGraph graph, int[] order, int[] set, int[] rank, int[] start, int[] next, int from, int to) {
+            this.graph = graph;
+            this.order = order;
+            this.set = set;
+            this.rank = rank;
+            this.start = start;
+            this.next = next;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new Bisect(graph, order, set, rank, start, next, from, mid),
+                          new Bisect(graph, order, set, rank, start, next, mid, to));
+                return;
+            }
+            bisect(graph, order, set, rank, start[from], start[from + 1]);
+            next[from * 2] = start[from];
+            next[from * 2 + 1] = start[from] + (start[from + 1] - start[from]) / 2;
+        }
+    }
+}
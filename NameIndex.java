@@ -0,0 +1,324 @@
+import java.util.*;
+
+/**
+ * NameIndex class - case-folded trie over location names for autocomplete and
+ * typo-tolerant lookup.
+ * Nodes live in parallel arrays (first child / next sibling / label), so the whole index is
+ * a handful of primitive arrays. Fuzzy search walks the trie carrying one row of the
+ * Levenshtein matrix per depth, which simulates a Levenshtein automaton over the trie and
+ * abandons a branch as soon as every cell in its row exceeds the edit budget.
+ * Not thread-safe for writers; concurrent queries on an unchanging index are safe.
+ */
+final class NameIndex {
+    private static final int NONE = -1;
+
+    private char[] labels = new char[64];
+    private int[] firstChild = new int[64];
+    private int[] nextSibling = new int[64];
+    private int[] firstName = new int[64]; // first name ending at the node, chained through nextName
+    private int[] shortest = new int[64]; // fewest characters from the node to a name below it
+    private int[] longest = new int[64]; // most characters from the node to a name below it
+    private int nodeCount = 1; // node 0 is the root
+    private final List<String> names = new ArrayList<>();
+    private int[] nextName = new int[16];
+    private final Set<String> known = new HashSet<>();
+
+    NameIndex() {
+        firstChild[0] = NONE;
+        nextSibling[0] = NONE;
+        firstName[0] = NONE;
+        shortest[0] = Integer.MAX_VALUE;
+        longest[0] = -1;
+    }
+
+    /**
+     * Fold a name or query for matching: trimmed, lower case, runs of whitespace collapsed
+     * @param text The text to fold
+     * @return The folded text
+     */
+    static String fold(String text) {
+        StringBuilder folded = new StringBuilder(text.length());
+        boolean space = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                space = folded.length() > 0;
+            } else {
+                if (space) {
+                    folded.append(' ');
+                    space = false;
+                }
+                folded.append(Character.toLowerCase(c));
+            }
+        }
+        return folded.toString();
+    }
+
+    /**
+     * Get the number of indexed names
+     * @return Number of names
+     */
+    int size() {
+        return names.size();
+    }
+
+    /**
+     * Add a name (ignored if already present)
+     * @param name The location name
+     */
+    void add(String name) {
+        if (!known.add(name)) {
+            return;
+        }
+        String key = fold(name);
+        int node = 0;
+        for (int i = 0; i <= key.length(); i++) {
+            shortest[node] = Math.min(shortest[node], key.length() - i);
+            longest[node] = Math.max(longest[node], key.length() - i);
+            if (i < key.length()) {
+                node = child(node, key.charAt(i), true);
+            }
+        }
+        int id = names.size();
+        names.add(name);
+        if (id == nextName.length) {
+            nextName = Arrays.copyOf(nextName, id * 2);
+        }
+        nextName[id] = firstName[node];
+        firstName[node] = id;
+    }
+
+    /**
+     * Names starting with a prefix, ignoring case; shorter names first
+     * @param prefix The typed prefix
+     * @param limit Maximum number of names to return
+     * @return Matching names
+     */
+    List<String> complete(String prefix, int limit) {
+        List<String> found = new ArrayList<>();
+        String key = fold(prefix);
+        int node = 0;
+        for (int i = 0; i < key.length() && node != NONE; i++) {
+            node = child(node, key.charAt(i), false);
+        }
+        if (node != NONE && limit > 0) {
+            collect(node, limit, found);
+        }
+        return found;
+    }
+
+    /**
+     * Names within an edit distance of a query, ignoring case. An edit is an insertion,
+     * deletion, substitution or swap of two adjacent characters.
+     * @param query The typed name
+     * @param maxEdits Maximum edit distance
+     * @param limit Maximum number of names to return
+     * @return Matching names, closest first, then shorter, then alphabetical
+     */
+    List<String> search(String query, int maxEdits, int limit) {
+        Matches matches = new Matches();
+        new FuzzyWalk(fold(query), maxEdits, false, limit, matches).run();
+        return matches.ranked(limit);
+    }
+
+    /**
+     * Ranked suggestions for what the user may be typing: names that start with the
+     * query, then names whose start is within a small edit distance of it (one edit for
+     * queries of three to five characters, two for longer ones)
+     * @param query The typed text
+     * @param limit Maximum number of names to return
+     * @return Suggested names, best first
+     */
+    List<String> suggest(String query, int limit) {
+        String key = fold(query);
+        int maxEdits = key.length() < 3 ? 0 : key.length() < 6 ? 1 : 2;
+        Matches matches = new Matches();
+        // Widen the edit budget only while closer matches do not fill the list
+        for (int edits = 0; edits <= maxEdits && matches.size() < limit; edits++) {
+            new FuzzyWalk(key, edits, true, limit, matches).run();
+        }
+        return matches.ranked(limit);
+    }
+
+    /**
+     * Collect the names below a node in order of length, shortest first.
+     * Each pass collects the names exactly one character longer than the previous pass and
+     * only enters subtrees whose shortest and longest names bracket that length.
+     */
+    private void collect(int from, int limit, List<String> found) {
+        for (int extra = shortest[from]; extra <= longest[from] && found.size() < limit; extra++) {
+            collect(from, extra, limit, found);
+        }
+    }
+
+    private void collect(int node, int remaining, int limit, List<String> found) {
+        if (remaining == 0) {
+            for (int id = firstName[node]; id != NONE && found.size() < limit; id = nextName[id]) {
+                found.add(names.get(id));
+            }
+            return;
+        }
+        for (int c = firstChild[node]; c != NONE && found.size() < limit; c = nextSibling[c]) {
+            if (shortest[c] < remaining && longest[c] >= remaining - 1) {
+                collect(c, remaining - 1, limit, found);
+            }
+        }
+    }
+
+    private int child(int node, char label, boolean create) {
+        int previous = NONE;
+        for (int c = firstChild[node]; c != NONE; c = nextSibling[c]) {
+            if (labels[c] == label) {
+                return c;
+            }
+            previous = c;
+        }
+        if (!create) {
+            return NONE;
+        }
+        if (nodeCount == labels.length) {
+            int capacity = nodeCount * 2;
+            labels = Arrays.copyOf(labels, capacity);
+            firstChild = Arrays.copyOf(firstChild, capacity);
+            nextSibling = Arrays.copyOf(nextSibling, capacity);
+            firstName = Arrays.copyOf(firstName, capacity);
+            shortest = Arrays.copyOf(shortest, capacity);
+            longest = Arrays.copyOf(longest, capacity);
+        }
+        int created = nodeCount++;
+        labels[created] = label;
+        firstChild[created] = NONE;
+        nextSibling[created] = NONE;
+        firstName[created] = NONE;
+        shortest[created] = Integer.MAX_VALUE;
+        longest[created] = -1;
+        // Append so siblings keep insertion order
+        if (previous == NONE) {
+            firstChild[node] = created;
+        } else {
+            nextSibling[previous] = created;
+        }
+        return created;
+    }
+
+    /**
+     * Depth-first walk of the trie computing one edit-distance row per depth
+     */
+    private final class FuzzyWalk {
+        private final char[] query;
+        private final int maxEdits;
+        private final boolean prefix;
+        private final int limit;
+        private final Matches matches;
+        private int[][] rows;
+        private char[] path;
+
+        FuzzyWalk(String query, int maxEdits, boolean prefix, int limit, Matches matches) {
+            this.query = query.toCharArray();
+            this.maxEdits = maxEdits;
+            this.prefix = prefix;
+            this.limit = limit;
+            this.matches = matches;
+            this.rows = new int[16][query.length() + 1];
+            this.path = new char[16];
+        }
+
+        void run() {
+            if (limit <= 0) {
+                return;
+            }
+            for (int j = 0; j <= query.length; j++) {
+                rows[0][j] = Math.min(j, maxEdits + 1);
+            }
+            visit(0, 0, Integer.MAX_VALUE);
+        }
+
+        /**
+         * @param collected Distance at which an ancestor already collected its names (prefix mode)
+         */
+        private void visit(int node, int depth, int collected) {
+            int[] row = rows[depth];
+            int distance = row[query.length];
+            if (distance <= maxEdits) {
+                if (prefix) {
+                    if (distance < collected) {
+                        // The query matches the start of every name below this node
+                        List<String> below = new ArrayList<>();
+                        collect(node, limit, below);
+                        for (String name : below) {
+                            matches.offer(name, distance);
+                        }
+                        collected = distance;
+                    }
+                    if (distance == 0) {
+                        return; // nothing deeper can match better
+                    }
+                } else {
+                    for (int id = firstName[node]; id != NONE; id = nextName[id]) {
+                        matches.offer(names.get(id), distance);
+                    }
+                }
+            }
+            // Only cells within maxEdits of the diagonal can stay within budget
+            int from = Math.max(0, depth - maxEdits);
+            int to = Math.min(query.length, depth + maxEdits);
+            int best = Integer.MAX_VALUE;
+            for (int j = from; j <= to; j++) {
+                best = Math.min(best, row[j]);
+            }
+            if (best > maxEdits) {
+                return;
+            }
+
+            if (depth + 1 == rows.length) {
+                rows = Arrays.copyOf(rows, rows.length * 2);
+                path = Arrays.copyOf(path, path.length * 2);
+            }
+            if (rows[depth + 1] == null) {
+                rows[depth + 1] = new int[query.length + 1];
+            }
+            int[] next = rows[depth + 1];
+            int over = maxEdits + 1;
+            int lo = Math.max(1, depth + 1 - maxEdits);
+            int hi = Math.min(query.length, depth + 1 + maxEdits);
+            Arrays.fill(next, over);
+            next[0] = Math.min(depth + 1, over);
+            for (int c = firstChild[node]; c != NONE; c = nextSibling[c]) {
+                char label = labels[c];
+                path[depth] = label;
+                for (int j = lo; j <= hi; j++) {
+                    int cost = query[j - 1] == label ? 0 : 1;
+                    int value = Math.min(Math.min(next[j - 1] + 1, row[j] + 1), row[j - 1] + cost);
+                    if (depth > 0 && j > 1 && label == query[j - 2] && path[depth - 1] == query[j - 1]) {
+                        value = Math.min(value, rows[depth - 1][j - 2] + 1); // adjacent swap
+                    }
+                    next[j] = Math.min(value, over);
+                }
+                visit(c, depth + 1, collected);
+            }
+        }
+    }
+
+    /**
+     * Best distance seen per name, ranked on demand
+     */
+    private static final class Matches {
+        private final Map<String, Integer> distances = new HashMap<>();
+
+        int size() {
+            return distances.size();
+        }
+
+        void offer(String name, int distance) {
+            distances.merge(name, distance, Math::min);
+        }
+
+        List<String> ranked(int limit) {
+            List<String> ranked = new ArrayList<>(distances.keySet());
+            ranked.sort(Comparator.<String>comparingInt(distances::get)
+                .thenComparingInt(String::length)
+                .thenComparing(String.CASE_INSENSITIVE_ORDER));
+            return ranked.size() > limit ? new ArrayList<>(ranked.subList(0, limit)) : ranked;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/**
+ * NodeIds class - open-addressing table from location name to node id.
+ * The names themselves live in the caller's name column (index = node id), so the table
+ * holds one long per slot: the name's hash in the high half and id + 1 in the low half,
+ * letting a probe reject most mismatches without touching the String. At most half the
+ * slots are used; probing is linear.
+ */
+final class NodeIds {
+    private long[] slots; // hash << 32 | (id + 1), 0 = empty
+    private int size;
+
+    /**
+     * Constructor for NodeIds
+     * @param expected Number of names to size the table for
+     */
+    NodeIds(int expected) {
+        slots = new long[capacityFor(expected)];
+    }
+
+    private NodeIds(long[] slots, int size) {
+        this.slots = slots;
+        this.size = size;
+    }
+
+    /**
+     * Index a name column
+     * @param names Node names, index = node id; all distinct
+     * @param count Number of names to index
+     * @return The table
+     */
+    static NodeIds of(String[] names, int count) {
+        NodeIds ids = new NodeIds(count);
+        for (int id = 0; id < count; id++) {
+            ids.add(names[id], id);
+        }
+        return ids;
+    }
+
+    /**
+     * Look up a name
+     * @param name The location name (null finds nothing)
+     * @param names The name column the table was built over
+     * @return The node id, or -1 if not present
+     */
+    int find(String name, String[] names) {
+        if (name == null) {
+            return -1;
+        }
+        int hash = hash(name);
+        int mask = slots.length - 1;
+        for (int i = hash & mask; slots[i] != 0; i = (i + 1) & mask) {
+            long slot = slots[i];
+            if ((int) (slot >>> 32) == hash) {
+                int id = (int) slot - 1;
+                if (names[id].equals(name)) {
+                    return id;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Add a name that is not yet present
+     * @param name The location name
+     * @param id Its node id
+     */
+    void add(String name, int id) {
+        if ((size + 1) * 2 > slots.length) {
+            long[] old = slots;
+            slots = new long[old.length * 2];
+            for (long slot : old) {
+                if (slot != 0) {
+                    insert(slot);
+                }
+            }
+        }
+        insert(((long) hash(name) << 32) | (id + 1));
+        size++;
+    }
+
+    /**
+     * Independent copy, for a writer that must not disturb readers of this table
+     * @return The copy
+     */
+    NodeIds copy() {
+        return new NodeIds(slots.clone(), size);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Approximate heap taken by the table
+     * @return Size in bytes
+     */
+    long memoryBytes() {
+        return 16 + 8L * slots.length;
+    }
+
+    private void insert(long slot) {
+        int mask = slots.length - 1;
+        int i = (int) (slot >>> 32) & mask;
+        while (slots[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        slots[i] = slot;
+    }
+
+    private static int capacityFor(int expected) {
+        return Integer.highestOneBit(Math.max(16, expected) * 2 - 1) << 1;
+    }
+
+    /**
+     * String.hashCode (cached in the String) with its high bits folded into the low ones,
+     * which index the table
+     */
+    private static int hash(String name) {
+        int h = name.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ * PathAttributes class - walking conditions on a path between two locations.
+ * Grade is the rise over run walking from the path's source to its destination; the
+ * opposite direction sees the negated grade. A path may be closed for one window
+ * each day, given in minutes after midnight; a window may wrap past midnight.
+ */
+public final class PathAttributes {
+    /** Flat, open-air path with steps-free access and no closures */
+    public static final PathAttributes DEFAULT = new PathAttributes(false, false, 0.0, -1, -1);
+
+    private final boolean stairs;
+    private final boolean covered;
+    private final double grade;
+    private final int closedFrom;
+    private final int closedUntil;
+
+    /**
+     * Constructor for PathAttributes
+     * @param stairs true if the path includes stairs
+     * @param covered true if the path is a covered walkway
+     * @param grade Rise over run from source to destination (e.g. 0.08 for an 8% climb)
+     * @param closedFrom Minute of the day the path closes, or -1 if it never closes
+     * @param closedUntil Minute of the day the path reopens, or -1 if it never closes
+     */
+    public PathAttributes(boolean stairs, boolean covered, double grade, int closedFrom, int closedUntil) {
+        if ((closedFrom < 0) != (closedUntil < 0) || closedFrom >= 24 * 60 || closedUntil >= 24 * 60) {
+            throw new IllegalArgumentException("Invalid closure window: " + closedFrom + " to " + closedUntil);
+        }
+        this.stairs = stairs;
+        this.covered = covered;
+        this.grade = grade;
+        this.closedFrom = closedFrom;
+        this.closedUntil = closedUntil;
+    }
+
+    public boolean hasStairs() {
+        return stairs;
+    }
+
+    public boolean isCovered() {
+        return covered;
+    }
+
+    public double getGrade() {
+        return grade;
+    }
+
+    public int getClosedFrom() {
+        return closedFrom;
+    }
+
+    public int getClosedUntil() {
+        return closedUntil;
+    }
+
+    /**
+     * Whether the path has a daily closure window
+     * @return true if the path closes at some time of day
+     */
+    public boolean hasClosure() {
+        return closedFrom >= 0 && closedFrom != closedUntil;
+    }
+
+    /**
+     * The same path walked the other way
+     * @return Attributes with the grade negated
+     */
+    PathAttributes reversed() {
+        return grade == 0.0 ? this : new PathAttributes(stairs, covered, -grade, closedFrom, closedUntil);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        text.append(stairs ? "stairs" : "no stairs");
+        text.append(covered ? ", covered" : ", open-air");
+        text.append(String.format(", grade %.1f%%", grade * 100));
+        if (hasClosure()) {
+            text.append(String.format(", closed %02d:%02d-%02d:%02d",
+                closedFrom / 60, closedFrom % 60, closedUntil / 60, closedUntil % 60));
+        }
+        return text.toString();
+    }
+}
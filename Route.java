@@ -0,0 +1,146 @@
+import java.util.*;
+
+/**
+ * Route class - a path as node ids of a compiled graph plus the distance travelled up to
+ * each node (prefix sums, so any leg's length is one subtraction). Routes are immutable,
+ * compare and hash by their node ids, and only look up location names when asked.
+ */
+public final class Route implements Comparable<Route> {
+    private final CompactGraph graph;
+    final int[] nodes;
+    final double[] prefix;
+    final int deviation; // first node after the point this route left an earlier one, -1 if it did not
+    private final int hash;
+    private List<String> names; // built on first getNames(); racy but idempotent
+
+    /**
+     * Constructor for Route (arrays are taken over, not copied)
+     * @param graph The compiled graph the node ids belong to
+     * @param nodes Node ids, source first
+     * @param prefix Distance from the source to each node; prefix[0] is 0
+     * @param deviation First node after a spur from another route, or -1
+     */
+    Route(CompactGraph graph, int[] nodes, double[] prefix, int deviation) {
+        this.graph = graph;
+        this.nodes = nodes;
+        this.prefix = prefix;
+        this.deviation = deviation;
+        this.hash = Arrays.hashCode(nodes);
+    }
+
+    /**
+     * Capture the path to a target from the last run of a search
+     * @param search A search that reached target
+     * @param target The target node id
+     * @return The route from the search's source to target
+     */
+    static Route traced(ShortestPathSearch search, int target) {
+        int count = search.tracePath(target);
+        int[] nodes = Arrays.copyOf(search.pathNodes(), count);
+        double[] prefix = new double[count];
+        for (int i = 0; i < count; i++) {
+            prefix[i] = search.distance(nodes[i]);
+        }
+        return new Route(search.graph(), nodes, prefix, -1);
+    }
+
+    /**
+     * Get the number of locations on the route, endpoints included
+     * @return Number of locations
+     */
+    public int size() {
+        return nodes.length;
+    }
+
+    /**
+     * Node id of a location on the route
+     * @param index Position on the route (0 is the source)
+     * @return The node id in the compiled graph
+     */
+    public int node(int index) {
+        return nodes[index];
+    }
+
+    public String getName(int index) {
+        return graph.name(nodes[index]);
+    }
+
+    /**
+     * Distance from the source to a location on the route
+     * @param index Position on the route (0 is the source)
+     * @return Distance travelled so far
+     */
+    public double distanceTo(int index) {
+        return prefix[index];
+    }
+
+    /**
+     * Get the total distance of the route
+     * @return Distance from source to destination
+     */
+    public double getDistance() {
+        return prefix[prefix.length - 1];
+    }
+
+    /**
+     * Location names along the route, as a read-only view that resolves names on access
+     * @return Names from source to destination
+     */
+    public List<String> getNames() {
+        List<String> view = names;
+        if (view == null) {
+            view = new NameView();
+            names = view;
+        }
+        return view;
+    }
+
+    /**
+     * Whether two routes share their first locations
+     * @param other The other route
+     * @param length Number of leading locations to compare
+     * @return true if both routes start with the same length locations
+     */
+    boolean sharesPrefix(Route other, int length) {
+        return Arrays.equals(nodes, 0, length, other.nodes, 0, length);
+    }
+
+    @Override
+    public int compareTo(Route other) {
+        int byDistance = Double.compare(getDistance(), other.getDistance());
+        return byDistance != 0 ? byDistance : Arrays.compare(nodes, other.nodes);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (!(obj instanceof Route)) return false;
+        Route route = (Route) obj;
+        return hash == route.hash && Arrays.equals(nodes, route.nodes);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return String.join(" -> ", getNames());
+    }
+
+    /**
+     * Read-only list view of the route's location names
+     */
+    private final class NameView extends AbstractList<String> implements RandomAccess {
+        @Override
+        public String get(int index) {
+            return graph.name(nodes[index]);
+        }
+
+        @Override
+        public int size() {
+            return nodes.length;
+        }
+    }
+}
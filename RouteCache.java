@@ -0,0 +1,379 @@
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * RouteCache class - size-bounded, thread-safe cache in front of a Graph's route queries.
+ * Entries are keyed by (source, destination) and hold paths and distances only; travel
+ * times are derived from the cached distance, so any walking speed hits the same entry.
+ * When paths change, only the entries a change can affect are dropped: a route through a
+ * path that got longer or closed, or a route that a shortened or new path could beat by
+ * the straight-line lower bound. Adding a location drops the whole cache.
+ */
+public class RouteCache {
+    private final Graph graph;
+    private final int capacity;
+    private final EvictionPolicy policy;
+    private final ReentrantLock lock = new ReentrantLock();
+    // Guarded by lock
+    private final Map<Key, Entry> entries;
+    private final Map<Integer, LinkedHashSet<Key>> frequencyBuckets = new HashMap<>(); // LFU only
+    private int minFrequency;
+    private long graphVersion;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder staleEntries = new LongAdder();
+
+    /**
+     * Eviction policies for a full cache
+     */
+    public enum EvictionPolicy {
+        /** Evict the least recently used entry */
+        LRU,
+        /** Evict the least frequently used entry, least recently used among ties */
+        LFU
+    }
+
+    /**
+     * Constructor for RouteCache
+     * @param graph The graph to cache queries for
+     * @param capacity Maximum number of cached (source, destination, query kind) entries
+     * @param policy Which entry to evict when the cache is full
+     */
+    public RouteCache(Graph graph, int capacity, EvictionPolicy policy) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Cache capacity must be positive: " + capacity);
+        }
+        this.graph = graph;
+        this.capacity = capacity;
+        this.policy = policy;
+        this.entries = new LinkedHashMap<>(16, 0.75f, policy == EvictionPolicy.LRU);
+        this.graphVersion = graph.getVersion();
+    }
+
+    /**
+     * Cached Graph.findShortestPath
+     * @param source The starting location name
+     * @param destination The destination location name
+     * @return List of location names representing the shortest path (empty if no path found)
+     */
+    public List<String> findShortestPath(String source, String destination) {
+        Key key = new Key(source, destination, false);
+        Entry entry = lookup(key);
+        if (entry == null) {
+            long version = graph.getVersion();
+            List<String> path = graph.findShortestPath(source, destination);
+            entry = new Entry(List.of(path), new double[] {graph.getPathDistance(path)}, null);
+            store(key, entry, version);
+        }
+        return new ArrayList<>(entry.paths.get(0));
+    }
+
+    /**
+     * Cached Graph.findRouteOptionsSortedByTime
+     * @param source The starting location name
+     * @param destination The destination location name
+     * @param walkingSpeedKmh Walking speed in km/h
+     * @return List of RouteOption objects sorted by travel time (fastest first)
+     */
+    public List<Graph.RouteOption> findRouteOptionsSortedByTime(String source, String destination,
+                                                                double walkingSpeedKmh) {
+        Key key = new Key(source, destination, true);
+        Entry entry = lookup(key);
+        if (entry == null) {
+            long version = graph.getVersion();
+            List<Graph.RouteOption> options = graph.findRouteOptionsSortedByTime(source, destination, walkingSpeedKmh);
+            List<List<String>> paths = new ArrayList<>(options.size());
+            double[] distances = new double[options.size()];
+            String[] descriptions = new String[options.size()];
+            for (int i = 0; i < options.size(); i++) {
+                paths.add(List.copyOf(options.get(i).getPath())); // do not keep the compiled graph alive
+                distances[i] = options.get(i).getDistance();
+                descriptions[i] = options.get(i).getDescription();
+            }
+            store(key, new Entry(paths, distances, descriptions), version);
+            return options;
+        }
+        List<Graph.RouteOption> options = new ArrayList<>(entry.paths.size());
+        for (int i = 0; i < entry.paths.size(); i++) {
+            options.add(new Graph.RouteOption(entry.paths.get(i), entry.distances[i],
+                Graph.travelTime(entry.distances[i], walkingSpeedKmh), entry.descriptions[i]));
+        }
+        return options;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Get how many times the cache was dropped because the graph changed
+     * @return Number of invalidations
+     */
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+
+    /**
+     * Get how many entries were dropped individually because a path change affected them
+     * @return Number of dropped entries
+     */
+    public long getStaleEntries() {
+        return staleEntries.sum();
+    }
+
+    /**
+     * Get the number of cached entries
+     * @return Number of entries
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Remove all entries
+     */
+    public void clear() {
+        lock.lock();
+        try {
+            entries.clear();
+            frequencyBuckets.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Entry lookup(Key key) {
+        lock.lock();
+        try {
+            syncVersion();
+            Entry entry = entries.get(key); // moves the entry to the back in LRU order
+            RoutingMetrics metrics = graph.getMetrics();
+            if (entry == null) {
+                misses.increment();
+                if (metrics != null) {
+                    metrics.cacheMiss();
+                }
+                return null;
+            }
+            if (policy == EvictionPolicy.LFU) {
+                touch(key, entry);
+            }
+            hits.increment();
+            if (metrics != null) {
+                metrics.cacheHit();
+            }
+            return entry;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Add a computed entry, unless the graph changed while it was being computed
+     */
+    private void store(Key key, Entry entry, long computedAtVersion) {
+        lock.lock();
+        try {
+            syncVersion();
+            if (computedAtVersion != graphVersion || entries.containsKey(key)) {
+                return;
+            }
+            if (entries.size() >= capacity) {
+                evict();
+            }
+            entries.put(key, entry);
+            if (policy == EvictionPolicy.LFU) {
+                entry.frequency = 1;
+                frequencyBuckets.computeIfAbsent(1, f -> new LinkedHashSet<>()).add(key);
+                minFrequency = 1;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void syncVersion() {
+        long version = graph.getVersion();
+        if (version == graphVersion) {
+            return;
+        }
+        List<Graph.PathChange> changes = entries.isEmpty() ? null : graph.changesSince(graphVersion);
+        graphVersion = version;
+        if (entries.isEmpty()) {
+            return;
+        }
+        if (changes == null) {
+            entries.clear();
+            frequencyBuckets.clear();
+            invalidations.increment();
+            return;
+        }
+        Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Key, Entry> cached = iterator.next();
+            if (affected(cached.getKey(), cached.getValue(), changes)) {
+                iterator.remove();
+                if (policy == EvictionPolicy.LFU) {
+                    forget(cached.getKey(), cached.getValue().frequency);
+                }
+                staleEntries.increment();
+            }
+        }
+        if (policy == EvictionPolicy.LFU && !frequencyBuckets.isEmpty()) {
+            minFrequency = Collections.min(frequencyBuckets.keySet());
+        }
+    }
+
+    /**
+     * Whether any path change could alter a cached entry
+     */
+    private boolean affected(Key key, Entry entry, List<Graph.PathChange> changes) {
+        Location source = graph.getLocation(key.source);
+        Location destination = graph.getLocation(key.destination);
+        if (source == null || destination == null) {
+            return false; // the entry is empty, and only adding a location can change that
+        }
+        // A new or shorter path matters if a route over it could come in under this bound:
+        // the shortest distance, or for route options the 50% stretch limit they are cut at
+        double bound = Double.POSITIVE_INFINITY;
+        if (!entry.paths.isEmpty() && (entry.paths.get(0).size() > 1 || key.source.equals(key.destination))) {
+            bound = entry.distances[0] * (key.options ? 1.5 : 1.0);
+        }
+        for (Graph.PathChange change : changes) {
+            if (change.getNewLength() > change.getOldLength()) {
+                if (uses(entry, change)) {
+                    return true;
+                }
+            } else if (change.getNewLength() < change.getOldLength()) {
+                Location a = graph.getLocation(change.getSource());
+                Location b = graph.getLocation(change.getDestination());
+                double via = change.getNewLength() + Math.min(
+                    source.distanceTo(a) + b.distanceTo(destination),
+                    source.distanceTo(b) + a.distanceTo(destination));
+                if (via <= bound) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean uses(Entry entry, Graph.PathChange change) {
+        for (List<String> path : entry.paths) {
+            for (int i = 0; i + 1 < path.size(); i++) {
+                if (change.joins(path.get(i), path.get(i + 1))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Remove a key from its LFU frequency bucket
+     */
+    private void forget(Key key, int frequency) {
+        LinkedHashSet<Key> bucket = frequencyBuckets.get(frequency);
+        bucket.remove(key);
+        if (bucket.isEmpty()) {
+            frequencyBuckets.remove(frequency);
+        }
+    }
+
+    private void evict() {
+        Key victim;
+        if (policy == EvictionPolicy.LRU) {
+            victim = entries.keySet().iterator().next();
+        } else {
+            LinkedHashSet<Key> bucket = frequencyBuckets.get(minFrequency);
+            victim = bucket.iterator().next();
+            bucket.remove(victim);
+            if (bucket.isEmpty()) {
+                frequencyBuckets.remove(minFrequency);
+            }
+        }
+        entries.remove(victim);
+        evictions.increment();
+    }
+
+    /**
+     * Move an entry to the next LFU frequency bucket
+     */
+    private void touch(Key key, Entry entry) {
+        int frequency = entry.frequency;
+        LinkedHashSet<Key> bucket = frequencyBuckets.get(frequency);
+        bucket.remove(key);
+        if (bucket.isEmpty()) {
+            frequencyBuckets.remove(frequency);
+            if (minFrequency == frequency) {
+                minFrequency = frequency + 1;
+            }
+        }
+        entry.frequency = frequency + 1;
+        frequencyBuckets.computeIfAbsent(frequency + 1, f -> new LinkedHashSet<>()).add(key);
+    }
+
+    /**
+     * Cache key: endpoints plus whether the entry holds route options or a single shortest path
+     */
+    private static final class Key {
+        private final String source;
+        private final String destination;
+        private final boolean options;
+        private final int hash;
+
+        Key(String source, String destination, boolean options) {
+            this.source = source;
+            this.destination = destination;
+            this.options = options;
+            this.hash = (Objects.hashCode(source) * 31 + Objects.hashCode(destination)) * 2 + (options ? 1 : 0);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof Key)) return false;
+            Key key = (Key) obj;
+            return options == key.options && Objects.equals(source, key.source)
+                && Objects.equals(destination, key.destination);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Cached paths with their distances; travel time is not stored
+     */
+    private static final class Entry {
+        private final List<List<String>> paths;
+        private final double[] distances;
+        private final String[] descriptions; // null for a shortest-path entry
+        private int frequency; // LFU only, guarded by lock
+
+        Entry(List<List<String>> paths, double[] distances, String[] descriptions) {
+            this.paths = paths;
+            this.distances = distances;
+            this.descriptions = descriptions;
+        }
+    }
+}
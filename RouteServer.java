@@ -0,0 +1,190 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * RouteServer class - a small embedded HTTP front end for a RoutingService, on the JDK's
+ * built-in server. Exchanges run on the service's query executor (virtual threads where the
+ * runtime has them), and connections are kept alive between requests.
+ *
+ *   GET  /route?from=A&amp;to=B[&amp;speed=5][&amp;format=csv]  one result
+ *   POST /route[?format=csv]                        newline-delimited requests in the body,
+ *                                                   results streamed back as they are answered
+ *   GET  /health                                    "ok" and the snapshot version
+ *   GET  /metrics                                   RoutingMetrics text dump, if attached
+ *
+ * Request and result lines are those of BatchRouter, so a client can pipeline any number of
+ * queries over one connection in one round trip.
+ */
+public final class RouteServer implements AutoCloseable {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final RoutingService service;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final BatchRouter jsonRouter;
+    private final BatchRouter csvRouter;
+
+    /**
+     * Constructor for RouteServer; the server does not accept requests until start()
+     * @param service The routing service to answer from
+     * @param port Port to listen on, 0 for any free port
+     * @throws IOException If the port cannot be bound
+     */
+    public RouteServer(RoutingService service, int port) throws IOException {
+        this.service = service;
+        this.jsonRouter = new BatchRouter(service, BatchRouter.Format.JSON);
+        this.csvRouter = new BatchRouter(service, BatchRouter.Format.CSV);
+        this.executor = RoutingService.newQueryExecutor();
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.setExecutor(executor);
+        server.createContext("/route", this::handleRoute);
+        server.createContext("/health", this::handleHealth);
+        server.createContext("/metrics", this::handleMetrics);
+    }
+
+    /**
+     * Start accepting requests
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Get the port the server listens on
+     * @return Bound port
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stop accepting requests and wait briefly for exchanges in progress
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdownNow();
+    }
+
+    private void handleRoute(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            BatchRouter router = "csv".equalsIgnoreCase(query.get("format")) ? csvRouter : jsonRouter;
+            String contentType = router.getFormat() == BatchRouter.Format.CSV
+                ? "text/csv; charset=utf-8" : "application/x-ndjson; charset=utf-8";
+            switch (exchange.getRequestMethod()) {
+                case "GET":
+                    answerOne(exchange, router, query, contentType);
+                    break;
+                case "POST":
+                    exchange.getResponseHeaders().set("Content-Type", contentType);
+                    exchange.sendResponseHeaders(200, 0); // chunked: results go out while the body is read
+                    try (Reader in = new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8);
+                         Writer out = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8), BUFFER_SIZE)) {
+                        router.run(in, out);
+                    }
+                    break;
+                default:
+                    exchange.getResponseHeaders().set("Allow", "GET, POST");
+                    sendText(exchange, 405, "method not allowed\n");
+            }
+        }
+    }
+
+    private void answerOne(HttpExchange exchange, BatchRouter router, Map<String, String> query,
+                           String contentType) throws IOException {
+        String from = query.get("from");
+        String to = query.get("to");
+        if (from == null || to == null) {
+            sendText(exchange, 400, "from and to are required\n");
+            return;
+        }
+        double speed = 5.0;
+        if (query.containsKey("speed")) {
+            try {
+                speed = Double.parseDouble(query.get("speed"));
+            } catch (NumberFormatException e) {
+                speed = Double.NaN;
+            }
+            if (!(speed > 0) || Double.isInfinite(speed)) {
+                sendText(exchange, 400, "invalid speed\n");
+                return;
+            }
+        }
+        StringBuilder result = new StringBuilder(256);
+        if (router.getFormat() == BatchRouter.Format.CSV) {
+            result.append("from,to,found,distance,minutes,path\n");
+        }
+        router.answer(from, to, speed, result);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        send(exchange, 200, result.toString());
+    }
+
+    private void handleHealth(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "GET");
+                sendText(exchange, 405, "method not allowed\n");
+                return;
+            }
+            sendText(exchange, 200, "ok " + service.getVersion() + "\n");
+        }
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "GET");
+                sendText(exchange, 405, "method not allowed\n");
+                return;
+            }
+            RoutingMetrics metrics = service.getMetrics();
+            if (metrics == null) {
+                sendText(exchange, 404, "metrics are off\n");
+                return;
+            }
+            sendText(exchange, 200, metrics.dump());
+        }
+    }
+
+    private static void sendText(HttpExchange exchange, int status, String body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        send(exchange, status, body);
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Decode a URL query string; later duplicates win
+     */
+    static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> parameters = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return parameters;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            try {
+                parameters.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+            } catch (IllegalArgumentException e) {
+                // Malformed escape: ignore the parameter, the handler reports what is missing
+            }
+        }
+        return parameters;
+    }
+}
@@ -0,0 +1,414 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * RouteTable class - precomputed all-pairs shortest distances and next hops, stored in a
+ * memory-mapped file. Once opened, distance lookups are a single array read and paths
+ * are followed hop by hop, with no search and no heap allocation.
+ *
+ * File layout (little-endian):
+ *   int magic, int format version, int node count n, int data offset,
+ *   n node names (modified UTF-8, as DataOutput.writeUTF), padding to 8 bytes,
+ *   double[n * n] distances, row = source,
+ *   int[n * n] next hops, row = destination: entry [t * n + s] is the node after s on the way to t.
+ * Storing next hops by destination keeps a whole path walk inside one row.
+ */
+public final class RouteTable {
+    private static final int MAGIC = 0x55475254; // "UGRT"
+    private static final int FORMAT_VERSION = 1;
+    private static final int SOURCES_PER_TASK = 16;
+
+    private final String[] names;
+    private final Map<String, Integer> ids;
+    private final DoubleBuffer distances;
+    private final IntBuffer nextHops;
+
+    private RouteTable(String[] names, DoubleBuffer distances, IntBuffer nextHops) {
+        this.names = names;
+        this.distances = distances;
+        this.nextHops = nextHops;
+        this.ids = new HashMap<>(names.length * 2);
+        for (int i = 0; i < names.length; i++) {
+            ids.put(names[i], i);
+        }
+    }
+
+    /**
+     * Compute the all-pairs table for a graph and write it to a file.
+     * One Dijkstra runs per node, spread over the common fork-join pool.
+     * @param graph The graph to precompute
+     * @param file The file to write (replaced if it exists)
+     * @throws IOException If the file cannot be written
+     */
+    public static void build(Graph graph, Path file) throws IOException {
+        build(graph.compile(), file);
+    }
+
+    /**
+     * Compute the all-pairs table for a compiled graph and write it to a file
+     * @param graph The compiled graph to precompute
+     * @param file The file to write (replaced if it exists)
+     * @throws IOException If the file cannot be written
+     */
+    public static void build(CompactGraph graph, Path file) throws IOException {
+        int n = graph.nodeCount();
+        long cells = (long) n * n;
+        if (cells * Double.BYTES > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Graph too large for an all-pairs table: " + n + " nodes");
+        }
+
+        ByteArrayOutputStream nameBytes = new ByteArrayOutputStream();
+        DataOutputStream nameTable = new DataOutputStream(nameBytes);
+        for (int i = 0; i < n; i++) {
+            nameTable.writeUTF(graph.name(i));
+        }
+        int dataOffset = (16 + nameBytes.size() + 7) & ~7;
+        ByteBuffer header = ByteBuffer.allocate(dataOffset).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(n).putInt(dataOffset);
+        header.put(nameBytes.toByteArray());
+        header.clear();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(header, 0);
+            MappedByteBuffer distanceRegion = channel.map(FileChannel.MapMode.READ_WRITE,
+                dataOffset, cells * Double.BYTES);
+            MappedByteBuffer nextRegion = channel.map(FileChannel.MapMode.READ_WRITE,
+                dataOffset + cells * Double.BYTES, cells * Integer.BYTES);
+            distanceRegion.order(ByteOrder.LITTLE_ENDIAN);
+            nextRegion.order(ByteOrder.LITTLE_ENDIAN);
+
+            ForkJoinPool.commonPool().invoke(new SourceRange(graph, distanceRegion, nextRegion, 0, n));
+
+            distanceRegion.force();
+            nextRegion.force();
+        }
+    }
+
+    /**
+     * Offline stage: precompute the route table for the campus map
+     * @param args Output file (default: campus-routes.bin)
+     * @throws IOException If the file cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        Path file = Path.of(args.length > 0 ? args[0] : "campus-routes.bin");
+        Graph graph = new UGNavigate().getCampusGraph();
+        long start = System.nanoTime();
+        build(graph, file);
+        System.out.printf("Wrote %d x %d route table to %s in %.1f ms%n", graph.getLocationCount(),
+            graph.getLocationCount(), file, (System.nanoTime() - start) / 1e6);
+    }
+
+    /**
+     * Map a route table file into memory
+     * @param file The file written by build
+     * @return The opened table
+     * @throws IOException If the file cannot be read or is not a route table
+     */
+    public static RouteTable open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            String[] names = readNames(channel, file);
+            int n = names.length;
+            long dataOffset = readDataOffset(channel);
+
+            long cells = (long) n * n;
+            DoubleBuffer distances = channel.map(FileChannel.MapMode.READ_ONLY, dataOffset, cells * Double.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+            IntBuffer nextHops = channel.map(FileChannel.MapMode.READ_ONLY,
+                    dataOffset + cells * Double.BYTES, cells * Integer.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+            // Mappings stay valid after the channel is closed
+            return new RouteTable(names, distances, nextHops);
+        }
+    }
+
+    /**
+     * Repair a route table file in place after paths changed, instead of rebuilding it.
+     * Only the trees that used a lengthened or closed path, or that a shortened or new path
+     * improves, are touched, and within them only the affected nodes are searched again.
+     * Tables already opened on the file see the repaired entries.
+     * @param graph The graph after the changes, with the same locations as when the table was built
+     * @param file The file written by build
+     * @param changes The changes since the table was built, e.g. from Graph.changesSince
+     * @return Number of trees (table rows) that changed
+     * @throws IOException If the file cannot be read or written or is not a route table
+     */
+    public static int update(Graph graph, Path file, List<Graph.PathChange> changes) throws IOException {
+        return update(graph.compile(), file, changes);
+    }
+
+    /**
+     * Repair a route table file in place after paths changed
+     * @param graph The compiled graph after the changes
+     * @param file The file written by build
+     * @param changes The changes since the table was built
+     * @return Number of trees (table rows) that changed
+     * @throws IOException If the file cannot be read or written or is not a route table
+     */
+    public static int update(CompactGraph graph, Path file, List<Graph.PathChange> changes) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            String[] names = readNames(channel, file);
+            int n = names.length;
+            if (graph.nodeCount() != n) {
+                throw new IllegalArgumentException("Route table was built for a different set of locations");
+            }
+            for (int i = 0; i < n; i++) {
+                if (!names[i].equals(graph.name(i))) {
+                    throw new IllegalArgumentException("Route table was built for a different set of locations");
+                }
+            }
+            ShortestPathRepair repair = new ShortestPathRepair(graph, changes);
+            if (repair.isEmpty()) {
+                return 0;
+            }
+            long dataOffset = readDataOffset(channel);
+            long cells = (long) n * n;
+            MappedByteBuffer distanceRegion = channel.map(FileChannel.MapMode.READ_WRITE,
+                dataOffset, cells * Double.BYTES);
+            MappedByteBuffer nextRegion = channel.map(FileChannel.MapMode.READ_WRITE,
+                dataOffset + cells * Double.BYTES, cells * Integer.BYTES);
+            distanceRegion.order(ByteOrder.LITTLE_ENDIAN);
+            nextRegion.order(ByteOrder.LITTLE_ENDIAN);
+
+            RepairRange task = new RepairRange(repair, n, distanceRegion, nextRegion, 0, n);
+            ForkJoinPool.commonPool().invoke(task);
+
+            distanceRegion.force();
+            nextRegion.force();
+            return task.changed;
+        }
+    }
+
+    /**
+     * Read and check the header of a route table file
+     * @return The node names, index = node id
+     */
+    private static String[] readNames(FileChannel channel, Path file) throws IOException {
+        ByteBuffer fixed = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+        channel.read(fixed, 0);
+        fixed.flip();
+        if (fixed.remaining() < 16 || fixed.getInt() != MAGIC) {
+            throw new IOException("Not a route table file: " + file);
+        }
+        int version = fixed.getInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported route table version " + version + " in " + file);
+        }
+        int n = fixed.getInt();
+
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+            Channels.newInputStream(channel.position(16))));
+        String[] names = new String[n];
+        for (int i = 0; i < n; i++) {
+            names[i] = in.readUTF();
+        }
+        return names;
+    }
+
+    private static long readDataOffset(FileChannel channel) throws IOException {
+        ByteBuffer field = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        channel.read(field, 12);
+        return field.getInt(0);
+    }
+
+    /**
+     * Get the number of nodes in the table
+     * @return Number of nodes
+     */
+    public int nodeCount() {
+        return names.length;
+    }
+
+    /**
+     * Get the id of a node by location name
+     * @param name The location name
+     * @return The node id, or -1 if not present
+     */
+    public int indexOf(String name) {
+        Integer id = ids.get(name);
+        return id == null ? -1 : id;
+    }
+
+    public String name(int node) {
+        return names[node];
+    }
+
+    /**
+     * Shortest distance between two nodes
+     * @param source Source node id
+     * @param destination Destination node id
+     * @return The distance, or Double.MAX_VALUE if not connected
+     */
+    public double distance(int source, int destination) {
+        return distances.get(source * names.length + destination);
+    }
+
+    /**
+     * Next node on a shortest path
+     * @param from Current node id
+     * @param destination Destination node id
+     * @return The next node id, or -1 if from is the destination or cannot reach it
+     */
+    public int nextHop(int from, int destination) {
+        return nextHops.get(destination * names.length + from);
+    }
+
+    /**
+     * Write the shortest path between two nodes into a caller-supplied buffer
+     * @param source Source node id
+     * @param destination Destination node id
+     * @param out Buffer for the node ids, source first
+     * @return Number of nodes in the path (0 if not connected); if larger than
+     *         out.length only the first out.length nodes were written
+     */
+    public int copyPath(int source, int destination, int[] out) {
+        if (source != destination && nextHop(source, destination) < 0) {
+            return 0;
+        }
+        int count = 0;
+        int row = destination * names.length;
+        for (int node = source; node >= 0; node = nextHops.get(row + node)) {
+            if (count < out.length) {
+                out[count] = node;
+            }
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Look up the shortest path between two locations
+     * @param source The starting location name
+     * @param destination The destination location name
+     * @return List of location names representing the shortest path (empty if no path found)
+     */
+    public List<String> findShortestPath(String source, String destination) {
+        List<String> path = new ArrayList<>();
+        int from = indexOf(source);
+        int to = indexOf(destination);
+        if (from < 0 || to < 0 || (from != to && nextHop(from, to) < 0)) {
+            return path;
+        }
+        int row = to * names.length;
+        for (int node = from; node >= 0; node = nextHops.get(row + node)) {
+            path.add(names[node]);
+        }
+        return path;
+    }
+
+    /**
+     * Look up the shortest distance between two locations
+     * @param source The starting location name
+     * @param destination The destination location name
+     * @return The distance, or Double.MAX_VALUE if either is unknown or they are not connected
+     */
+    public double getDistance(String source, String destination) {
+        int from = indexOf(source);
+        int to = indexOf(destination);
+        return from < 0 || to < 0 ? Double.MAX_VALUE : distance(from, to);
+    }
+
+    /**
+     * Fork-join task repairing the trees for a range of destinations
+     */
+    private static final class RepairRange extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final transient ShortestPathRepair repair;
+        private final int n;
+        private final transient ByteBuffer distanceRegion;
+        private final transient ByteBuffer nextRegion;
+        private final int from;
+        private final int to;
+        private int changed; // rows changed in this range, read after the task completes
+
+        RepairRange(ShortestPathRepair repair, int n, ByteBuffer distanceRegion, ByteBuffer nextRegion,
+                    int from, int to) {
+            this.repair = repair;
+            this.n = n;
+            this.distanceRegion = distanceRegion;
+            this.nextRegion = nextRegion;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > SOURCES_PER_TASK) {
+                int mid = (from + to) >>> 1;
+                RepairRange left = new RepairRange(repair, n, distanceRegion, nextRegion, from, mid);
+                RepairRange right = new RepairRange(repair, n, distanceRegion, nextRegion, mid, to);
+                invokeAll(left, right);
+                changed = left.changed + right.changed;
+                return;
+            }
+            // Paths are undirected, so row t holds both the distances from t and the tree of
+            // next hops towards t: one shortest-path tree rooted at t per row
+            DoubleBuffer distances = distanceRegion.asDoubleBuffer();
+            IntBuffer nextHops = nextRegion.asIntBuffer();
+            ShortestPathRepair.Worker worker = repair.newWorker();
+            for (int root = from; root < to; root++) {
+                if (worker.repair(distances, nextHops, root * n)) {
+                    changed++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Fork-join task computing the table rows for a range of sources
+     */
+    private static final class SourceRange extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final transient CompactGraph graph;
+        private final transient ByteBuffer distanceRegion;
+        private final transient ByteBuffer nextRegion;
+        private final int from;
+        private final int to;
+
+        SourceRange(CompactGraph graph, ByteBuffer distanceRegion, ByteBuffer nextRegion, int from, int to) {
+            this.graph = graph;
+            this.distanceRegion = distanceRegion;
+            this.nextRegion = nextRegion;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > SOURCES_PER_TASK) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new SourceRange(graph, distanceRegion, nextRegion, from, mid),
+                          new SourceRange(graph, distanceRegion, nextRegion, mid, to));
+                return;
+            }
+            int n = graph.nodeCount();
+            // Absolute puts on shared views; each task writes only its own rows
+            DoubleBuffer distances = distanceRegion.asDoubleBuffer();
+            IntBuffer nextHops = nextRegion.asIntBuffer();
+            ShortestPathSearch search = new ShortestPathSearch();
+            search.bind(graph);
+            for (int root = from; root < to; root++) {
+                search.runAll(root);
+                int row = root * n;
+                for (int node = 0; node < n; node++) {
+                    // Paths are undirected: the tree rooted at root gives distances from root
+                    // and, through parent pointers, every node's next hop towards root
+                    double distance = search.distance(node);
+                    distances.put(row + node, distance);
+                    nextHops.put(row + node, distance == Double.MAX_VALUE ? -1 : search.parent(node));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,367 @@
+import javax.management.*;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * RoutingMetrics class - per-query instrumentation for Graph and RoutingService: latency
+ * histograms, search effort (nodes settled, edges relaxed, heap operations), cache hits and
+ * a log of the most recent slow queries, per routing API.
+ *
+ * Searches always keep their effort in plain per-thread counters; a query folds them into
+ * these striped counters only while metrics are attached, so with metrics switched off
+ * (Graph.setMetrics(null)) the search loops run exactly as before. Readable as text through
+ * dump() or through JMX after registerMBeans().
+ *
+ * Contraction hierarchy and multi-level queries report nodes settled but not edges or heap
+ * operations. distanceMatrix and planItinerary search on fork-join workers, so for them
+ * only latency and the calling thread's effort are recorded.
+ */
+public final class RoutingMetrics implements RoutingMetricsMXBean {
+    private static final int SLOW_QUERY_LOG_SIZE = 32;
+
+    /**
+     * Instrumented routing APIs
+     */
+    public enum Operation {
+        SHORTEST_PATH("findShortestPath"),
+        SHORTEST_ROUTE("findShortestRoute"),
+        ROUTE_OPTIONS("findRouteOptionsSortedByTime"),
+        FASTEST_ROUTE("findFastestRoute"),
+        ONE_TO_MANY("oneToMany"),
+        DISTANCE_MATRIX("distanceMatrix"),
+        REACHABLE("findReachableWithin"),
+        ITINERARY("planItinerary");
+
+        private final String apiName;
+
+        Operation(String apiName) {
+            this.apiName = apiName;
+        }
+
+        public String getApiName() {
+            return apiName;
+        }
+    }
+
+    /**
+     * JMX view of one routing API
+     */
+    public interface OperationMXBean {
+        long getQueries();
+        long getNotFound();
+        long getNodesSettled();
+        long getEdgesRelaxed();
+        long getHeapPushes();
+        long getHeapPops();
+        double getMeanMicros();
+        double getP50Micros();
+        double getP90Micros();
+        double getP99Micros();
+        double getP999Micros();
+        double getMaxMicros();
+    }
+
+    private final Map<Operation, OperationStats> operations = new EnumMap<>(Operation.class);
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+    private final String[] slowQueries = new String[SLOW_QUERY_LOG_SIZE];
+    private long slowQueryCount; // guarded by slowQueries
+    private volatile long slowQueryThresholdNanos = TimeUnit.MILLISECONDS.toNanos(10);
+    private final List<ObjectName> registered = new ArrayList<>();
+
+    /**
+     * Constructor for RoutingMetrics
+     */
+    public RoutingMetrics() {
+        for (Operation operation : Operation.values()) {
+            operations.put(operation, new OperationStats());
+        }
+    }
+
+    /**
+     * Start timing a query and mark the effort counters of the search it will use
+     * @param search The calling thread's search state
+     * @return Start time to pass to end()
+     */
+    long begin(ShortestPathSearch search) {
+        search.markEffort();
+        return System.nanoTime();
+    }
+
+    /**
+     * Record a finished query
+     * @param operation The routing API called
+     * @param search The search state passed to begin()
+     * @param started The value begin() returned
+     * @param source The starting location name, for the slow query log
+     * @param destination The destination location name (or a summary of the targets)
+     * @param found false if the query found nothing
+     */
+    void end(Operation operation, ShortestPathSearch search, long started,
+             String source, String destination, boolean found) {
+        long settled = search.heapPopsSinceMark();
+        OperationStats stats = record(operation, started, settled, source, destination, found);
+        stats.edgesRelaxed.add(search.edgesRelaxedSinceMark());
+        stats.heapPushes.add(search.heapPushesSinceMark());
+        stats.heapPops.add(settled);
+    }
+
+    /**
+     * Record a finished query that searched with its own state rather than a
+     * ShortestPathSearch (a contraction hierarchy or multi-level overlay)
+     * @param operation The routing API called
+     * @param started The value begin() returned
+     * @param settled Nodes the query settled
+     * @param source The starting location name, for the slow query log
+     * @param destination The destination location name
+     * @param found false if the query found nothing
+     */
+    void end(Operation operation, long started, long settled, String source, String destination, boolean found) {
+        record(operation, started, settled, source, destination, found);
+    }
+
+    private OperationStats record(Operation operation, long started, long settled,
+                                  String source, String destination, boolean found) {
+        long elapsed = System.nanoTime() - started;
+        OperationStats stats = operations.get(operation);
+        stats.latency.record(elapsed);
+        if (!found) {
+            stats.notFound.increment();
+        }
+        stats.nodesSettled.add(settled);
+        if (elapsed >= slowQueryThresholdNanos) {
+            logSlowQuery(String.format(Locale.ROOT, "%s %s -> %s: %.1f ms, %d nodes settled%s",
+                operation.apiName, source, destination, elapsed / 1e6, settled, found ? "" : ", not found"));
+        }
+        return stats;
+    }
+
+    void cacheHit() {
+        cacheHits.increment();
+    }
+
+    void cacheMiss() {
+        cacheMisses.increment();
+    }
+
+    /**
+     * Get the metrics of one routing API
+     * @param operation The routing API
+     * @return Its counters and latency percentiles
+     */
+    public OperationMXBean getOperation(Operation operation) {
+        return operations.get(operation);
+    }
+
+    @Override
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    @Override
+    public long getCacheMisses() {
+        return cacheMisses.sum();
+    }
+
+    @Override
+    public long getSlowQueryThresholdMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(slowQueryThresholdNanos);
+    }
+
+    /**
+     * Set how long a query may take before it is added to the slow query log
+     * @param micros Threshold in microseconds
+     */
+    @Override
+    public void setSlowQueryThresholdMicros(long micros) {
+        if (micros < 0) {
+            throw new IllegalArgumentException("Threshold must not be negative: " + micros);
+        }
+        slowQueryThresholdNanos = TimeUnit.MICROSECONDS.toNanos(micros);
+    }
+
+    /**
+     * Get the most recent slow queries
+     * @return Descriptions, oldest first
+     */
+    @Override
+    public List<String> getSlowQueries() {
+        synchronized (slowQueries) {
+            int count = (int) Math.min(slowQueryCount, SLOW_QUERY_LOG_SIZE);
+            List<String> recent = new ArrayList<>(count);
+            for (long i = slowQueryCount - count; i < slowQueryCount; i++) {
+                recent.add(slowQueries[(int) (i % SLOW_QUERY_LOG_SIZE)]);
+            }
+            return recent;
+        }
+    }
+
+    /**
+     * Text report: one line per routing API that has run, then cache counters and slow queries
+     * @return The report
+     */
+    @Override
+    public String dump() {
+        StringBuilder out = new StringBuilder();
+        for (Map.Entry<Operation, OperationStats> entry : operations.entrySet()) {
+            OperationStats stats = entry.getValue();
+            long queries = stats.getQueries();
+            if (queries == 0) {
+                continue;
+            }
+            out.append(String.format(Locale.ROOT,
+                "%-28s queries=%d notFound=%d p50=%.1fus p90=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus mean=%.1fus"
+                    + " settled/q=%.1f relaxed/q=%.1f pushes/q=%.1f%n",
+                entry.getKey().apiName, queries, stats.getNotFound(), stats.getP50Micros(), stats.getP90Micros(),
+                stats.getP99Micros(), stats.getP999Micros(), stats.getMaxMicros(), stats.getMeanMicros(),
+                (double) stats.getNodesSettled() / queries, (double) stats.getEdgesRelaxed() / queries,
+                (double) stats.getHeapPushes() / queries));
+        }
+        out.append("cache hits=").append(getCacheHits()).append(" misses=").append(getCacheMisses()).append('\n');
+        for (String query : getSlowQueries()) {
+            out.append("slow: ").append(query).append('\n');
+        }
+        return out.toString();
+    }
+
+    /**
+     * Zero every counter and histogram and clear the slow query log
+     */
+    @Override
+    public void reset() {
+        for (OperationStats stats : operations.values()) {
+            stats.reset();
+        }
+        cacheHits.reset();
+        cacheMisses.reset();
+        synchronized (slowQueries) {
+            Arrays.fill(slowQueries, null);
+            slowQueryCount = 0;
+        }
+    }
+
+    /**
+     * Register with the platform MBean server: one bean for the summary and one per routing API
+     * @param domain JMX domain, e.g. "ugnavigate"
+     * @throws JMException If a bean with the same name is already registered
+     */
+    public synchronized void registerMBeans(String domain) throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName summary = new ObjectName(domain + ":type=RoutingMetrics");
+        server.registerMBean(this, summary);
+        registered.add(summary);
+        for (Map.Entry<Operation, OperationStats> entry : operations.entrySet()) {
+            ObjectName name = new ObjectName(domain + ":type=RoutingMetrics,operation=" + entry.getKey().apiName);
+            server.registerMBean(entry.getValue(), name);
+            registered.add(name);
+        }
+    }
+
+    /**
+     * Remove the beans added by registerMBeans
+     */
+    public synchronized void unregisterMBeans() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName name : registered) {
+            try {
+                server.unregisterMBean(name);
+            } catch (JMException e) {
+                // Already gone
+            }
+        }
+        registered.clear();
+    }
+
+    private void logSlowQuery(String description) {
+        synchronized (slowQueries) {
+            slowQueries[(int) (slowQueryCount++ % SLOW_QUERY_LOG_SIZE)] = description;
+        }
+    }
+
+    private static double micros(long nanos) {
+        return nanos / 1000.0;
+    }
+
+    /**
+     * Counters and latency histogram of one routing API
+     */
+    private static final class OperationStats implements OperationMXBean {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder notFound = new LongAdder();
+        private final LongAdder nodesSettled = new LongAdder();
+        private final LongAdder edgesRelaxed = new LongAdder();
+        private final LongAdder heapPushes = new LongAdder();
+        private final LongAdder heapPops = new LongAdder();
+
+        @Override
+        public long getQueries() {
+            return latency.count();
+        }
+
+        @Override
+        public long getNotFound() {
+            return notFound.sum();
+        }
+
+        @Override
+        public long getNodesSettled() {
+            return nodesSettled.sum();
+        }
+
+        @Override
+        public long getEdgesRelaxed() {
+            return edgesRelaxed.sum();
+        }
+
+        @Override
+        public long getHeapPushes() {
+            return heapPushes.sum();
+        }
+
+        @Override
+        public long getHeapPops() {
+            return heapPops.sum();
+        }
+
+        @Override
+        public double getMeanMicros() {
+            return latency.mean() / 1000.0;
+        }
+
+        @Override
+        public double getP50Micros() {
+            return micros(latency.percentile(50.0));
+        }
+
+        @Override
+        public double getP90Micros() {
+            return micros(latency.percentile(90.0));
+        }
+
+        @Override
+        public double getP99Micros() {
+            return micros(latency.percentile(99.0));
+        }
+
+        @Override
+        public double getP999Micros() {
+            return micros(latency.percentile(99.9));
+        }
+
+        @Override
+        public double getMaxMicros() {
+            return micros(latency.max());
+        }
+
+        void reset() {
+            latency.reset();
+            notFound.reset();
+            nodesSettled.reset();
+            edgesRelaxed.reset();
+            heapPushes.reset();
+            heapPops.reset();
+        }
+    }
+}
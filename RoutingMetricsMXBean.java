@@ -0,0 +1,21 @@
+import java.util.List;
+
+/**
+ * RoutingMetricsMXBean interface - JMX view of RoutingMetrics as a whole; each routing API
+ * is registered separately as a RoutingMetrics.OperationMXBean
+ */
+public interface RoutingMetricsMXBean {
+    long getCacheHits();
+
+    long getCacheMisses();
+
+    long getSlowQueryThresholdMicros();
+
+    void setSlowQueryThresholdMicros(long micros);
+
+    List<String> getSlowQueries();
+
+    String dump();
+
+    void reset();
+}
@@ -0,0 +1,510 @@
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * RoutingService class - thread-safe routing over immutable, versioned graph snapshots.
+ * Queries read the current snapshot through an atomic reference and never take a lock.
+ * Edits are applied to a private Graph under a writer lock, then a new snapshot is
+ * compiled and swapped in; queries already running finish on the snapshot they started with.
+ */
+public class RoutingService implements AutoCloseable {
+    private final Graph master; // writer-side copy, guarded by editLock
+    private final Object editLock = new Object();
+    private final AtomicReference<Snapshot> current;
+    private final ConcurrentLinkedQueue<ShortestPathSearch> idleSearches = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<ContractionHierarchy.Query> idleHierarchyQueries = new ConcurrentLinkedQueue<>();
+    private final ExecutorService executor;
+    private volatile RoutingMetrics metrics; // null while instrumentation is off
+
+    /**
+     * Constructor for RoutingService
+     * @param graph The initial graph; the service takes ownership and callers must
+     *              make further edits through the service
+     */
+    public RoutingService(Graph graph) {
+        this.master = graph;
+        this.current = new AtomicReference<>(new Snapshot(0, graph.compile(), graph.builtMultiLevelOverlay()));
+        this.executor = newQueryExecutor();
+    }
+
+    /**
+     * Get the snapshot that new queries will run against
+     * @return The current snapshot
+     */
+    public Snapshot getSnapshot() {
+        return current.get();
+    }
+
+    /**
+     * Get the version of the current snapshot (incremented by every edit)
+     * @return Snapshot version
+     */
+    public long getVersion() {
+        return current.get().version;
+    }
+
+    /**
+     * Check if a location exists in the current snapshot
+     * @param locationName The name of the location to check
+     * @return true if location exists, false otherwise
+     */
+    public boolean locationExists(String locationName) {
+        return current.get().graph.indexOf(locationName) >= 0;
+    }
+
+    /**
+     * Get a location by name from the current snapshot
+     * @param locationName The name of the location
+     * @return A new Location with the snapshot's type and coordinates if found, null otherwise
+     */
+    public Location getLocation(String locationName) {
+        CompactGraph graph = current.get().graph;
+        int node = graph.indexOf(locationName);
+        return node < 0 ? null : graph.location(node);
+    }
+
+    /**
+     * Suggest location names in the current snapshot for partially typed, possibly misspelled input
+     * @param query The typed text
+     * @param limit Maximum number of names to return
+     * @return Suggested names, best first
+     */
+    public List<String> suggestLocationNames(String query, int limit) {
+        return current.get().nameIndex().suggest(query, limit);
+    }
+
+    /**
+     * Find the shortest path between two locations on the current snapshot
+     * @param source The starting location name
+     * @param destination The destination location name
+     * @return List of location names representing the shortest path (empty if no path found)
+     */
+    public List<String> findShortestPath(String source, String destination) {
+        return findShortestPath(source, destination, Graph.SearchAlgorithm.DIJKSTRA);
+    }
+
+    /**
+     * Find the shortest path between two locations on the current snapshot.
+     * CONTRACTION_HIERARCHY, ALT and MULTI_LEVEL preprocess the snapshot on their first such
+     * query; later queries on the same snapshot reuse the hierarchy, landmarks or overlay.
+     * The overlay is also carried over to snapshots published after path length edits,
+     * re-customized around the changed paths.
+     * @param source The starting location name
+     * @param destination The destination location name
+     * @param algorithm The search algorithm to use
+     * @return List of location names representing the shortest path (empty if no path found)
+     */
+    public List<String> findShortestPath(String source, String destination, Graph.SearchAlgorithm algorithm) {
+        Snapshot snapshot = current.get();
+        ShortestPathSearch search = acquireSearch();
+        RoutingMetrics m = metrics;
+        try {
+            long started = m == null ? 0L : m.begin(search);
+            List<String> path;
+            long settled = -1; // nodes settled outside search, -1 if the query used search
+            if (algorithm == Graph.SearchAlgorithm.CONTRACTION_HIERARCHY) {
+                ContractionHierarchy.Query query = idleHierarchyQueries.poll();
+                if (query == null) {
+                    query = new ContractionHierarchy.Query();
+                }
+                path = snapshot.contractionHierarchy().findShortestPath(query, source, destination);
+                settled = query.settledCount();
+                idleHierarchyQueries.offer(query);
+            } else if (algorithm == Graph.SearchAlgorithm.ALT) {
+                path = snapshot.distanceOracle().findShortestPath(search, source, destination);
+            } else if (algorithm == Graph.SearchAlgorithm.MULTI_LEVEL) {
+                MultiLevelOverlay cells = snapshot.overlay();
+                path = cells.findShortestPath(source, destination);
+                settled = cells.getLastNodesSettled();
+            } else {
+                path = Graph.shortestPath(snapshot.graph, search, source, destination, algorithm);
+            }
+            if (m != null) {
+                if (settled < 0) {
+                    m.end(RoutingMetrics.Operation.SHORTEST_PATH, search, started, source, destination, !path.isEmpty());
+                } else {
+                    m.end(RoutingMetrics.Operation.SHORTEST_PATH, started, settled, source, destination, !path.isEmpty());
+                }
+            }
+            return path;
+        } finally {
+            idleSearches.offer(search);
+        }
+    }
+
+    /**
+     * Find the shortest route between two locations on the current snapshot
+     * @param source The starting location name
+     * @param destination The destination location name
+     * @return The shortest route, or null if either location is unknown or no path exists
+     */
+    public Route findShortestRoute(String source, String destination) {
+        CompactGraph graph = current.get().graph;
+        ShortestPathSearch search = acquireSearch();
+        RoutingMetrics m = metrics;
+        try {
+            long started = m == null ? 0L : m.begin(search);
+            Route route = Graph.shortestRoute(graph, search, source, destination);
+            if (m != null) {
+                m.end(RoutingMetrics.Operation.SHORTEST_ROUTE, search, started, source, destination, route != null);
+            }
+            return route;
+        } finally {
+            idleSearches.offer(search);
+        }
+    }
+
+    /**
+     * Find route options between two locations on the current snapshot
+     * @param source The starting location name
+     * @param destination The destination location name
+     * @param walkingSpeedKmh Walking speed in km/h
+     * @return List of RouteOption objects sorted by travel time (fastest first)
+     */
+    public List<Graph.RouteOption> findRouteOptionsSortedByTime(String source, String destination, double walkingSpeedKmh) {
+        return findRouteOptionsSortedByTime(source, destination, walkingSpeedKmh, false);
+    }
+
+    /**
+     * Find route options between two locations on the current snapshot, optionally running
+     * the spur searches in parallel on the common fork-join pool (same options either way)
+     * @param source The starting location name
+     * @param destination The destination location name
+     * @param walkingSpeedKmh Walking speed in km/h
+     * @param parallel true to search in parallel
+     * @return List of RouteOption objects sorted by travel time (fastest first)
+     */
+    public List<Graph.RouteOption> findRouteOptionsSortedByTime(String source, String destination, double walkingSpeedKmh,
+                                                                boolean parallel) {
+        CompactGraph graph = current.get().graph;
+        ShortestPathSearch search = acquireSearch();
+        RoutingMetrics m = metrics;
+        try {
+            long started = m == null ? 0L : m.begin(search);
+            List<Graph.RouteOption> options = Graph.routeOptions(graph, search, source, destination, walkingSpeedKmh,
+                parallel ? idleSearches : null);
+            if (m != null) {
+                m.end(RoutingMetrics.Operation.ROUTE_OPTIONS, search, started, source, destination, !options.isEmpty());
+            }
+            return options;
+        } finally {
+            idleSearches.offer(search);
+        }
+    }
+
+    /**
+     * Find the earliest-arrival route on the current snapshot
+     * @param source The starting location name
+     * @param destination The destination location name
+     * @param departureMinute Departure time in minutes after midnight
+     * @param travelCost The cost function
+     * @return The fastest route, or null if no route exists
+     */
+    public Graph.RouteOption findFastestRoute(String source, String destination, int departureMinute,
+                                              TravelCost travelCost) {
+        CompactGraph graph = current.get().graph;
+        ShortestPathSearch search = acquireSearch();
+        RoutingMetrics m = metrics;
+        try {
+            long started = m == null ? 0L : m.begin(search);
+            Graph.RouteOption route = Graph.fastestRoute(graph, search, source, destination, departureMinute, travelCost);
+            if (m != null) {
+                m.end(RoutingMetrics.Operation.FASTEST_ROUTE, search, started, source, destination, route != null);
+            }
+            return route;
+        } finally {
+            idleSearches.offer(search);
+        }
+    }
+
+    /**
+     * Find the shortest distances from one location to many on the current snapshot
+     * @param source The starting location name
+     * @param targets The destination location names
+     * @return Distance to each target in the order given (Double.MAX_VALUE if unknown or unreachable)
+     */
+    public double[] oneToMany(String source, List<String> targets) {
+        CompactGraph graph = current.get().graph;
+        ShortestPathSearch search = acquireSearch();
+        RoutingMetrics m = metrics;
+        try {
+            long started = m == null ? 0L : m.begin(search);
+            int start = graph.indexOf(source);
+            double[] row = DistanceMatrix.oneToMany(graph, search, start, DistanceMatrix.resolve(graph, targets));
+            if (m != null) {
+                m.end(RoutingMetrics.Operation.ONE_TO_MANY, search, started, source, targets.size() + " targets", start >= 0);
+            }
+            return row;
+        } finally {
+            idleSearches.offer(search);
+        }
+    }
+
+    /**
+     * Find the shortest distances between every source and every target on the current
+     * snapshot, with sources searched in parallel on the common fork-join pool
+     * @param sources The starting location names
+     * @param targets The destination location names
+     * @return matrix[i][j] = distance from sources[i] to targets[j] (Double.MAX_VALUE if unknown or unreachable)
+     */
+    public double[][] distanceMatrix(List<String> sources, List<String> targets) {
+        // Rows are searched on pool threads, so only latency is recorded, not search effort
+        RoutingMetrics m = metrics;
+        long started = m == null ? 0L : System.nanoTime();
+        CompactGraph graph = current.get().graph;
+        double[][] matrix = DistanceMatrix.manyToMany(graph, DistanceMatrix.resolve(graph, sources),
+            DistanceMatrix.resolve(graph, targets));
+        if (m != null) {
+            m.end(RoutingMetrics.Operation.DISTANCE_MATRIX, started, 0, sources.size() + " sources",
+                targets.size() + " targets", true);
+        }
+        return matrix;
+    }
+
+    /**
+     * Find every location reachable within a walking time on the current snapshot
+     * @param source The starting location name
+     * @param maxMinutes Walking time budget in minutes
+     * @param walkingSpeedKmh Walking speed in km/h
+     * @return Reachable locations with arrival times, nearest first (empty if source is unknown)
+     */
+    public Isochrone findReachableWithin(String source, double maxMinutes, double walkingSpeedKmh) {
+        CompactGraph graph = current.get().graph;
+        ShortestPathSearch search = acquireSearch();
+        RoutingMetrics m = metrics;
+        try {
+            long started = m == null ? 0L : m.begin(search);
+            double maxDistance = maxMinutes / 60.0 * walkingSpeedKmh * 1000.0;
+            Isochrone reachable = Isochrone.reachable(graph, search, source, maxDistance, walkingSpeedKmh);
+            if (m != null) {
+                m.end(RoutingMetrics.Operation.REACHABLE, search, started, source,
+                    "within " + Math.round(maxDistance), reachable.size() > 0);
+            }
+            return reachable;
+        } finally {
+            idleSearches.offer(search);
+        }
+    }
+
+    /**
+     * Attach instrumentation to this service's routing queries, or switch it off
+     * @param metrics Metrics to record into, or null to stop recording
+     */
+    public void setMetrics(RoutingMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public RoutingMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Plan a walk through a list of stops on the current snapshot
+     * @param stops Stop names; the first is the start, the others may be visited in any order
+     * @param roundTrip true to end back at the first stop
+     * @param walkingSpeedKmh Walking speed in km/h
+     * @return The itinerary, or null if a stop is unknown or cannot be reached
+     */
+    public Itinerary planItinerary(List<String> stops, boolean roundTrip, double walkingSpeedKmh) {
+        CompactGraph graph = current.get().graph;
+        ShortestPathSearch search = acquireSearch();
+        RoutingMetrics m = metrics;
+        try {
+            // The distance matrix is searched on pool threads, so its effort is not recorded
+            long started = m == null ? 0L : m.begin(search);
+            Itinerary itinerary = Itinerary.plan(graph, search, stops, roundTrip, walkingSpeedKmh);
+            if (m != null) {
+                m.end(RoutingMetrics.Operation.ITINERARY, search, started, stops.isEmpty() ? "" : stops.get(0),
+                    stops.size() + " stops", itinerary != null);
+            }
+            return itinerary;
+        } finally {
+            idleSearches.offer(search);
+        }
+    }
+
+    /**
+     * Run findShortestPath on the service's query executor
+     * @param source The starting location name
+     * @param destination The destination location name
+     * @return Future completed with the shortest path
+     */
+    public CompletableFuture<List<String>> findShortestPathAsync(String source, String destination) {
+        return CompletableFuture.supplyAsync(() -> findShortestPath(source, destination), executor);
+    }
+
+    /**
+     * Run findRouteOptionsSortedByTime on the service's query executor
+     * @param source The starting location name
+     * @param destination The destination location name
+     * @param walkingSpeedKmh Walking speed in km/h
+     * @return Future completed with the route options
+     */
+    public CompletableFuture<List<Graph.RouteOption>> findRouteOptionsAsync(String source, String destination,
+                                                                           double walkingSpeedKmh) {
+        return CompletableFuture.supplyAsync(
+            () -> findRouteOptionsSortedByTime(source, destination, walkingSpeedKmh), executor);
+    }
+
+    /**
+     * Add a location and publish a new snapshot
+     * @param location The location to add
+     */
+    public void addLocation(Location location) {
+        edit(graph -> graph.addLocation(location));
+    }
+
+    /**
+     * Add a path between two locations and publish a new snapshot
+     * @param source The source location name
+     * @param destination The destination location name
+     */
+    public void addPath(String source, String destination) {
+        edit(graph -> graph.addPath(source, destination));
+    }
+
+    /**
+     * Set the walking conditions on a path and publish a new snapshot
+     * @param source The source location name
+     * @param destination The destination location name
+     * @param attributes Attributes as seen walking from source to destination
+     */
+    public void setPathAttributes(String source, String destination, PathAttributes attributes) {
+        edit(graph -> graph.setPathAttributes(source, destination, attributes));
+    }
+
+    /**
+     * Apply a batch of edits and publish a single new snapshot.
+     * Writers are serialized; readers keep using the previous snapshot until the swap.
+     * @param edits Edits to apply to the graph
+     * @return The published snapshot
+     */
+    public Snapshot edit(Consumer<Graph> edits) {
+        synchronized (editLock) {
+            Snapshot previous = current.get();
+            MultiLevelOverlay cells = previous.overlay;
+            if (cells != null) {
+                // Let length edits re-customize the overlay instead of partitioning again
+                master.adoptMultiLevelOverlay(cells);
+            }
+            edits.accept(master);
+            Snapshot next = new Snapshot(previous.version + 1, master.compile(), master.builtMultiLevelOverlay());
+            current.set(next);
+            return next;
+        }
+    }
+
+    /**
+     * Stop the query executor
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    private ShortestPathSearch acquireSearch() {
+        ShortestPathSearch search = idleSearches.poll();
+        return search != null ? search : new ShortestPathSearch();
+    }
+
+    /**
+     * Virtual threads when the runtime has them (Java 21+), otherwise one platform thread per core
+     */
+    static ExecutorService newQueryExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+                Thread thread = new Thread(runnable, "routing-query");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * An immutable compiled graph together with its version
+     */
+    public static final class Snapshot {
+        private final long version;
+        private final CompactGraph graph;
+        private volatile NameIndex nameIndex; // built on first name search
+        private volatile ContractionHierarchy contractionHierarchy; // built on first CONTRACTION_HIERARCHY query
+        private volatile DistanceOracle distanceOracle; // landmarks only, built on first ALT query
+        private volatile MultiLevelOverlay overlay; // built on first MULTI_LEVEL query unless carried over
+
+        Snapshot(long version, CompactGraph graph, MultiLevelOverlay overlay) {
+            this.version = version;
+            this.graph = graph;
+            this.overlay = overlay;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public CompactGraph getGraph() {
+            return graph;
+        }
+
+        NameIndex nameIndex() {
+            NameIndex index = nameIndex;
+            if (index == null) {
+                // Racing builders produce equal indexes; the last write wins
+                index = new NameIndex();
+                for (int node = 0; node < graph.nodeCount(); node++) {
+                    index.add(graph.name(node));
+                }
+                nameIndex = index;
+            }
+            return index;
+        }
+
+        ContractionHierarchy contractionHierarchy() {
+            ContractionHierarchy hierarchy = contractionHierarchy;
+            if (hierarchy == null) {
+                // Preprocessing is expensive, so racing first queries wait for a single build
+                synchronized (this) {
+                    hierarchy = contractionHierarchy;
+                    if (hierarchy == null) {
+                        hierarchy = ContractionHierarchy.build(graph);
+                        contractionHierarchy = hierarchy;
+                    }
+                }
+            }
+            return hierarchy;
+        }
+
+        DistanceOracle distanceOracle() {
+            DistanceOracle oracle = distanceOracle;
+            if (oracle == null) {
+                synchronized (this) {
+                    oracle = distanceOracle;
+                    if (oracle == null) {
+                        oracle = DistanceOracle.build(graph, Graph.DEFAULT_LANDMARKS);
+                        distanceOracle = oracle;
+                    }
+                }
+            }
+            return oracle;
+        }
+
+        MultiLevelOverlay overlay() {
+            MultiLevelOverlay cells = overlay;
+            if (cells == null) {
+                synchronized (this) {
+                    cells = overlay;
+                    if (cells == null) {
+                        cells = MultiLevelOverlay.build(graph, MultiLevelOverlay.DEFAULT_CELL_SIZE);
+                        overlay = cells;
+                    }
+                }
+            }
+            return cells;
+        }
+    }
+}
@@ -0,0 +1,228 @@
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.*;
+
+/**
+ * ShortestPathRepair class - repairs stored shortest-path trees after path lengths change,
+ * in the manner of Ramalingam and Reps' dynamic shortest paths, instead of searching again.
+ *
+ * A tree is a row of distances and parent pointers over the node ids of a CompactGraph that
+ * already holds the new lengths (Double.MAX_VALUE / -1 for unreached nodes, -1 for the root).
+ * Paths that got longer or closed cut the subtrees hanging from them: those nodes are reset,
+ * seeded from their best neighbour outside the cut, and settled again with a Dijkstra that
+ * also starts from the ends of every path that got shorter or opened. Trees that use no
+ * lengthened path and that no shortened path improves are left untouched.
+ */
+final class ShortestPathRepair {
+    private final CompactGraph graph;
+    private final int[] longerA;
+    private final int[] longerB;
+    private final int[] shorterA;
+    private final int[] shorterB;
+    private final double[] shorterLength;
+    private final Set<Long> longerPairs = new HashSet<>();
+    private final boolean[] longerEnd; // endpoint of a lengthened path, to skip most pair lookups
+
+    /**
+     * Constructor for ShortestPathRepair
+     * @param graph The graph with the new path lengths
+     * @param changes Path changes by location name; several changes to one path are netted
+     */
+    ShortestPathRepair(CompactGraph graph, List<Graph.PathChange> changes) {
+        this.graph = graph;
+        int n = graph.nodeCount();
+        // Net old and new length per path, keyed by its endpoint ids
+        Map<Long, double[]> net = new LinkedHashMap<>();
+        for (Graph.PathChange change : changes) {
+            int a = graph.indexOf(change.getSource());
+            int b = graph.indexOf(change.getDestination());
+            if (a < 0 || b < 0) {
+                throw new IllegalArgumentException("Unknown location in path change: " + change);
+            }
+            double[] lengths = net.computeIfAbsent(pair(a, b, n), key -> new double[] {change.getOldLength(), 0});
+            lengths[1] = change.getNewLength();
+        }
+        int longer = 0;
+        int shorter = 0;
+        for (double[] lengths : net.values()) {
+            if (lengths[1] > lengths[0]) {
+                longer++;
+            } else if (lengths[1] < lengths[0]) {
+                shorter++;
+            }
+        }
+        longerA = new int[longer];
+        longerB = new int[longer];
+        shorterA = new int[shorter];
+        shorterB = new int[shorter];
+        shorterLength = new double[shorter];
+        longerEnd = new boolean[n];
+        longer = 0;
+        shorter = 0;
+        for (Map.Entry<Long, double[]> entry : net.entrySet()) {
+            int a = (int) (entry.getKey() / n);
+            int b = (int) (entry.getKey() % n);
+            double[] lengths = entry.getValue();
+            if (lengths[1] > lengths[0]) {
+                longerA[longer] = a;
+                longerB[longer++] = b;
+                longerPairs.add(entry.getKey());
+                longerEnd[a] = true;
+                longerEnd[b] = true;
+            } else if (lengths[1] < lengths[0]) {
+                shorterA[shorter] = a;
+                shorterB[shorter] = b;
+                shorterLength[shorter++] = lengths[1];
+            }
+        }
+    }
+
+    /**
+     * Whether there is anything to repair
+     * @return true if some path got longer or shorter
+     */
+    boolean isEmpty() {
+        return longerA.length == 0 && shorterA.length == 0;
+    }
+
+    /**
+     * Working state for repairing trees on one thread
+     * @return A new worker
+     */
+    Worker newWorker() {
+        return new Worker(graph.nodeCount());
+    }
+
+    private static long pair(int a, int b, int n) {
+        return (long) Math.min(a, b) * n + Math.max(a, b);
+    }
+
+    private boolean isLonger(int a, int b) {
+        return longerEnd[a] && longerEnd[b] && longerPairs.contains(pair(a, b, graph.nodeCount()));
+    }
+
+    /**
+     * Reusable per-thread arrays; not thread-safe
+     */
+    final class Worker {
+        private final IndexedMinHeap heap;
+        private final int[] seenStamp;
+        private final boolean[] cut;
+        private final int[] chain;
+        private int stamp;
+
+        private Worker(int n) {
+            heap = new IndexedMinHeap(n);
+            seenStamp = new int[n];
+            cut = new boolean[n];
+            chain = new int[n];
+        }
+
+        /**
+         * Repair one tree in place
+         * @param distances Distances from the root, at base + node
+         * @param parents Parent pointers towards the root, at base + node
+         * @param base Offset of the tree in both buffers
+         * @return true if the tree was changed
+         */
+        boolean repair(DoubleBuffer distances, IntBuffer parents, int base) {
+            boolean cuts = false;
+            for (int i = 0; i < longerA.length && !cuts; i++) {
+                cuts = parents.get(base + longerA[i]) == longerB[i] || parents.get(base + longerB[i]) == longerA[i];
+            }
+            boolean improves = false;
+            for (int i = 0; i < shorterA.length && !improves; i++) {
+                double a = distances.get(base + shorterA[i]);
+                double b = distances.get(base + shorterB[i]);
+                improves = a + shorterLength[i] < b || b + shorterLength[i] < a;
+            }
+            if (!cuts && !improves) {
+                return false;
+            }
+            if (cuts) {
+                resetCutSubtrees(distances, parents, base);
+            }
+            for (int i = 0; i < shorterA.length; i++) {
+                improve(distances, parents, base, shorterA[i], shorterB[i], shorterLength[i]);
+                improve(distances, parents, base, shorterB[i], shorterA[i], shorterLength[i]);
+            }
+            while (!heap.isEmpty()) {
+                int current = heap.pop();
+                for (int e = graph.edgeStart(current), end = graph.edgeEnd(current); e < end; e++) {
+                    improve(distances, parents, base, current, graph.edgeTarget(e), graph.edgeWeight(e));
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Mark every node whose tree path crosses a lengthened path, unreach it, then seed
+         * it from its best neighbour outside the cut
+         */
+        private void resetCutSubtrees(DoubleBuffer distances, IntBuffer parents, int base) {
+            int n = seenStamp.length;
+            if (++stamp == 0) {
+                Arrays.fill(seenStamp, 0);
+                stamp = 1;
+            }
+            for (int node = 0; node < n; node++) {
+                // Climb until the fate of the chain is known, then label the whole chain
+                int length = 0;
+                int v = node;
+                boolean inCut = false;
+                while (seenStamp[v] != stamp) {
+                    chain[length++] = v;
+                    int p = parents.get(base + v);
+                    if (p < 0) {
+                        break;
+                    }
+                    if (isLonger(v, p)) {
+                        inCut = true;
+                        break;
+                    }
+                    v = p;
+                }
+                if (seenStamp[v] == stamp) {
+                    inCut = cut[v];
+                }
+                for (int i = 0; i < length; i++) {
+                    seenStamp[chain[i]] = stamp;
+                    cut[chain[i]] = inCut;
+                }
+            }
+            for (int node = 0; node < n; node++) {
+                if (cut[node]) {
+                    distances.put(base + node, Double.MAX_VALUE);
+                    parents.put(base + node, -1);
+                }
+            }
+            for (int node = 0; node < n; node++) {
+                if (!cut[node]) {
+                    continue;
+                }
+                for (int e = graph.edgeStart(node), end = graph.edgeEnd(node); e < end; e++) {
+                    int neighbor = graph.edgeTarget(e);
+                    if (!cut[neighbor]) {
+                        improve(distances, parents, base, neighbor, node, graph.edgeWeight(e));
+                    }
+                }
+            }
+        }
+
+        /**
+         * Relax one edge and queue its head if its distance dropped
+         */
+        private void improve(DoubleBuffer distances, IntBuffer parents, int base, int from, int to, double length) {
+            double fromDistance = distances.get(base + from);
+            if (fromDistance == Double.MAX_VALUE || length == Double.POSITIVE_INFINITY) {
+                return;
+            }
+            double candidate = fromDistance + length;
+            if (candidate < distances.get(base + to)) {
+                distances.put(base + to, candidate);
+                parents.put(base + to, from);
+                heap.push(to, candidate);
+            }
+        }
+    }
+}
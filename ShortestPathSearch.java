@@ -0,0 +1,537 @@
+import java.util.Arrays;
+
+/**
+ * ShortestPathSearch class - reusable Dijkstra state over a CompactGraph.
+ * Arrays are sized once and invalidated with a generation stamp, so a query only
+ * touches the nodes it reaches. An instance is not thread-safe; keep one per thread.
+ */
+final class ShortestPathSearch {
+    private CompactGraph graph;
+    private double[] distance = new double[0];
+    private int[] parent = new int[0];
+    private int[] reachedStamp = new int[0];
+    private int[] settledStamp = new int[0];
+    private int generation;
+    private final IndexedMinHeap heap = new IndexedMinHeap(0);
+    private int[] pathBuffer = new int[16];
+    private int goal = -1; // A* target for the straight-line heuristic, -1 for plain Dijkstra
+    private DistanceOracle landmarks; // tightens the A* heuristic with landmark bounds, null if unused
+    private int settledCount;
+    private int[] bannedNodeStamp = new int[0];
+    private int[] bannedEdgeStamp = new int[0];
+    private int banEpoch = 1;
+    private int[] settledOrder = new int[16]; // nodes settled by runWithin, in order of distance
+    private int[] targetStamp = new int[0]; // equals generation for nodes a one-to-many search waits for
+    private double[] backwardDistance = new double[0]; // search from the target, allocated by the first bidirectional run
+    private int[] backwardParent = new int[0];
+    private int[] backwardReachedStamp = new int[0];
+    private int[] backwardSettledStamp = new int[0];
+    private IndexedMinHeap backwardHeap;
+    private long edgesRelaxed; // cumulative effort; plain fields, read only by RoutingMetrics
+    private long markedEdges;
+    private long markedPushes;
+    private long markedPops;
+
+    /**
+     * Bind this search to a graph, growing the work arrays if needed
+     * @param graph The graph to search
+     */
+    void bind(CompactGraph graph) {
+        if (this.graph == graph) {
+            return;
+        }
+        this.graph = graph;
+        int n = graph.nodeCount();
+        if (n > distance.length) {
+            distance = new double[n];
+            parent = new int[n];
+            reachedStamp = new int[n];
+            settledStamp = new int[n];
+            targetStamp = new int[n];
+            generation = 0;
+            heap.ensureCapacity(n);
+        }
+        if (n > bannedNodeStamp.length || graph.edgeCount() > bannedEdgeStamp.length) {
+            bannedNodeStamp = new int[Math.max(n, bannedNodeStamp.length)];
+            bannedEdgeStamp = new int[Math.max(graph.edgeCount(), bannedEdgeStamp.length)];
+            banEpoch = 1;
+        } else {
+            clearBans();
+        }
+    }
+
+    /**
+     * Lift all node and edge bans
+     */
+    void clearBans() {
+        if (++banEpoch == 0) {
+            Arrays.fill(bannedNodeStamp, 0);
+            Arrays.fill(bannedEdgeStamp, 0);
+            banEpoch = 1;
+        }
+    }
+
+    /**
+     * Exclude a node from subsequent searches until clearBans()
+     * @param node The node id
+     */
+    void banNode(int node) {
+        bannedNodeStamp[node] = banEpoch;
+    }
+
+    /**
+     * Exclude every edge from one node to another from subsequent searches until clearBans()
+     * @param from Tail node id
+     * @param to Head node id
+     */
+    void banEdge(int from, int to) {
+        for (int e = graph.edgeStart(from), end = graph.edgeEnd(from); e < end; e++) {
+            if (graph.edgeTarget(e) == to) {
+                bannedEdgeStamp[e] = banEpoch;
+            }
+        }
+    }
+
+    CompactGraph graph() {
+        return graph;
+    }
+
+    /**
+     * Run Dijkstra from source until target is settled
+     * @param source Source node id
+     * @param target Target node id
+     * @return true if target is reachable
+     */
+    boolean run(int source, int target) {
+        return run(source, target, false);
+    }
+
+    /**
+     * Run a point-to-point search from source until target is settled
+     * @param source Source node id
+     * @param target Target node id
+     * @param goalDirected true for A* with the straight-line distance to target as heuristic
+     * @return true if target is reachable
+     */
+    boolean run(int source, int target, boolean goalDirected) {
+        return run(source, target, goalDirected, Double.MAX_VALUE);
+    }
+
+    /**
+     * Run a point-to-point search, giving up once no path of length at most limit remains
+     * @param source Source node id
+     * @param target Target node id
+     * @param goalDirected true for A* with the straight-line distance to target as heuristic
+     * @param limit Longest acceptable path length
+     * @return true if target is reachable within limit
+     */
+    boolean run(int source, int target, boolean goalDirected, double limit) {
+        goal = goalDirected ? target : -1;
+        start(source);
+        while (!heap.isEmpty()) {
+            if (heap.peekKey() > limit) {
+                break;
+            }
+            int current = heap.pop();
+            settledStamp[current] = generation;
+            settledCount++;
+            if (current == target) {
+                heap.clear();
+                return true;
+            }
+            relax(current);
+        }
+        heap.clear();
+        return false;
+    }
+
+    /**
+     * Run A* with the larger of the straight-line and landmark lower bounds as heuristic.
+     * Both are consistent, so their maximum is too and settled nodes stay final.
+     * @param source Source node id
+     * @param target Target node id
+     * @param oracle Landmarks computed on the bound graph
+     * @return true if target is reachable
+     */
+    boolean runLandmarkGuided(int source, int target, DistanceOracle oracle) {
+        landmarks = oracle;
+        try {
+            return run(source, target, true);
+        } finally {
+            landmarks = null;
+        }
+    }
+
+    /**
+     * Run Dijkstra from both ends at once until the two searches meet in the middle, growing
+     * whichever frontier is smaller. Path lengths are the same in both directions, so the
+     * backward search walks the same edges. Stops once the smallest keys of the two heaps add
+     * up to at least the best path found through a node reached from both sides; that path
+     * is then spliced into the forward tree, so tracePath(target) and distance() work as
+     * after run(). Ignores node and edge bans.
+     * @param source Source node id
+     * @param target Target node id
+     * @return true if target is reachable
+     */
+    boolean runBidirectional(int source, int target) {
+        goal = -1;
+        start(source);
+        if (source == target) {
+            heap.clear();
+            return true;
+        }
+        IndexedMinHeap backward = startBackward(target);
+        double best = Double.MAX_VALUE;
+        int meeting = -1;
+        while (!heap.isEmpty() && !backward.isEmpty()
+                && heap.peekKey() + backward.peekKey() < best) {
+            if (heap.size() <= backward.size()) {
+                int current = heap.pop();
+                settledStamp[current] = generation;
+                settledCount++;
+                double base = distance[current];
+                int first = graph.edgeStart(current);
+                int end = graph.edgeEnd(current);
+                edgesRelaxed += end - first;
+                for (int e = first; e < end; e++) {
+                    int neighbor = graph.edgeTarget(e);
+                    double newDistance = base + graph.edgeWeight(e);
+                    if (settledStamp[neighbor] == generation || newDistance == Double.POSITIVE_INFINITY
+                            || reachedStamp[neighbor] == generation && newDistance >= distance[neighbor]) {
+                        continue;
+                    }
+                    reachedStamp[neighbor] = generation;
+                    distance[neighbor] = newDistance;
+                    parent[neighbor] = current;
+                    heap.push(neighbor, newDistance);
+                    if (backwardReachedStamp[neighbor] == generation && newDistance + backwardDistance[neighbor] < best) {
+                        best = newDistance + backwardDistance[neighbor];
+                        meeting = neighbor;
+                    }
+                }
+            } else {
+                int current = backward.pop();
+                backwardSettledStamp[current] = generation;
+                settledCount++;
+                double base = backwardDistance[current];
+                int first = graph.edgeStart(current);
+                int end = graph.edgeEnd(current);
+                edgesRelaxed += end - first;
+                for (int e = first; e < end; e++) {
+                    int neighbor = graph.edgeTarget(e);
+                    double newDistance = base + graph.edgeWeight(e);
+                    if (backwardSettledStamp[neighbor] == generation || newDistance == Double.POSITIVE_INFINITY
+                            || backwardReachedStamp[neighbor] == generation && newDistance >= backwardDistance[neighbor]) {
+                        continue;
+                    }
+                    backwardReachedStamp[neighbor] = generation;
+                    backwardDistance[neighbor] = newDistance;
+                    backwardParent[neighbor] = current;
+                    backward.push(neighbor, newDistance);
+                    if (reachedStamp[neighbor] == generation && distance[neighbor] + newDistance < best) {
+                        best = distance[neighbor] + newDistance;
+                        meeting = neighbor;
+                    }
+                }
+            }
+        }
+        heap.clear();
+        backward.clear();
+        if (meeting < 0) {
+            return false;
+        }
+        // Hang the backward chain from the meeting node onto the forward tree
+        double toMeeting = distance[meeting];
+        for (int v = meeting, w = backwardParent[v]; w >= 0; v = w, w = backwardParent[w]) {
+            parent[w] = v;
+            distance[w] = toMeeting + backwardDistance[meeting] - backwardDistance[w];
+            reachedStamp[w] = generation;
+        }
+        return true;
+    }
+
+    private IndexedMinHeap startBackward(int target) {
+        int n = distance.length;
+        if (backwardHeap == null || backwardDistance.length < n) {
+            backwardDistance = new double[n];
+            backwardParent = new int[n];
+            backwardReachedStamp = new int[n];
+            backwardSettledStamp = new int[n];
+            if (backwardHeap == null) {
+                backwardHeap = new IndexedMinHeap(n);
+            } else {
+                backwardHeap.ensureCapacity(n);
+            }
+        }
+        backwardHeap.clear();
+        backwardDistance[target] = 0.0;
+        backwardParent[target] = -1;
+        backwardReachedStamp[target] = generation;
+        backwardHeap.push(target, 0.0);
+        return backwardHeap;
+    }
+
+    /**
+     * Run Dijkstra from source, settling every node no further than limit and no other
+     * @param source Source node id
+     * @param limit Largest distance to settle
+     * @return Number of settled nodes written to settledNodes(), nearest first (the source first)
+     */
+    int runWithin(int source, double limit) {
+        goal = -1;
+        start(source);
+        int count = 0;
+        while (!heap.isEmpty() && heap.peekKey() <= limit) {
+            int current = heap.pop();
+            settledStamp[current] = generation;
+            if (count == settledOrder.length) {
+                settledOrder = Arrays.copyOf(settledOrder, count * 2);
+            }
+            settledOrder[count++] = current;
+            relax(current);
+        }
+        settledCount = count;
+        heap.clear();
+        return count;
+    }
+
+    int[] settledNodes() {
+        return settledOrder;
+    }
+
+    /**
+     * Run Dijkstra from source until every listed target is settled, so distance() is final
+     * for all of them without exploring the rest of the graph
+     * @param source Source node id
+     * @param targets Target node ids; negative entries are ignored and duplicates are allowed
+     * @return Number of distinct targets reached
+     */
+    int runToTargets(int source, int[] targets) {
+        goal = -1;
+        start(source);
+        int remaining = 0;
+        for (int target : targets) {
+            if (target >= 0 && targetStamp[target] != generation) {
+                targetStamp[target] = generation;
+                remaining++;
+            }
+        }
+        int reached = 0;
+        while (!heap.isEmpty() && reached < remaining) {
+            int current = heap.pop();
+            settledStamp[current] = generation;
+            settledCount++;
+            if (targetStamp[current] == generation) {
+                reached++;
+            }
+            relax(current);
+        }
+        heap.clear();
+        return reached;
+    }
+
+    /**
+     * Run a time-dependent search: distances become arrival times and every edge is costed
+     * by travelCost at the moment it is entered. Because costs are FIFO, settling nodes in
+     * order of arrival time still yields earliest arrivals. A positive minimumCostPerUnit()
+     * turns on A* with the straight-line distance to target scaled by that bound.
+     * @param source Source node id
+     * @param target Target node id
+     * @param departure Departure time in minutes after midnight
+     * @param travelCost The edge cost function
+     * @return true if target is reachable
+     */
+    boolean runTimeDependent(int source, int target, double departure, TravelCost travelCost) {
+        double perUnit = travelCost.minimumCostPerUnit();
+        goal = perUnit > 0.0 ? target : -1;
+        start(source);
+        distance[source] = departure;
+        heap.clear();
+        heap.push(source, departure + (goal >= 0 ? graph.euclidean(source, goal) * perUnit : 0.0));
+        while (!heap.isEmpty()) {
+            int current = heap.pop();
+            settledStamp[current] = generation;
+            settledCount++;
+            if (current == target) {
+                heap.clear();
+                return true;
+            }
+            relax(current, travelCost, perUnit);
+        }
+        heap.clear();
+        return false;
+    }
+
+    /**
+     * Run Dijkstra from source until every reachable node is settled
+     * @param source Source node id
+     */
+    void runAll(int source) {
+        run(source, -1, false);
+    }
+
+    /**
+     * Predecessor of a node in the shortest-path tree of the last search
+     * @param node A node reached by the last search
+     * @return The parent node id, or -1 for the source
+     */
+    int parent(int node) {
+        return parent[node];
+    }
+
+    /**
+     * Number of nodes settled by the last search
+     * @return Settled node count
+     */
+    int settledCount() {
+        return settledCount;
+    }
+
+    /**
+     * Distance to a node from the last search
+     * @param node The node id
+     * @return Distance, or Double.MAX_VALUE if not reached
+     */
+    double distance(int node) {
+        return reachedStamp[node] == generation ? distance[node] : Double.MAX_VALUE;
+    }
+
+    /**
+     * Walk the parent pointers of the last search back from target
+     * @param target The target node id
+     * @return Number of nodes written to pathNodes(), source first
+     */
+    int tracePath(int target) {
+        int count = 0;
+        for (int v = target; v >= 0; v = parent[v]) {
+            if (count == pathBuffer.length) {
+                pathBuffer = Arrays.copyOf(pathBuffer, count * 2);
+            }
+            pathBuffer[count++] = v;
+        }
+        for (int i = 0, j = count - 1; i < j; i++, j--) {
+            int tmp = pathBuffer[i];
+            pathBuffer[i] = pathBuffer[j];
+            pathBuffer[j] = tmp;
+        }
+        return count;
+    }
+
+    int[] pathNodes() {
+        return pathBuffer;
+    }
+
+    /**
+     * Remember the effort counters, so the effort of the searches that follow can be read
+     */
+    void markEffort() {
+        markedEdges = edgesRelaxed;
+        markedPushes = pushCount();
+        markedPops = popCount();
+    }
+
+    /**
+     * Edges scanned since markEffort(), over every search run in between
+     * @return Edges relaxed
+     */
+    long edgesRelaxedSinceMark() {
+        return edgesRelaxed - markedEdges;
+    }
+
+    /**
+     * Heap inserts and decrease-keys since markEffort()
+     * @return Heap pushes
+     */
+    long heapPushesSinceMark() {
+        return pushCount() - markedPushes;
+    }
+
+    /**
+     * Heap pops, i.e. nodes settled, since markEffort()
+     * @return Heap pops
+     */
+    long heapPopsSinceMark() {
+        return popCount() - markedPops;
+    }
+
+    private long pushCount() {
+        return heap.pushCount() + (backwardHeap == null ? 0 : backwardHeap.pushCount());
+    }
+
+    private long popCount() {
+        return heap.popCount() + (backwardHeap == null ? 0 : backwardHeap.popCount());
+    }
+
+    private void start(int source) {
+        if (++generation == 0) {
+            // Stamp wrapped around; old stamps could alias the new generation
+            Arrays.fill(reachedStamp, 0);
+            Arrays.fill(settledStamp, 0);
+            Arrays.fill(targetStamp, 0);
+            Arrays.fill(backwardReachedStamp, 0);
+            Arrays.fill(backwardSettledStamp, 0);
+            generation = 1;
+        }
+        heap.clear();
+        settledCount = 0;
+        distance[source] = 0.0;
+        parent[source] = -1;
+        reachedStamp[source] = generation;
+        heap.push(source, goal >= 0 ? estimate(source) : 0.0);
+    }
+
+    private double estimate(int node) {
+        double straightLine = graph.euclidean(node, goal);
+        return landmarks == null ? straightLine : Math.max(straightLine, landmarks.lowerBound(node, goal));
+    }
+
+    private void relax(int current) {
+        double base = distance[current];
+        int first = graph.edgeStart(current);
+        int end = graph.edgeEnd(current);
+        edgesRelaxed += end - first;
+        for (int e = first; e < end; e++) {
+            int neighbor = graph.edgeTarget(e);
+            if (settledStamp[neighbor] == generation
+                    || bannedNodeStamp[neighbor] == banEpoch || bannedEdgeStamp[e] == banEpoch) {
+                continue;
+            }
+            double newDistance = base + graph.edgeWeight(e);
+            if (newDistance == Double.POSITIVE_INFINITY) {
+                continue; // closed path
+            }
+            if (reachedStamp[neighbor] != generation || newDistance < distance[neighbor]) {
+                reachedStamp[neighbor] = generation;
+                distance[neighbor] = newDistance;
+                parent[neighbor] = current;
+                // Euclidean edge lengths keep the straight-line heuristic consistent
+                heap.push(neighbor, goal >= 0 ? newDistance + estimate(neighbor) : newDistance);
+            }
+        }
+    }
+
+    private void relax(int current, TravelCost travelCost, double perUnit) {
+        double arrival = distance[current];
+        int first = graph.edgeStart(current);
+        int end = graph.edgeEnd(current);
+        edgesRelaxed += end - first;
+        for (int e = first; e < end; e++) {
+            int neighbor = graph.edgeTarget(e);
+            if (settledStamp[neighbor] == generation
+                    || bannedNodeStamp[neighbor] == banEpoch || bannedEdgeStamp[e] == banEpoch) {
+                continue;
+            }
+            double cost = travelCost.cost(graph, e, arrival);
+            if (cost == Double.POSITIVE_INFINITY) {
+                continue;
+            }
+            double newArrival = arrival + cost;
+            if (reachedStamp[neighbor] != generation || newArrival < distance[neighbor]) {
+                reachedStamp[neighbor] = generation;
+                distance[neighbor] = newArrival;
+                parent[neighbor] = current;
+                heap.push(neighbor, goal >= 0 ? newArrival + graph.euclidean(neighbor, goal) * perUnit : newArrival);
+            }
+        }
+    }
+}
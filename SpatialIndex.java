@@ -0,0 +1,523 @@
+import java.util.*;
+
+/**
+ * SpatialIndex class - a 2-d tree over location coordinates supporting nearest-k,
+ * within-radius and bounding-box queries. Entries are node ids with their coordinates;
+ * queries return node ids.
+ * Insertions are incremental; the tree is kept balanced scapegoat-style by rebuilding
+ * the highest unbalanced subtree on the insertion path whenever an insert lands too deep,
+ * so depth stays O(log n) and inserts are O(log n) amortized.
+ * Not thread-safe for writers; concurrent queries on an unchanging index are safe.
+ */
+final class SpatialIndex {
+    private static final double ALPHA = 0.7; // max share of a subtree one child may hold
+    private static final int NONE = -1;
+
+    private int[] items = new int[16]; // node id in each slot
+    private double[] xs = new double[16];
+    private double[] ys = new double[16];
+    private int[] left = new int[16];
+    private int[] right = new int[16];
+    private int[] size = new int[16]; // subtree size, including replaced entries
+    private boolean[] splitOnY = new boolean[16];
+    private boolean[] replaced = new boolean[16];
+    private int[] slotOf = new int[0]; // slot of each node id, NONE if not indexed
+    private int root = NONE;
+    private int slots;
+    private int replacedCount;
+    private int[] path = new int[64];
+
+    /**
+     * Get the number of indexed locations
+     * @return Number of locations
+     */
+    int size() {
+        return slots - replacedCount;
+    }
+
+    /**
+     * Add a location, or move the indexed location with the same id
+     * @param id The node id
+     * @param x The x coordinate
+     * @param y The y coordinate
+     */
+    void insert(int id, double x, double y) {
+        forget(id);
+        int slot = append(id, x, y);
+        if (replacedCount > slots / 2) {
+            compact(); // also links in the new slot
+            return;
+        }
+        if (root == NONE) {
+            root = slot;
+            splitOnY[slot] = false;
+            return;
+        }
+
+        int depth = 0;
+        int node = root;
+        while (true) {
+            if (depth == path.length) {
+                path = Arrays.copyOf(path, depth * 2);
+            }
+            path[depth++] = node;
+            size[node]++;
+            boolean goLeft = splitOnY[node] ? ys[slot] < ys[node] : xs[slot] < xs[node];
+            int child = goLeft ? left[node] : right[node];
+            if (child == NONE) {
+                if (goLeft) {
+                    left[node] = slot;
+                } else {
+                    right[node] = slot;
+                }
+                splitOnY[slot] = !splitOnY[node];
+                break;
+            }
+            node = child;
+        }
+
+        if (depth > maxDepth(slots)) {
+            // Rebuild at the highest ancestor whose heavier child breaks the alpha balance
+            int scapegoat = -1;
+            int childSize = 1;
+            for (int i = depth - 1; i >= 0; i--) {
+                if (childSize > ALPHA * size[path[i]]) {
+                    scapegoat = i;
+                }
+                childSize = size[path[i]];
+            }
+            if (scapegoat >= 0) {
+                int subtree = path[scapegoat];
+                int rebuilt = rebuild(subtree, splitOnY[subtree]);
+                if (scapegoat == 0) {
+                    root = rebuilt;
+                } else if (left[path[scapegoat - 1]] == subtree) {
+                    left[path[scapegoat - 1]] = rebuilt;
+                } else {
+                    right[path[scapegoat - 1]] = rebuilt;
+                }
+            }
+        }
+    }
+
+    /**
+     * Index node ids 0 .. count - 1, building a balanced tree in one pass
+     * @param xs x coordinate of each node
+     * @param ys y coordinate of each node
+     * @param count Number of nodes
+     */
+    void insertAll(double[] xs, double[] ys, int count) {
+        for (int id = 0; id < count; id++) {
+            forget(id);
+            append(id, xs[id], ys[id]);
+        }
+        compact();
+    }
+
+    /**
+     * Find the k locations closest to a point
+     * @param x Query x coordinate
+     * @param y Query y coordinate
+     * @param k Maximum number of locations to return
+     * @return Node ids ordered by increasing distance (fewer than k if the index is smaller)
+     */
+    int[] nearest(double x, double y, int k) {
+        if (k <= 0 || root == NONE) {
+            return new int[0];
+        }
+        Nearest best = new Nearest(Math.min(k, size()));
+        nearest(root, x, y, best);
+        return best.sorted();
+    }
+
+    /**
+     * Find all locations within a distance of a point
+     * @param x Query x coordinate
+     * @param y Query y coordinate
+     * @param radius Maximum distance (inclusive)
+     * @return Node ids ordered by increasing distance
+     */
+    int[] withinRadius(double x, double y, double radius) {
+        Found found = new Found();
+        if (root != NONE && radius >= 0) {
+            withinRadius(root, x, y, radius * radius, found);
+        }
+        // Order the slots by distance, then map them to node ids
+        Integer[] order = new Integer[found.count];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = found.slots[i];
+        }
+        Arrays.sort(order, Comparator.comparingDouble(slot -> squaredDistance(xs[slot], ys[slot], x, y)));
+        int[] ids = new int[order.length];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = items[order[i]];
+        }
+        return ids;
+    }
+
+    /**
+     * Find all locations inside an axis-aligned box (edges inclusive)
+     * @return Node ids in no particular order
+     */
+    int[] inBox(double minX, double minY, double maxX, double maxY) {
+        Found found = new Found();
+        if (root != NONE) {
+            inBox(root, minX, minY, maxX, maxY, found);
+        }
+        int[] ids = new int[found.count];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = items[found.slots[i]];
+        }
+        return ids;
+    }
+
+    private void nearest(int node, double x, double y, Nearest best) {
+        if (!replaced[node]) {
+            best.offer(node, squaredDistance(xs[node], ys[node], x, y));
+        }
+        double delta = splitOnY[node] ? y - ys[node] : x - xs[node];
+        int near = delta < 0 ? left[node] : right[node];
+        int far = delta < 0 ? right[node] : left[node];
+        if (near != NONE) {
+            nearest(near, x, y, best);
+        }
+        if (far != NONE && (!best.isFull() || delta * delta <= best.worst())) {
+            nearest(far, x, y, best);
+        }
+    }
+
+    private void withinRadius(int node, double x, double y, double radiusSquared, Found found) {
+        if (!replaced[node] && squaredDistance(xs[node], ys[node], x, y) <= radiusSquared) {
+            found.add(node);
+        }
+        double delta = splitOnY[node] ? y - ys[node] : x - xs[node];
+        // Left holds coordinates <= the split, right holds coordinates >= the split
+        if (left[node] != NONE && (delta <= 0 || delta * delta <= radiusSquared)) {
+            withinRadius(left[node], x, y, radiusSquared, found);
+        }
+        if (right[node] != NONE && (delta >= 0 || delta * delta <= radiusSquared)) {
+            withinRadius(right[node], x, y, radiusSquared, found);
+        }
+    }
+
+    private void inBox(int node, double minX, double minY, double maxX, double maxY, Found found) {
+        if (!replaced[node] && xs[node] >= minX && xs[node] <= maxX && ys[node] >= minY && ys[node] <= maxY) {
+            found.add(node);
+        }
+        double split = splitOnY[node] ? ys[node] : xs[node];
+        double min = splitOnY[node] ? minY : minX;
+        double max = splitOnY[node] ? maxY : maxX;
+        if (left[node] != NONE && min <= split) {
+            inBox(left[node], minX, minY, maxX, maxY, found);
+        }
+        if (right[node] != NONE && max >= split) {
+            inBox(right[node], minX, minY, maxX, maxY, found);
+        }
+    }
+
+    /**
+     * Mark the slot of a node id replaced, if it is indexed
+     */
+    private void forget(int id) {
+        if (id < slotOf.length && slotOf[id] != NONE) {
+            replaced[slotOf[id]] = true;
+            replacedCount++;
+        }
+    }
+
+    private int append(int id, double x, double y) {
+        if (slots == items.length) {
+            int capacity = slots * 2;
+            items = Arrays.copyOf(items, capacity);
+            xs = Arrays.copyOf(xs, capacity);
+            ys = Arrays.copyOf(ys, capacity);
+            left = Arrays.copyOf(left, capacity);
+            right = Arrays.copyOf(right, capacity);
+            size = Arrays.copyOf(size, capacity);
+            splitOnY = Arrays.copyOf(splitOnY, capacity);
+            replaced = Arrays.copyOf(replaced, capacity);
+        }
+        int slot = slots++;
+        items[slot] = id;
+        xs[slot] = x;
+        ys[slot] = y;
+        left[slot] = NONE;
+        right[slot] = NONE;
+        size[slot] = 1;
+        replaced[slot] = false;
+        if (id >= slotOf.length) {
+            int length = slotOf.length;
+            slotOf = Arrays.copyOf(slotOf, Math.max(16, Math.max(id + 1, length * 2)));
+            Arrays.fill(slotOf, length, slotOf.length, NONE);
+        }
+        slotOf[id] = slot;
+        return slot;
+    }
+
+    /**
+     * Drop replaced entries and rebuild the whole tree balanced
+     */
+    private void compact() {
+        int live = 0;
+        for (int slot = 0; slot < slots; slot++) {
+            if (!replaced[slot]) {
+                items[live] = items[slot];
+                xs[live] = xs[slot];
+                ys[live] = ys[slot];
+                live++;
+            }
+        }
+        Arrays.fill(replaced, 0, slots, false);
+        slots = live;
+        replacedCount = 0;
+        int[] nodes = new int[live];
+        for (int i = 0; i < live; i++) {
+            nodes[i] = i;
+        }
+        root = build(nodes, live, false);
+        relayout();
+    }
+
+    /**
+     * Renumber slots in depth-first order so a query's path down the tree, and each
+     * small subtree it scans, sits in neighbouring memory rather than at random slots
+     */
+    private void relayout() {
+        int[] order = new int[slots];
+        int[] newSlot = new int[slots];
+        int count = 0;
+        int[] stack = new int[64];
+        int top = 0;
+        if (root != NONE) {
+            stack[top++] = root;
+        }
+        while (top > 0) {
+            int node = stack[--top];
+            newSlot[node] = count;
+            order[count++] = node;
+            if (top + 2 > stack.length) {
+                stack = Arrays.copyOf(stack, stack.length * 2);
+            }
+            if (right[node] != NONE) {
+                stack[top++] = right[node];
+            }
+            if (left[node] != NONE) {
+                stack[top++] = left[node];
+            }
+        }
+
+        int capacity = items.length;
+        int[] newItems = new int[capacity];
+        double[] newXs = new double[capacity];
+        double[] newYs = new double[capacity];
+        int[] newLeft = new int[capacity];
+        int[] newRight = new int[capacity];
+        int[] newSize = new int[capacity];
+        boolean[] newSplitOnY = new boolean[capacity];
+        for (int i = 0; i < count; i++) {
+            int node = order[i];
+            newItems[i] = items[node];
+            newXs[i] = xs[node];
+            newYs[i] = ys[node];
+            newLeft[i] = left[node] == NONE ? NONE : newSlot[left[node]];
+            newRight[i] = right[node] == NONE ? NONE : newSlot[right[node]];
+            newSize[i] = size[node];
+            newSplitOnY[i] = splitOnY[node];
+            slotOf[newItems[i]] = i;
+        }
+        items = newItems;
+        xs = newXs;
+        ys = newYs;
+        left = newLeft;
+        right = newRight;
+        size = newSize;
+        splitOnY = newSplitOnY;
+        root = count == 0 ? NONE : 0;
+    }
+
+    /**
+     * Rebuild a subtree balanced, reusing its slots
+     * @return The new subtree root
+     */
+    private int rebuild(int subtree, boolean onY) {
+        int[] nodes = new int[size[subtree]];
+        int count = 0;
+        int[] stack = new int[64];
+        int top = 0;
+        stack[top++] = subtree;
+        while (top > 0) {
+            int node = stack[--top];
+            nodes[count++] = node;
+            if (top + 2 > stack.length) {
+                stack = Arrays.copyOf(stack, stack.length * 2);
+            }
+            if (left[node] != NONE) {
+                stack[top++] = left[node];
+            }
+            if (right[node] != NONE) {
+                stack[top++] = right[node];
+            }
+        }
+        return build(nodes, count, onY);
+    }
+
+    /**
+     * Build a balanced tree over the given slots.
+     * Coordinates are copied next to the slot ids first so the median selections scan
+     * contiguous memory instead of jumping around the slot arrays.
+     */
+    private int build(int[] nodes, int count, boolean onY) {
+        double[] px = new double[count];
+        double[] py = new double[count];
+        for (int i = 0; i < count; i++) {
+            px[i] = xs[nodes[i]];
+            py[i] = ys[nodes[i]];
+        }
+        return build(nodes, px, py, 0, count, onY);
+    }
+
+    private int build(int[] nodes, double[] px, double[] py, int from, int to, boolean onY) {
+        if (from >= to) {
+            return NONE;
+        }
+        int mid = (from + to) >>> 1;
+        select(nodes, onY ? py : px, onY ? px : py, from, to - 1, mid);
+        int node = nodes[mid];
+        splitOnY[node] = onY;
+        size[node] = to - from;
+        left[node] = build(nodes, px, py, from, mid, !onY);
+        right[node] = build(nodes, px, py, mid + 1, to, !onY);
+        return node;
+    }
+
+    /**
+     * Quickselect on keys, permuting nodes and other alongside: afterwards position k
+     * holds the median, with keys <= it before and >= it after
+     */
+    private static void select(int[] nodes, double[] keys, double[] other, int lo, int hi, int k) {
+        while (lo < hi) {
+            double pivot = keys[(lo + hi) >>> 1];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (keys[i] < pivot) i++;
+                while (keys[j] > pivot) j--;
+                if (i <= j) {
+                    int node = nodes[i];
+                    nodes[i] = nodes[j];
+                    nodes[j] = node;
+                    double key = keys[i];
+                    keys[i] = keys[j];
+                    keys[j] = key;
+                    double value = other[i];
+                    other[i++] = other[j];
+                    other[j--] = value;
+                }
+            }
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                break;
+            }
+        }
+    }
+
+    private static int maxDepth(int count) {
+        return (int) (Math.log(count) / Math.log(1 / ALPHA)) + 1;
+    }
+
+    private static double squaredDistance(double ax, double ay, double bx, double by) {
+        double dx = ax - bx;
+        double dy = ay - by;
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * Bounded max-heap of the best k candidates found so far
+     */
+    private final class Nearest {
+        private final int[] nodes;
+        private final double[] distances;
+        private int count;
+
+        Nearest(int k) {
+            nodes = new int[k];
+            distances = new double[k];
+        }
+
+        boolean isFull() {
+            return count == nodes.length;
+        }
+
+        double worst() {
+            return distances[0];
+        }
+
+        void offer(int node, double distance) {
+            if (!isFull()) {
+                int i = count++;
+                while (i > 0 && distances[(i - 1) / 2] < distance) {
+                    nodes[i] = nodes[(i - 1) / 2];
+                    distances[i] = distances[(i - 1) / 2];
+                    i = (i - 1) / 2;
+                }
+                nodes[i] = node;
+                distances[i] = distance;
+            } else if (distance < distances[0]) {
+                int i = 0;
+                while (true) {
+                    int child = 2 * i + 1;
+                    if (child >= count) break;
+                    if (child + 1 < count && distances[child + 1] > distances[child]) child++;
+                    if (distances[child] <= distance) break;
+                    nodes[i] = nodes[child];
+                    distances[i] = distances[child];
+                    i = child;
+                }
+                nodes[i] = node;
+                distances[i] = distance;
+            }
+        }
+
+        int[] sorted() {
+            // Pop the farthest candidate repeatedly, filling the result from the back
+            int[] result = new int[count];
+            while (count > 0) {
+                result[count - 1] = items[nodes[0]];
+                int last = --count;
+                int node = nodes[last];
+                double distance = distances[last];
+                int i = 0;
+                while (true) {
+                    int child = 2 * i + 1;
+                    if (child >= count) break;
+                    if (child + 1 < count && distances[child + 1] > distances[child]) child++;
+                    if (distances[child] <= distance) break;
+                    nodes[i] = nodes[child];
+                    distances[i] = distances[child];
+                    i = child;
+                }
+                nodes[i] = node;
+                distances[i] = distance;
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Growable list of slots matched by a range query
+     */
+    private static final class Found {
+        private int[] slots = new int[16];
+        private int count;
+
+        void add(int slot) {
+            if (count == slots.length) {
+                slots = Arrays.copyOf(slots, count * 2);
+            }
+            slots[count++] = slot;
+        }
+    }
+}
@@ -0,0 +1,286 @@
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * TourOptimizer class - chooses the order in which to visit stops, given the symmetric
+ * matrix of shortest distances between them. Stop 0 is always visited first; the tour either
+ * ends anywhere or returns to stop 0.
+ *
+ * Up to EXACT_LIMIT stops the order is optimal (Held-Karp dynamic programming). Beyond that,
+ * several restarts run in parallel on the common fork-join pool: the first from the plain
+ * nearest-neighbour tour, the others from randomised nearest-neighbour tours, each improved
+ * with 2-opt and Or-opt moves until neither helps. Restarts are seeded by their index and
+ * the shortest tour wins, ties to the lowest index, so results do not depend on scheduling.
+ */
+final class TourOptimizer {
+    static final int EXACT_LIMIT = 12;
+    private static final double EPSILON = 1e-9;
+    private static final int OR_OPT_MAX_SEGMENT = 3;
+
+    private final double[][] distances;
+    private final boolean closed;
+    private final int n;
+
+    /**
+     * Constructor for TourOptimizer
+     * @param distances distances[i][j] between stops i and j; all finite
+     * @param closed true to return to stop 0 at the end
+     */
+    TourOptimizer(double[][] distances, boolean closed) {
+        this.distances = distances;
+        this.closed = closed;
+        this.n = distances.length;
+    }
+
+    /**
+     * Find a short visiting order
+     * @param restarts Number of local-search restarts when the exact search does not apply
+     * @return Stop indices in visiting order, starting with 0 (without repeating it at the end)
+     */
+    int[] optimize(int restarts) {
+        if (n <= 2) {
+            return n == 2 ? new int[] {0, 1} : new int[n]; // no choice to make
+        }
+        if (n <= EXACT_LIMIT) {
+            return heldKarp();
+        }
+        int[][] tours = new int[Math.max(1, restarts)][];
+        ForkJoinPool.commonPool().invoke(new Restarts(tours, 0, tours.length));
+        int[] best = tours[0];
+        for (int r = 1; r < tours.length; r++) {
+            if (length(tours[r]) < length(best) - EPSILON) {
+                best = tours[r];
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Length of a tour in this optimizer's matrix
+     * @param order Stop indices in visiting order
+     * @return Total distance, including the way back to the first stop if closed
+     */
+    double length(int[] order) {
+        double total = 0.0;
+        for (int i = 0; i + 1 < order.length; i++) {
+            total += distances[order[i]][order[i + 1]];
+        }
+        if (closed && order.length > 1) {
+            total += distances[order[order.length - 1]][order[0]];
+        }
+        return total;
+    }
+
+    /**
+     * Exact dynamic programme over subsets of the stops after stop 0
+     */
+    private int[] heldKarp() {
+        int m = n - 1;
+        int full = (1 << m) - 1;
+        double[][] best = new double[1 << m][m]; // best[set][j]: from 0 through set, ending at stop j + 1
+        int[][] previous = new int[1 << m][m];
+        for (double[] row : best) {
+            Arrays.fill(row, Double.MAX_VALUE);
+        }
+        for (int j = 0; j < m; j++) {
+            best[1 << j][j] = distances[0][j + 1];
+            previous[1 << j][j] = -1;
+        }
+        for (int set = 1; set <= full; set++) {
+            for (int j = 0; j < m; j++) {
+                double here = best[set][j];
+                if ((set & (1 << j)) == 0 || here == Double.MAX_VALUE) {
+                    continue;
+                }
+                for (int k = 0; k < m; k++) {
+                    if ((set & (1 << k)) != 0) {
+                        continue;
+                    }
+                    int next = set | (1 << k);
+                    double candidate = here + distances[j + 1][k + 1];
+                    if (candidate < best[next][k]) {
+                        best[next][k] = candidate;
+                        previous[next][k] = j;
+                    }
+                }
+            }
+        }
+        int last = 0;
+        double shortest = Double.MAX_VALUE;
+        for (int j = 0; j < m; j++) {
+            double total = best[full][j] + (closed ? distances[j + 1][0] : 0.0);
+            if (total < shortest) {
+                shortest = total;
+                last = j;
+            }
+        }
+        int[] order = new int[n];
+        for (int i = n - 1, set = full, j = last; i >= 1; i--) {
+            order[i] = j + 1;
+            int before = previous[set][j];
+            set &= ~(1 << j);
+            j = before;
+        }
+        return order;
+    }
+
+    /**
+     * Nearest-neighbour tour from stop 0; with a random source, each step picks at random
+     * among the three nearest unvisited stops
+     */
+    private int[] nearestNeighbour(SplittableRandom random) {
+        int[] order = new int[n];
+        boolean[] visited = new boolean[n];
+        visited[0] = true;
+        int[] candidates = new int[3];
+        for (int i = 1; i < n; i++) {
+            int from = order[i - 1];
+            int found = 0;
+            for (int s = 0; s < n; s++) {
+                double d = distances[from][s];
+                if (visited[s] || found == candidates.length && d >= distances[from][candidates[found - 1]]) {
+                    continue;
+                }
+                // Keep the nearest few, sorted by distance
+                int pos = found < candidates.length ? found++ : found - 1;
+                while (pos > 0 && d < distances[from][candidates[pos - 1]]) {
+                    candidates[pos] = candidates[pos - 1];
+                    pos--;
+                }
+                candidates[pos] = s;
+            }
+            int pick = random == null ? 0 : random.nextInt(found);
+            order[i] = candidates[pick];
+            visited[order[i]] = true;
+        }
+        return order;
+    }
+
+    /**
+     * Apply improving 2-opt and Or-opt moves until none is left
+     */
+    private void improve(int[] order) {
+        boolean improved = true;
+        while (improved) {
+            improved = twoOpt(order) || orOpt(order);
+        }
+    }
+
+    /**
+     * Reverse the first segment order[i..j] whose reversal shortens the tour
+     */
+    private boolean twoOpt(int[] order) {
+        for (int i = 1; i < n - 1; i++) {
+            int a = order[i - 1];
+            int b = order[i];
+            for (int j = i + 1; j < n; j++) {
+                int c = order[j];
+                int e = next(order, j);
+                double delta = distances[a][c] - distances[a][b] + link(b, e) - link(c, e);
+                if (delta < -EPSILON) {
+                    reverse(order, i, j);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Move the first segment of up to three stops whose relocation elsewhere, in either
+     * direction, shortens the tour
+     */
+    private boolean orOpt(int[] order) {
+        for (int length = 1; length <= OR_OPT_MAX_SEGMENT && length < n - 1; length++) {
+            for (int i = 1; i + length <= n; i++) {
+                int first = order[i];
+                int last = order[i + length - 1];
+                int before = order[i - 1];
+                int after = next(order, i + length - 1);
+                double removed = distances[before][first] + link(last, after) - link(before, after);
+                for (int p = 0; p < n; p++) {
+                    if (p >= i - 1 && p < i + length) {
+                        continue; // the gap the segment came from, or inside it
+                    }
+                    int x = order[p];
+                    int y = next(order, p);
+                    double forward = distances[x][first] + link(last, y) - link(x, y);
+                    double backward = distances[x][last] + link(first, y) - link(x, y);
+                    if (forward < removed - EPSILON || backward < removed - EPSILON) {
+                        move(order, i, length, p, backward < forward);
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Stop after position i, or -1 at the end of an open tour
+     */
+    private int next(int[] order, int i) {
+        return i + 1 < n ? order[i + 1] : closed ? order[0] : -1;
+    }
+
+    /**
+     * Distance of a tour edge, 0 for the missing edge after the end of an open tour
+     */
+    private double link(int from, int to) {
+        return from < 0 || to < 0 ? 0.0 : distances[from][to];
+    }
+
+    private static void reverse(int[] order, int i, int j) {
+        for (; i < j; i++, j--) {
+            int tmp = order[i];
+            order[i] = order[j];
+            order[j] = tmp;
+        }
+    }
+
+    /**
+     * Take order[i .. i + length - 1] out and put it back after the stop now at position p
+     */
+    private static void move(int[] order, int i, int length, int p, boolean reversed) {
+        int[] segment = Arrays.copyOfRange(order, i, i + length);
+        if (reversed) {
+            reverse(segment, 0, length - 1);
+        }
+        int[] rest = new int[order.length - length];
+        System.arraycopy(order, 0, rest, 0, i);
+        System.arraycopy(order, i + length, rest, i, order.length - i - length);
+        int insertAt = (p < i ? p : p - length) + 1;
+        System.arraycopy(rest, 0, order, 0, insertAt);
+        System.arraycopy(segment, 0, order, insertAt, length);
+        System.arraycopy(rest, insertAt, order, insertAt + length, rest.length - insertAt);
+    }
+
+    /**
+     * Fork-join task running a range of restarts
+     */
+    private final class Restarts extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int[][] tours;
+        private final int from;
+        private final int to;
+
+        Restarts(int[][] tours, int from, int to) {
+            this.tours = tours;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new Restarts(tours, from, mid), new Restarts(tours, mid, to));
+                return;
+            }
+            int[] order = nearestNeighbour(from == 0 ? null : new SplittableRandom(from));
+            improve(order);
+            tours[from] = order;
+        }
+    }
+}
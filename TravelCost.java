@@ -0,0 +1,28 @@
+/**
+ * TravelCost interface - the cost of walking an edge of a compiled graph, evaluated inside
+ * the route search. Costs are in minutes and may depend on the time the edge is entered
+ * (minutes after midnight of the departure day, possibly beyond 1440 on long trips).
+ *
+ * For time-dependent search a cost must be FIFO: entering an edge later never means
+ * leaving it earlier, i.e. time + cost(time) does not decrease as time grows. Waiting
+ * for a closed path to reopen satisfies this.
+ */
+public interface TravelCost {
+    /**
+     * Minutes needed to walk an edge when entering it at a given time
+     * @param graph The compiled graph
+     * @param edge The edge id
+     * @param time Time the edge is entered, in minutes after midnight
+     * @return Non-negative cost in minutes, or Double.POSITIVE_INFINITY if the edge cannot be used
+     */
+    double cost(CompactGraph graph, int edge, double time);
+
+    /**
+     * A lower bound on the cost of covering one unit of straight-line distance, used as an
+     * A* heuristic. Returning 0 disables goal direction.
+     * @return Minutes per coordinate unit, never more than any edge's cost over its length
+     */
+    default double minimumCostPerUnit() {
+        return 0.0;
+    }
+}
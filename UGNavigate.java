@@ -19,6 +19,15 @@ public class UGNavigate {
         initializeCampusLocations();
     }
     
+    /**
+     * Constructor for UGNavigate over a map loaded from files
+     * @param campusGraph The graph to navigate, e.g. from GraphLoader
+     */
+    public UGNavigate(Graph campusGraph) {
+        this.campusGraph = campusGraph;
+        this.scanner = new Scanner(System.in);
+    }
+    
     /**
      * Initialize the campus with sample locations
      */
@@ -44,6 +53,14 @@ public class UGNavigate {
         campusGraph.addPath("Engineering Building", "Volta Hall");
     }
     
+    /**
+     * Get the campus graph
+     * @return The graph holding all campus locations and paths
+     */
+    public Graph getCampusGraph() {
+        return campusGraph;
+    }
+    
     /**
      * Get user input for source and destination locations
      */
@@ -97,9 +114,23 @@ public class UGNavigate {
             System.out.print(prompt);
             location = scanner.nextLine().trim();
             
+            Location snapped = snapCoordinates(location);
+            if (snapped != null) {
+                System.out.println("📍 Nearest location: " + snapped);
+                location = snapped.getName();
+            }
+            
             if (!campusGraph.locationExists(location)) {
+                List<String> suggestions = campusGraph.suggestLocationNames(location, 5);
+                if (!suggestions.isEmpty() && NameIndex.fold(suggestions.get(0)).equals(NameIndex.fold(location))) {
+                    location = suggestions.get(0); // only the case or spacing differed
+                    break;
+                }
                 System.out.println("❌ Location '" + location + "' not found on campus.");
-                System.out.println("Please choose from the available locations listed above.");
+                if (!suggestions.isEmpty()) {
+                    System.out.println("Did you mean: " + String.join(", ", suggestions) + "?");
+                }
+                System.out.println("Please choose from the available locations listed above, or enter coordinates as x, y.");
                 System.out.println();
             }
         } while (!campusGraph.locationExists(location));
@@ -107,6 +138,25 @@ public class UGNavigate {
         return location;
     }
     
+    /**
+     * Snap input of the form "x, y" to the nearest campus location
+     * @param input The user input
+     * @return The nearest Location, or null if the input is not a coordinate pair
+     */
+    private Location snapCoordinates(String input) {
+        String[] parts = input.split(",");
+        if (parts.length != 2 || campusGraph.locationExists(input)) {
+            return null;
+        }
+        try {
+            double x = Double.parseDouble(parts[0].trim());
+            double y = Double.parseDouble(parts[1].trim());
+            return campusGraph.findNearestLocation(x, y);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+    
     /**
      * Find and display the shortest route between two locations using Dijkstra's algorithm
      * @param source The starting location name
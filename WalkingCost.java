@@ -0,0 +1,62 @@
+/**
+ * WalkingCost class - walking time over path attributes.
+ * Slope follows Tobler's hiking function (fastest on a gentle 5% descent), stairs and
+ * open-air stretches are slowed by configurable factors, and a path that is closed when
+ * reached is waited on until it reopens. Coordinates are taken to be in metres.
+ */
+public final class WalkingCost implements TravelCost {
+    private static final double MINUTES_PER_DAY = 24 * 60;
+    // Tobler: speed = 6 * exp(-3.5 * |grade + 0.05|) km/h; this is its peak over its flat-ground value
+    private static final double MAX_SLOPE_SPEEDUP = Math.exp(3.5 * 0.05);
+
+    private final double minutesPerMetre;
+    private final double stairsFactor;
+    private final double uncoveredFactor;
+
+    /**
+     * Constructor for WalkingCost with stairs taking twice as long and no preference for cover
+     * @param walkingSpeedKmh Walking speed on flat ground in km/h
+     */
+    public WalkingCost(double walkingSpeedKmh) {
+        this(walkingSpeedKmh, 2.0, 1.0);
+    }
+
+    /**
+     * Constructor for WalkingCost
+     * @param walkingSpeedKmh Walking speed on flat ground in km/h
+     * @param stairsFactor Time multiplier on paths with stairs (Double.POSITIVE_INFINITY to avoid stairs)
+     * @param uncoveredFactor Time multiplier on open-air paths (e.g. above 1 to prefer cover when raining)
+     */
+    public WalkingCost(double walkingSpeedKmh, double stairsFactor, double uncoveredFactor) {
+        if (walkingSpeedKmh <= 0 || stairsFactor <= 0 || uncoveredFactor <= 0) {
+            throw new IllegalArgumentException("Speed and factors must be positive");
+        }
+        this.minutesPerMetre = 60.0 / (walkingSpeedKmh * 1000.0);
+        this.stairsFactor = stairsFactor;
+        this.uncoveredFactor = uncoveredFactor;
+    }
+
+    @Override
+    public double cost(CompactGraph graph, int edge, double time) {
+        double minutes = graph.edgeWeight(edge) * minutesPerMetre;
+        if (graph.hasEdgeAttributes()) {
+            double grade = graph.edgeGrade(edge);
+            if (grade != 0.0) {
+                minutes *= Math.exp(3.5 * Math.abs(grade + 0.05)) / MAX_SLOPE_SPEEDUP;
+            }
+            if (graph.edgeHasStairs(edge)) {
+                minutes *= stairsFactor;
+            }
+            if (!graph.edgeIsCovered(edge)) {
+                minutes *= uncoveredFactor;
+            }
+            minutes += graph.minutesUntilEdgeOpens(edge, time % MINUTES_PER_DAY);
+        }
+        return minutes;
+    }
+
+    @Override
+    public double minimumCostPerUnit() {
+        return minutesPerMetre / MAX_SLOPE_SPEEDUP * Math.min(1.0, Math.min(stairsFactor, uncoveredFactor));
+    }
+}
@@ -0,0 +1,140 @@
+package edu.ug.navigate.benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.List;
+
+/**
+ * Typed access to the application classes. They live in the default package, which
+ * cannot be imported from a named package (and JMH requires one), so the public
+ * methods are bound once through method handles. The handles are static final, so
+ * the JIT inlines calls through them like direct calls.
+ */
+final class GraphApi {
+    private static final MethodHandle NEW_GRAPH;
+    private static final MethodHandle NEW_LOCATION;
+    private static final MethodHandle ADD_LOCATION;
+    private static final MethodHandle ADD_PATH;
+    private static final MethodHandle FIND_SHORTEST_PATH;
+    private static final MethodHandle ROUTE_OPTIONS;
+    private static final MethodHandle PATH_DISTANCE;
+    private static final MethodHandle NODES_SETTLED;
+    private static final Class<?> ALGORITHM;
+
+    static {
+        try {
+            ClassLoader loader = GraphApi.class.getClassLoader();
+            Class<?> graph = Class.forName("Graph", false, loader);
+            Class<?> location = Class.forName("Location", false, loader);
+            ALGORITHM = Class.forName("Graph$SearchAlgorithm", false, loader);
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+
+            NEW_GRAPH = lookup.findConstructor(graph, MethodType.methodType(void.class))
+                .asType(MethodType.methodType(Object.class));
+            NEW_LOCATION = lookup.findConstructor(location,
+                    MethodType.methodType(void.class, String.class, String.class, double.class, double.class))
+                .asType(MethodType.methodType(Object.class, String.class, String.class, double.class, double.class));
+            ADD_LOCATION = lookup.findVirtual(graph, "addLocation", MethodType.methodType(void.class, location))
+                .asType(MethodType.methodType(void.class, Object.class, Object.class));
+            ADD_PATH = lookup.findVirtual(graph, "addPath",
+                    MethodType.methodType(void.class, String.class, String.class))
+                .asType(MethodType.methodType(void.class, Object.class, String.class, String.class));
+            FIND_SHORTEST_PATH = lookup.findVirtual(graph, "findShortestPath",
+                    MethodType.methodType(List.class, String.class, String.class, ALGORITHM))
+                .asType(MethodType.methodType(List.class, Object.class, String.class, String.class, Object.class));
+            ROUTE_OPTIONS = lookup.findVirtual(graph, "findRouteOptionsSortedByTime",
+                    MethodType.methodType(List.class, String.class, String.class, double.class))
+                .asType(MethodType.methodType(List.class, Object.class, String.class, String.class, double.class));
+            PATH_DISTANCE = lookup.findVirtual(graph, "getPathDistance",
+                    MethodType.methodType(double.class, List.class))
+                .asType(MethodType.methodType(double.class, Object.class, List.class));
+            NODES_SETTLED = lookup.findVirtual(graph, "getLastNodesSettled", MethodType.methodType(int.class))
+                .asType(MethodType.methodType(int.class, Object.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private GraphApi() {
+    }
+
+    static Object newGraph() {
+        try {
+            return (Object) NEW_GRAPH.invokeExact();
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static void addLocation(Object graph, String name, String type, double x, double y) {
+        try {
+            Object location = (Object) NEW_LOCATION.invokeExact(name, type, x, y);
+            ADD_LOCATION.invokeExact(graph, location);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static void addPath(Object graph, String source, String destination) {
+        try {
+            ADD_PATH.invokeExact(graph, source, destination);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    /**
+     * Look up a Graph.SearchAlgorithm constant by name
+     * @param name The constant name, e.g. DIJKSTRA
+     * @return The enum constant
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static Object algorithm(String name) {
+        return Enum.valueOf((Class) ALGORITHM, name);
+    }
+
+    @SuppressWarnings("unchecked")
+    static List<String> findShortestPath(Object graph, String source, String destination, Object algorithm) {
+        try {
+            return (List<String>) FIND_SHORTEST_PATH.invokeExact(graph, source, destination, algorithm);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static List<?> findRouteOptionsSortedByTime(Object graph, String source, String destination,
+                                                double walkingSpeedKmh) {
+        try {
+            return (List<?>) ROUTE_OPTIONS.invokeExact(graph, source, destination, walkingSpeedKmh);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static double getPathDistance(Object graph, List<String> path) {
+        try {
+            return (double) PATH_DISTANCE.invokeExact(graph, path);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static int getLastNodesSettled(Object graph) {
+        try {
+            return (int) NODES_SETTLED.invokeExact(graph);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    private static RuntimeException rethrow(Throwable t) {
+        if (t instanceof RuntimeException) {
+            return (RuntimeException) t;
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        return new IllegalStateException(t);
+    }
+}
@@ -0,0 +1,77 @@
+package edu.ug.navigate.benchmarks;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Graph edits: addPath between random existing locations, and a full graph build
+ * through addLocation/addPath. The graph is rebuilt before every iteration so adjacency
+ * lists do not keep growing across the run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class GraphEditBenchmark {
+    private static final int PAIR_COUNT = 4096;
+
+    @Param({"GRID", "GEOMETRIC", "SCALE_FREE"})
+    public String topology;
+
+    @Param({"100", "1000", "10000", "100000", "1000000"})
+    public int nodes;
+
+    private SyntheticGraph synthetic;
+    private Object graph;
+    private String[] sources;
+    private String[] destinations;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        synthetic = SyntheticGraph.generate(SyntheticGraph.Topology.valueOf(topology), nodes, 42);
+        SplittableRandom random = new SplittableRandom(7);
+        sources = new String[PAIR_COUNT];
+        destinations = new String[PAIR_COUNT];
+        for (int i = 0; i < PAIR_COUNT; i++) {
+            sources[i] = SyntheticGraph.name(random.nextInt(nodes));
+            destinations[i] = SyntheticGraph.name(random.nextInt(nodes));
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void rebuild() {
+        graph = synthetic.toGraph();
+    }
+
+    @Benchmark
+    public Object addPath() {
+        int pair = next;
+        next = (pair + 1) & (PAIR_COUNT - 1);
+        GraphApi.addPath(graph, sources[pair], destinations[pair]);
+        return graph;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Measurement(iterations = 5)
+    public Object buildGraph() {
+        return synthetic.toGraph();
+    }
+}
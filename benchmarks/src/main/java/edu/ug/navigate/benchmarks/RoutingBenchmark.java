@@ -0,0 +1,118 @@
+package edu.ug.navigate.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Read-only routing queries on a synthetic graph. Throughput and sampled latency
+ * (p50/p90/p99/p99.9) are reported for every query; add -prof gc for allocation rate.
+ * Only findShortestPath runs once per search algorithm (the Search state's parameter);
+ * its setup also prints the mean number of nodes the algorithm settles over the query
+ * set, to compare search effort independently of timing noise.
+ *
+ * The full parameter space is large; narrow it for a quick run, e.g.
+ *   java -jar benchmarks.jar RoutingBenchmark -p topology=GRID -p nodes=10000
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class RoutingBenchmark {
+    private static final int QUERY_COUNT = 1024;
+    private static final double WALKING_SPEED_KMH = 5.0;
+
+    @Param({"GRID", "GEOMETRIC", "SCALE_FREE"})
+    public String topology;
+
+    @Param({"100", "1000", "10000", "100000", "1000000"})
+    public int nodes;
+
+    private Object graph;
+    private String[] sources;
+    private String[] destinations;
+    private List<List<String>> paths;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SyntheticGraph synthetic = SyntheticGraph.generate(SyntheticGraph.Topology.valueOf(topology), nodes, 42);
+        graph = synthetic.toGraph();
+        Object dijkstra = GraphApi.algorithm("DIJKSTRA");
+
+        // Endpoints come from the largest component so every query finds a route
+        SplittableRandom random = new SplittableRandom(7);
+        sources = new String[QUERY_COUNT];
+        destinations = new String[QUERY_COUNT];
+        paths = new ArrayList<>(QUERY_COUNT);
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            sources[i] = SyntheticGraph.name(synthetic.connected[random.nextInt(synthetic.connected.length)]);
+            destinations[i] = SyntheticGraph.name(synthetic.connected[random.nextInt(synthetic.connected.length)]);
+            paths.add(GraphApi.findShortestPath(graph, sources[i], destinations[i], dijkstra));
+        }
+    }
+
+    /**
+     * The search algorithm parameter, kept out of the main state so benchmarks that do not
+     * search (or always search the same way) are not repeated for every algorithm, and
+     * preprocessing such as ALT landmarks only happens for the algorithm that uses it
+     */
+    @State(Scope.Benchmark)
+    public static class Search {
+        @Param({"DIJKSTRA", "A_STAR", "BIDIRECTIONAL", "ALT"})
+        public String algorithm;
+
+        private Object searchAlgorithm;
+
+        @Setup(Level.Trial)
+        public void setUp(RoutingBenchmark routing) {
+            searchAlgorithm = GraphApi.algorithm(algorithm);
+            long settled = 0;
+            for (int i = 0; i < QUERY_COUNT; i++) {
+                GraphApi.findShortestPath(routing.graph, routing.sources[i], routing.destinations[i], searchAlgorithm);
+                settled += GraphApi.getLastNodesSettled(routing.graph);
+            }
+            System.out.printf("%n%s on %s/%d: %.1f nodes settled per query%n",
+                algorithm, routing.topology, routing.nodes, (double) settled / QUERY_COUNT);
+        }
+    }
+
+    private int nextQuery() {
+        int query = next;
+        next = (query + 1) & (QUERY_COUNT - 1);
+        return query;
+    }
+
+    @Benchmark
+    public List<String> findShortestPath(Search search) {
+        int query = nextQuery();
+        return GraphApi.findShortestPath(graph, sources[query], destinations[query], search.searchAlgorithm);
+    }
+
+    @Benchmark
+    public List<?> findRouteOptionsSortedByTime() {
+        int query = nextQuery();
+        return GraphApi.findRouteOptionsSortedByTime(graph, sources[query], destinations[query], WALKING_SPEED_KMH);
+    }
+
+    @Benchmark
+    public double getPathDistance() {
+        return GraphApi.getPathDistance(graph, paths.get(nextQuery()));
+    }
+}
@@ -0,0 +1,251 @@
+package edu.ug.navigate.benchmarks;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Seeded, campus-like synthetic topology: node coordinates in metres plus an undirected
+ * edge list. Generation is independent of the application classes, so the same topology
+ * can be loaded into a Graph as many times as a benchmark needs.
+ */
+final class SyntheticGraph {
+    /** Spacing of the grid and mean spacing of the random layouts, in metres */
+    private static final double SPACING = 25.0;
+
+    /**
+     * Topologies to generate
+     */
+    enum Topology {
+        /** Street grid with jittered junctions and about 10% of blocks merged */
+        GRID,
+        /** Random geometric graph: points joined when closer than a radius, mean degree about 6 */
+        GEOMETRIC,
+        /** Barabasi-Albert preferential attachment with 2 links per new node, placed at random */
+        SCALE_FREE
+    }
+
+    final int nodeCount;
+    final double[] xs;
+    final double[] ys;
+    final int[] edgeFrom;
+    final int[] edgeTo;
+    final int edgeCount;
+    /** Nodes in the largest connected component, for choosing query endpoints */
+    final int[] connected;
+
+    private SyntheticGraph(double[] xs, double[] ys, int[] edgeFrom, int[] edgeTo, int edgeCount) {
+        this.nodeCount = xs.length;
+        this.xs = xs;
+        this.ys = ys;
+        this.edgeFrom = edgeFrom;
+        this.edgeTo = edgeTo;
+        this.edgeCount = edgeCount;
+        this.connected = largestComponent();
+    }
+
+    /**
+     * Generate a topology
+     * @param topology The kind of graph
+     * @param nodeCount Number of nodes
+     * @param seed Random seed
+     * @return The generated graph
+     */
+    static SyntheticGraph generate(Topology topology, int nodeCount, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        switch (topology) {
+            case GRID:
+                return grid(nodeCount, random);
+            case GEOMETRIC:
+                return geometric(nodeCount, random);
+            case SCALE_FREE:
+                return scaleFree(nodeCount, random);
+            default:
+                throw new IllegalArgumentException("Unknown topology: " + topology);
+        }
+    }
+
+    static String name(int node) {
+        return "N" + node;
+    }
+
+    /**
+     * Load the topology into a fresh Graph through the public addLocation/addPath API
+     * @return The application Graph
+     */
+    Object toGraph() {
+        Object graph = GraphApi.newGraph();
+        for (int u = 0; u < nodeCount; u++) {
+            GraphApi.addLocation(graph, name(u), "Building", xs[u], ys[u]);
+        }
+        for (int e = 0; e < edgeCount; e++) {
+            GraphApi.addPath(graph, name(edgeFrom[e]), name(edgeTo[e]));
+        }
+        return graph;
+    }
+
+    private static SyntheticGraph grid(int n, SplittableRandom random) {
+        int side = (int) Math.ceil(Math.sqrt(n));
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        for (int u = 0; u < n; u++) {
+            xs[u] = (u % side) * SPACING + random.nextDouble(-0.2, 0.2) * SPACING;
+            ys[u] = (u / side) * SPACING + random.nextDouble(-0.2, 0.2) * SPACING;
+        }
+        EdgeList edges = new EdgeList(n * 2);
+        for (int u = 0; u < n; u++) {
+            // Keep the first row and column intact so the grid stays connected
+            boolean merge = u % side != 0 && u >= side && random.nextInt(10) == 0;
+            if (u % side + 1 < side && u + 1 < n && !merge) {
+                edges.add(u, u + 1);
+            }
+            if (u + side < n) {
+                edges.add(u, u + side);
+            }
+        }
+        return new SyntheticGraph(xs, ys, edges.from, edges.to, edges.size);
+    }
+
+    private static SyntheticGraph geometric(int n, SplittableRandom random) {
+        double extent = Math.sqrt(n) * SPACING;
+        double radius = Math.sqrt(6.0 / (Math.PI * n)) * extent;
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        for (int u = 0; u < n; u++) {
+            xs[u] = random.nextDouble() * extent;
+            ys[u] = random.nextDouble() * extent;
+        }
+
+        // Bucket points into radius-sized cells so only neighbouring cells are compared
+        int cells = Math.max(1, (int) (extent / radius));
+        int[] cellStart = new int[cells * cells + 1];
+        int[] cellOf = new int[n];
+        for (int u = 0; u < n; u++) {
+            int cx = Math.min(cells - 1, (int) (xs[u] / extent * cells));
+            int cy = Math.min(cells - 1, (int) (ys[u] / extent * cells));
+            cellOf[u] = cy * cells + cx;
+            cellStart[cellOf[u] + 1]++;
+        }
+        for (int c = 0; c < cells * cells; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        int[] fill = Arrays.copyOf(cellStart, cells * cells);
+        int[] members = new int[n];
+        for (int u = 0; u < n; u++) {
+            members[fill[cellOf[u]]++] = u;
+        }
+
+        EdgeList edges = new EdgeList(n * 3);
+        double radiusSquared = radius * radius;
+        for (int u = 0; u < n; u++) {
+            int cx = cellOf[u] % cells;
+            int cy = cellOf[u] / cells;
+            for (int y = Math.max(0, cy - 1); y <= Math.min(cells - 1, cy + 1); y++) {
+                for (int x = Math.max(0, cx - 1); x <= Math.min(cells - 1, cx + 1); x++) {
+                    int c = y * cells + x;
+                    for (int i = cellStart[c]; i < cellStart[c + 1]; i++) {
+                        int v = members[i];
+                        double dx = xs[u] - xs[v];
+                        double dy = ys[u] - ys[v];
+                        if (v > u && dx * dx + dy * dy <= radiusSquared) {
+                            edges.add(u, v);
+                        }
+                    }
+                }
+            }
+        }
+        return new SyntheticGraph(xs, ys, edges.from, edges.to, edges.size);
+    }
+
+    private static SyntheticGraph scaleFree(int n, SplittableRandom random) {
+        double extent = Math.sqrt(n) * SPACING;
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        for (int u = 0; u < n; u++) {
+            xs[u] = random.nextDouble() * extent;
+            ys[u] = random.nextDouble() * extent;
+        }
+        EdgeList edges = new EdgeList(n * 2);
+        // Every edge endpoint is recorded once, so a uniform pick is degree-proportional
+        int[] endpoints = new int[n * 4];
+        int endpointCount = 0;
+        for (int u = 1; u < n; u++) {
+            int links = Math.min(2, u);
+            int first = -1;
+            for (int l = 0; l < links; l++) {
+                int v = endpointCount == 0 ? 0 : endpoints[random.nextInt(endpointCount)];
+                if (v == first) {
+                    v = random.nextInt(u);
+                }
+                if (v == first) {
+                    continue;
+                }
+                first = v;
+                edges.add(u, v);
+                endpoints[endpointCount++] = u;
+                endpoints[endpointCount++] = v;
+            }
+        }
+        return new SyntheticGraph(xs, ys, edges.from, edges.to, edges.size);
+    }
+
+    private int[] largestComponent() {
+        int[] parent = new int[nodeCount];
+        for (int u = 0; u < nodeCount; u++) {
+            parent[u] = u;
+        }
+        for (int e = 0; e < edgeCount; e++) {
+            int a = find(parent, edgeFrom[e]);
+            int b = find(parent, edgeTo[e]);
+            if (a != b) {
+                parent[a] = b;
+            }
+        }
+        int[] size = new int[nodeCount];
+        int best = 0;
+        for (int u = 0; u < nodeCount; u++) {
+            int root = find(parent, u);
+            if (++size[root] > size[best]) {
+                best = root;
+            }
+        }
+        int[] nodes = new int[size[best]];
+        int count = 0;
+        for (int u = 0; u < nodeCount; u++) {
+            if (find(parent, u) == best) {
+                nodes[count++] = u;
+            }
+        }
+        return nodes;
+    }
+
+    private static int find(int[] parent, int u) {
+        while (parent[u] != u) {
+            parent[u] = parent[parent[u]];
+            u = parent[u];
+        }
+        return u;
+    }
+
+    /**
+     * Growable pair of int arrays
+     */
+    private static final class EdgeList {
+        int[] from;
+        int[] to;
+        int size;
+
+        EdgeList(int capacity) {
+            from = new int[Math.max(capacity, 4)];
+            to = new int[from.length];
+        }
+
+        void add(int u, int v) {
+            if (size == from.length) {
+                from = Arrays.copyOf(from, size * 2);
+                to = Arrays.copyOf(to, size * 2);
+            }
+            from[size] = u;
+            to[size++] = v;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Lookups by a null location name find nothing rather than throwing
+ */
+class NullLookupTest {
+    private Graph graph;
+
+    @BeforeEach
+    void setUp() {
+        graph = new Graph();
+        graph.addLocation(new Location("Main Gate", "Gate", 0, 0));
+        graph.addLocation(new Location("Balme Library", "Library", 100, 0));
+        graph.addPath("Main Gate", "Balme Library");
+    }
+
+    @Test
+    void nodeIdsFindNull() {
+        String[] names = {"Main Gate", "Balme Library"};
+        assertEquals(-1, NodeIds.of(names, names.length).find(null, names));
+    }
+
+    @Test
+    void graphLookupsByNull() {
+        assertFalse(graph.locationExists(null));
+        assertNull(graph.getLocation(null));
+        assertTrue(graph.getNeighbors(null).isEmpty());
+        assertEquals(Double.MAX_VALUE, graph.getDistance(null, "Main Gate"));
+        assertTrue(graph.findShortestPath(null, "Main Gate").isEmpty());
+        assertTrue(graph.findShortestPath("Main Gate", null).isEmpty());
+        assertNull(graph.findShortestRoute(null, "Balme Library"));
+        assertFalse(graph.getAllLocationNames().contains(null));
+    }
+
+    @Test
+    void compiledGraphLookupByNull() {
+        assertEquals(-1, graph.compile().indexOf(null));
+        assertEquals(Arrays.asList("Main Gate", "Balme Library"), graph.findShortestPath("Main Gate", "Balme Library"));
+    }
+
+    @Test
+    void mappedGraphLookupByNull() throws Exception {
+        Path file = Files.createTempFile("null-lookup", ".graph");
+        try {
+            MappedGraph.write(graph, file);
+            MappedGraph mapped = MappedGraph.open(file);
+            assertEquals(-1, mapped.indexOf(null));
+            assertFalse(mapped.locationExists(null));
+            assertNull(mapped.getLocation(null));
+            assertTrue(mapped.getNeighbors(null).isEmpty());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void serviceLookupsByNull() {
+        try (RoutingService service = new RoutingService(graph)) {
+            assertFalse(service.locationExists(null));
+            assertNull(service.getLocation(null));
+            assertTrue(service.findShortestPath(null, "Main Gate").isEmpty());
+        }
+    }
+}
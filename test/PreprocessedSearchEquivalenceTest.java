@@ -0,0 +1,110 @@
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * CONTRACTION_HIERARCHY, ALT and MULTI_LEVEL find the same shortest distances as a plain
+ * Dijkstra, on a graph and through a RoutingService, before and after path edits
+ */
+class PreprocessedSearchEquivalenceTest {
+    private static final int LOCATIONS = 80;
+    private static final Graph.SearchAlgorithm[] PREPROCESSED = {
+        Graph.SearchAlgorithm.CONTRACTION_HIERARCHY, Graph.SearchAlgorithm.ALT, Graph.SearchAlgorithm.MULTI_LEVEL
+    };
+
+    @Test
+    void graphQueriesMatchReference() {
+        for (long seed = 1; seed <= 4; seed++) {
+            Graph graph = RandomGraphs.generate(seed, LOCATIONS);
+            graph.partition(8); // several overlay levels on a small graph
+            assertAllPairs(graph, graph::findShortestPath);
+        }
+    }
+
+    @Test
+    void graphQueriesMatchReferenceAfterEdits() {
+        for (long seed = 1; seed <= 4; seed++) {
+            Graph graph = RandomGraphs.generate(seed, LOCATIONS);
+            graph.partition(8);
+            // Build every structure first, so the edits have to update or drop them
+            assertAllPairs(graph, graph::findShortestPath);
+            RandomGraphs.edit(graph, seed, 20);
+            assertAllPairs(graph, graph::findShortestPath);
+        }
+    }
+
+    @Test
+    void distanceOracleMatchesReference() {
+        Graph graph = RandomGraphs.generate(3, LOCATIONS);
+        assertOracle(graph);
+        assertTrue(graph.buildHubLabels(1 << 20));
+        assertOracle(graph);
+    }
+
+    @Test
+    void savedHierarchyMatchesReference() throws Exception {
+        Graph graph = RandomGraphs.generate(5, LOCATIONS);
+        Path file = Files.createTempFile("hierarchy", ".ch");
+        try {
+            graph.getContractionHierarchy().save(file);
+            Graph copy = RandomGraphs.generate(5, LOCATIONS);
+            copy.setContractionHierarchy(ContractionHierarchy.load(file));
+            assertAllPairs(copy, copy::findShortestPath);
+            copy.setPathLength(RandomGraphs.name(1), copy.getNeighbors(RandomGraphs.name(1)).get(0), 5000);
+            assertThrows(IllegalArgumentException.class, () -> {
+                copy.setContractionHierarchy(ContractionHierarchy.load(file));
+            });
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void serviceQueriesMatchReferenceAcrossSnapshots() {
+        Graph reference = RandomGraphs.generate(6, LOCATIONS);
+        try (RoutingService service = new RoutingService(RandomGraphs.generate(6, LOCATIONS))) {
+            assertAllPairs(reference, service::findShortestPath);
+            for (int round = 0; round < 3; round++) {
+                long seed = 100 + round;
+                RandomGraphs.edit(reference, seed, 10);
+                service.edit(graph -> RandomGraphs.edit(graph, seed, 10));
+                assertAllPairs(reference, service::findShortestPath);
+            }
+        }
+    }
+
+    private interface PathFinder {
+        List<String> find(String source, String destination, Graph.SearchAlgorithm algorithm);
+    }
+
+    private static void assertAllPairs(Graph reference, PathFinder engine) {
+        for (int s = 0; s < LOCATIONS; s++) {
+            String source = RandomGraphs.name(s);
+            Map<String, Double> expected = RandomGraphs.distancesFrom(reference, source);
+            for (int t = 0; t < LOCATIONS; t++) {
+                String destination = RandomGraphs.name(t);
+                for (Graph.SearchAlgorithm algorithm : PREPROCESSED) {
+                    List<String> path = engine.find(source, destination, algorithm);
+                    RandomGraphs.assertShortestPath(reference, path, source, destination, expected.get(destination));
+                }
+            }
+        }
+    }
+
+    private static void assertOracle(Graph graph) {
+        for (int s = 0; s < LOCATIONS; s += 3) {
+            String source = RandomGraphs.name(s);
+            Map<String, Double> expected = RandomGraphs.distancesFrom(graph, source);
+            for (int t = 0; t < LOCATIONS; t++) {
+                String destination = RandomGraphs.name(t);
+                RandomGraphs.assertDistance(expected.get(destination), graph.findShortestDistance(source, destination),
+                    source + " -> " + destination);
+            }
+        }
+    }
+}
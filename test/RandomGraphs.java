@@ -0,0 +1,154 @@
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Small seeded random campus graphs and a textbook Dijkstra to check the routing engines against
+ */
+final class RandomGraphs {
+    static final double TOLERANCE = 1e-9;
+
+    private RandomGraphs() {
+    }
+
+    /**
+     * Generate a graph of locations N0 .. N(n-1) scattered over a 1000 x 1000 square. Each
+     * location is joined to a few of its nearest earlier locations, so most of the graph is
+     * connected; the last two locations are joined only to each other.
+     * @param seed Random seed
+     * @param n Number of locations (at least 4)
+     * @return The graph
+     */
+    static Graph generate(long seed, int n) {
+        Random random = new Random(seed);
+        Graph graph = new Graph();
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = random.nextDouble() * 1000;
+            ys[i] = random.nextDouble() * 1000;
+            graph.addLocation(new Location(name(i), i % 3 == 0 ? "Hall" : "Building", xs[i], ys[i]));
+        }
+        for (int i = 1; i < n - 2; i++) {
+            Integer[] earlier = new Integer[i];
+            for (int j = 0; j < i; j++) {
+                earlier[j] = j;
+            }
+            final int from = i;
+            Arrays.sort(earlier, Comparator.comparingDouble(j -> Math.hypot(xs[from] - xs[j], ys[from] - ys[j])));
+            int links = 1 + random.nextInt(3);
+            for (int k = 0; k < Math.min(links, i); k++) {
+                graph.addPath(name(i), name(earlier[k]));
+            }
+        }
+        graph.addPath(name(n - 2), name(n - 1));
+        return graph;
+    }
+
+    static String name(int i) {
+        return "N" + i;
+    }
+
+    /**
+     * Lengthen, close and add paths at random, as edits between queries would
+     * @param graph The graph to edit
+     * @param seed Random seed
+     * @param edits Number of edits
+     */
+    static void edit(Graph graph, long seed, int edits) {
+        Random random = new Random(seed);
+        int n = graph.getLocationCount();
+        for (int e = 0; e < edits; e++) {
+            String source = name(random.nextInt(n - 2));
+            List<String> neighbors = graph.getNeighbors(source);
+            if (neighbors.isEmpty()) {
+                continue;
+            }
+            String destination = neighbors.get(random.nextInt(neighbors.size()));
+            switch (random.nextInt(4)) {
+                case 0:
+                    double stretch = 1.5 + random.nextDouble() * 3;
+                    graph.setPathLength(source, destination, graph.getDistance(source, destination) * stretch);
+                    break;
+                case 1:
+                    graph.closePath(source, destination);
+                    break;
+                case 2:
+                    graph.reopenPath(source, destination);
+                    graph.setPathLength(source, destination, graph.getDistance(source, destination));
+                    break;
+                default:
+                    String other = name(random.nextInt(n - 2));
+                    if (!other.equals(source)) {
+                        graph.addPath(source, other);
+                    }
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Shortest distances from a location by the plain O(n^2) Dijkstra over the public API
+     * @param graph The graph
+     * @param source The starting location name
+     * @return Distance to every location, Double.MAX_VALUE if unreachable
+     */
+    static Map<String, Double> distancesFrom(Graph graph, String source) {
+        Map<String, Double> distance = new HashMap<>();
+        for (String name : graph.getAllLocationNames()) {
+            distance.put(name, Double.MAX_VALUE);
+        }
+        distance.put(source, 0.0);
+        Set<String> settled = new HashSet<>();
+        while (true) {
+            String next = null;
+            for (Map.Entry<String, Double> entry : distance.entrySet()) {
+                if (!settled.contains(entry.getKey()) && entry.getValue() < Double.MAX_VALUE
+                        && (next == null || entry.getValue() < distance.get(next))) {
+                    next = entry.getKey();
+                }
+            }
+            if (next == null) {
+                return distance;
+            }
+            settled.add(next);
+            for (String neighbor : graph.getNeighbors(next)) {
+                double length = graph.getPathLength(next, neighbor);
+                if (length != Double.POSITIVE_INFINITY && distance.get(next) + length < distance.get(neighbor)) {
+                    distance.put(neighbor, distance.get(next) + length);
+                }
+            }
+        }
+    }
+
+    /**
+     * Check that a path found by an engine is a shortest path
+     * @param graph The graph searched
+     * @param path The path found
+     * @param source The starting location name
+     * @param destination The destination location name
+     * @param expected The shortest distance, Double.MAX_VALUE if there is no path
+     */
+    static void assertShortestPath(Graph graph, List<String> path, String source, String destination, double expected) {
+        String query = source + " -> " + destination;
+        if (expected == Double.MAX_VALUE) {
+            assertTrue(path.isEmpty(), "no path expected for " + query + ", got " + path);
+            return;
+        }
+        assertFalse(path.isEmpty(), "path expected for " + query);
+        assertEquals(source, path.get(0), query);
+        assertEquals(destination, path.get(path.size() - 1), query);
+        double length = 0.0;
+        for (int i = 0; i + 1 < path.size(); i++) {
+            double step = graph.getPathLength(path.get(i), path.get(i + 1));
+            assertTrue(step < Double.POSITIVE_INFINITY,
+                "closed or missing path " + path.get(i) + " - " + path.get(i + 1));
+            length += step;
+        }
+        assertDistance(expected, length, query);
+    }
+
+    static void assertDistance(double expected, double actual, String message) {
+        assertEquals(expected, actual, Math.max(1.0, expected) * TOLERANCE, message);
+    }
+}
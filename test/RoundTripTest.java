@@ -0,0 +1,180 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Graphs written as CSV, GeoJSON or a mapped snapshot read back with the same locations,
+ * paths and shortest routes
+ */
+class RoundTripTest {
+    private static final int LOCATIONS = 40;
+
+    @Test
+    void csvRoundTrip() throws IOException {
+        Graph graph = RandomGraphs.generate(41, LOCATIONS);
+        Path nodes = Files.createTempFile("nodes", ".csv");
+        Path edges = Files.createTempFile("edges", ".csv");
+        try {
+            StringBuilder nodeRows = new StringBuilder("name,type,x,y\n# written by RoundTripTest\n");
+            StringBuilder edgeRows = new StringBuilder("source,destination\n");
+            for (String name : sortedNames(graph)) {
+                Location location = graph.getLocation(name);
+                nodeRows.append('"').append(name).append("\",").append(location.getType()).append(',')
+                    .append(location.getX()).append(',').append(location.getY()).append('\n');
+                for (String neighbor : new TreeSet<>(graph.getNeighbors(name))) {
+                    if (name.compareTo(neighbor) < 0) {
+                        edgeRows.append(name).append(',').append(neighbor).append("\r\n");
+                    }
+                }
+            }
+            Files.writeString(nodes, nodeRows);
+            Files.writeString(edges, edgeRows);
+            assertSameGraph(graph, new GraphLoader().loadCsv(nodes, edges));
+        } finally {
+            Files.deleteIfExists(nodes);
+            Files.deleteIfExists(edges);
+        }
+    }
+
+    @Test
+    void geoJsonRoundTrip() throws IOException {
+        Graph graph = RandomGraphs.generate(42, LOCATIONS);
+        Path file = Files.createTempFile("map", ".geojson");
+        try {
+            StringBuilder json = new StringBuilder("{\"type\": \"FeatureCollection\", \"features\": [\n");
+            String separator = "";
+            for (String name : sortedNames(graph)) {
+                Location location = graph.getLocation(name);
+                json.append(separator).append("{\"type\": \"Feature\", \"geometry\": {\"type\": \"Point\", ")
+                    .append("\"coordinates\": [").append(location.getX()).append(", ").append(location.getY())
+                    .append("]}, \"properties\": {\"name\": \"").append(name)
+                    .append("\", \"type\": \"").append(location.getType()).append("\"}}");
+                separator = ",\n";
+                for (String neighbor : new TreeSet<>(graph.getNeighbors(name))) {
+                    if (name.compareTo(neighbor) < 0) {
+                        Location other = graph.getLocation(neighbor);
+                        json.append(separator)
+                            .append("{\"type\": \"Feature\", \"geometry\": {\"type\": \"LineString\", ")
+                            .append("\"coordinates\": [[").append(location.getX()).append(", ").append(location.getY())
+                            .append("], [").append(other.getX()).append(", ").append(other.getY()).append("]]}, ")
+                            .append("\"properties\": {\"from\": \"").append(name).append("\", \"to\": \"")
+                            .append(neighbor).append("\"}}");
+                    }
+                }
+            }
+            json.append("\n]}\n");
+            Files.writeString(file, json);
+            assertSameGraph(graph, new GraphLoader().loadGeoJson(file));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void malformedCoordinateNamesFileAndLine() throws IOException {
+        Path nodes = Files.createTempFile("nodes", ".csv");
+        Path edges = Files.createTempFile("edges", ".csv");
+        try {
+            Files.writeString(nodes, "name,type,x,y\nMain Gate,Gate,0,0\r\n\r\nBalme Library,Library,12a,5\n");
+            Files.writeString(edges, "Main Gate,Balme Library\n");
+            IOException error = assertThrows(IOException.class, () -> new GraphLoader().loadCsv(nodes, edges));
+            assertTrue(error.getMessage().contains("12a"), error.getMessage());
+            assertTrue(error.getMessage().contains("line 4"), error.getMessage());
+            assertTrue(error.getMessage().contains(nodes.toString()), error.getMessage());
+        } finally {
+            Files.deleteIfExists(nodes);
+            Files.deleteIfExists(edges);
+        }
+    }
+
+    @Test
+    void snapshotRoundTrip() throws IOException {
+        Graph graph = RandomGraphs.generate(43, LOCATIONS);
+        Path file = Files.createTempFile("campus", ".graph");
+        try {
+            MappedGraph.write(graph, file);
+            MappedGraph mapped = MappedGraph.open(file);
+            assertEquals(graph.getLocationCount(), mapped.getLocationCount());
+            for (String name : graph.getAllLocationNames()) {
+                Location expected = graph.getLocation(name);
+                Location actual = mapped.getLocation(name);
+                assertEquals(expected.getType(), actual.getType(), name);
+                assertEquals(expected.getX(), actual.getX(), name);
+                assertEquals(expected.getY(), actual.getY(), name);
+                assertEquals(new HashSet<>(graph.getNeighbors(name)), new HashSet<>(mapped.getNeighbors(name)), name);
+            }
+            assertSameGraph(graph, mapped.toGraph());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void snapshotKeepsPathOverrides() throws IOException {
+        Graph graph = RandomGraphs.generate(44, LOCATIONS);
+        RandomGraphs.edit(graph, 44, 15);
+        String source = RandomGraphs.name(3);
+        String destination = graph.getNeighbors(source).get(0);
+        graph.setPathAttributes(source, destination, new PathAttributes(true, false, 0.06, 600, 660));
+        graph.closePath(source, destination);
+        graph.setPathLength(source, destination, graph.getDistance(source, destination) * 2);
+        Path file = Files.createTempFile("campus", ".graph");
+        try {
+            MappedGraph.write(graph, file);
+            Graph loaded = MappedGraph.open(file).toGraph();
+            for (String name : graph.getAllLocationNames()) {
+                for (String neighbor : graph.getNeighbors(name)) {
+                    String path = name + " - " + neighbor;
+                    assertEquals(graph.isPathClosed(name, neighbor), loaded.isPathClosed(name, neighbor), path);
+                    assertEquals(graph.getPathLength(name, neighbor), loaded.getPathLength(name, neighbor), path);
+                    assertEquals(graph.getPathAttributes(name, neighbor).toString(),
+                        loaded.getPathAttributes(name, neighbor).toString(), path);
+                }
+            }
+            assertSameGraph(graph, loaded);
+            // The first edit after loading recompiles from the restored lengths and closures
+            graph.reopenPath(source, destination);
+            loaded.reopenPath(source, destination);
+            graph.addPath(RandomGraphs.name(0), RandomGraphs.name(5));
+            loaded.addPath(RandomGraphs.name(0), RandomGraphs.name(5));
+            assertSameGraph(graph, loaded);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static List<String> sortedNames(Graph graph) {
+        List<String> names = new ArrayList<>(graph.getAllLocationNames());
+        Collections.sort(names);
+        return names;
+    }
+
+    /**
+     * Same locations and neighbours, and the same shortest distances by the loaded graph's own search
+     */
+    private static void assertSameGraph(Graph expected, Graph actual) {
+        assertEquals(expected.getAllLocationNames(), actual.getAllLocationNames());
+        for (String name : expected.getAllLocationNames()) {
+            assertEquals(expected.getLocation(name).getType(), actual.getLocation(name).getType(), name);
+            assertEquals(expected.getLocation(name).getX(), actual.getLocation(name).getX(), name);
+            assertEquals(expected.getLocation(name).getY(), actual.getLocation(name).getY(), name);
+            assertEquals(new HashSet<>(expected.getNeighbors(name)), new HashSet<>(actual.getNeighbors(name)), name);
+        }
+        for (String source : sortedNames(expected)) {
+            Map<String, Double> distances = RandomGraphs.distancesFrom(expected, source);
+            for (String destination : expected.getAllLocationNames()) {
+                List<String> path = actual.findShortestPath(source, destination);
+                RandomGraphs.assertShortestPath(expected, path, source, destination, distances.get(destination));
+                if (!path.isEmpty()) {
+                    RandomGraphs.assertDistance(distances.get(destination), actual.getPathDistance(path),
+                        source + " -> " + destination);
+                }
+            }
+        }
+    }
+}
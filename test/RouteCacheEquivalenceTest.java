@@ -0,0 +1,61 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * A route cache answers like the graph it fronts, including after the edits that only
+ * invalidate part of it
+ */
+class RouteCacheEquivalenceTest {
+    private static final int LOCATIONS = 30;
+    private static final double SPEED = 5.0;
+
+    @Test
+    void cachedRoutesMatchGraphAcrossEdits() {
+        for (RouteCache.EvictionPolicy policy : RouteCache.EvictionPolicy.values()) {
+            for (int capacity : new int[] {64, 4096}) {
+                Graph graph = RandomGraphs.generate(31, LOCATIONS);
+                RouteCache cache = new RouteCache(graph, capacity, policy);
+                String label = policy + "/" + capacity;
+                assertCacheMatches(graph, cache, label + " before edits");
+                assertCacheMatches(graph, cache, label + " warm");
+                if (capacity >= 2 * LOCATIONS * LOCATIONS) {
+                    assertEquals(2 * LOCATIONS * LOCATIONS, cache.getHits(), label); // every query is cached
+                }
+                for (int round = 0; round < 4; round++) {
+                    RandomGraphs.edit(graph, 300 + round, 5);
+                    assertCacheMatches(graph, cache, label + " after edit round " + round);
+                }
+                graph.addLocation(new Location("Annex", "Building", 500, 500));
+                graph.addPath("Annex", RandomGraphs.name(0));
+                assertCacheMatches(graph, cache, label + " after adding a location");
+                assertTrue(cache.size() <= capacity, label);
+            }
+        }
+    }
+
+    private static void assertCacheMatches(Graph graph, RouteCache cache, String message) {
+        for (int s = 0; s < LOCATIONS; s++) {
+            String source = RandomGraphs.name(s);
+            Map<String, Double> expected = RandomGraphs.distancesFrom(graph, source);
+            for (int t = 0; t < LOCATIONS; t++) {
+                String destination = RandomGraphs.name(t);
+                String query = message + ": " + source + " -> " + destination;
+                RandomGraphs.assertShortestPath(graph, cache.findShortestPath(source, destination), source, destination,
+                    expected.get(destination));
+
+                List<Graph.RouteOption> fresh = graph.findRouteOptionsSortedByTime(source, destination, SPEED);
+                List<Graph.RouteOption> cached = cache.findRouteOptionsSortedByTime(source, destination, SPEED);
+                assertEquals(fresh.size(), cached.size(), query);
+                for (int i = 0; i < fresh.size(); i++) {
+                    RandomGraphs.assertDistance(fresh.get(i).getDistance(), cached.get(i).getDistance(), query);
+                    RandomGraphs.assertDistance(fresh.get(i).getDistance(),
+                        graph.getPathDistance(cached.get(i).getPath()), query);
+                }
+            }
+        }
+    }
+}
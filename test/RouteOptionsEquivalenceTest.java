@@ -0,0 +1,111 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Route options are the three shortest loopless paths within 50% of the shortest, by
+ * exhaustive enumeration on small graphs, and the parallel search returns the same options
+ */
+class RouteOptionsEquivalenceTest {
+    private static final int LOCATIONS = 14;
+    private static final double SPEED = 5.0;
+
+    @Test
+    void optionsMatchEnumeration() {
+        for (long seed = 1; seed <= 6; seed++) {
+            Graph graph = RandomGraphs.generate(seed, LOCATIONS);
+            if (seed % 2 == 0) {
+                RandomGraphs.edit(graph, seed, 6);
+            }
+            for (int s = 0; s < LOCATIONS; s++) {
+                for (int t = 0; t < LOCATIONS; t++) {
+                    assertOptions(graph, RandomGraphs.name(s), RandomGraphs.name(t));
+                }
+            }
+        }
+    }
+
+    @Test
+    void parallelOptionsMatchSequential() {
+        Graph graph = RandomGraphs.generate(11, 60);
+        for (int s = 0; s < 60; s += 5) {
+            for (int t = 0; t < 60; t += 3) {
+                String source = RandomGraphs.name(s);
+                String destination = RandomGraphs.name(t);
+                assertEquals(paths(graph.findRouteOptionsSortedByTime(source, destination, SPEED, false)),
+                    paths(graph.findRouteOptionsSortedByTime(source, destination, SPEED, true)),
+                    source + " -> " + destination);
+            }
+        }
+    }
+
+    @Test
+    void serviceOptionsMatchGraph() {
+        Graph graph = RandomGraphs.generate(12, 40);
+        try (RoutingService service = new RoutingService(RandomGraphs.generate(12, 40))) {
+            for (int s = 0; s < 40; s += 4) {
+                for (int t = 0; t < 40; t += 3) {
+                    String source = RandomGraphs.name(s);
+                    String destination = RandomGraphs.name(t);
+                    List<List<String>> expected = paths(graph.findRouteOptionsSortedByTime(source, destination, SPEED));
+                    assertEquals(expected, paths(service.findRouteOptionsSortedByTime(source, destination, SPEED)));
+                    assertEquals(expected,
+                        paths(service.findRouteOptionsSortedByTime(source, destination, SPEED, true)));
+                }
+            }
+        }
+    }
+
+    private static void assertOptions(Graph graph, String source, String destination) {
+        String query = source + " -> " + destination;
+        List<Graph.RouteOption> options = graph.findRouteOptionsSortedByTime(source, destination, SPEED);
+        List<Double> lengths = new ArrayList<>();
+        enumerate(graph, destination, new ArrayList<>(List.of(source)), 0.0, lengths);
+        Collections.sort(lengths);
+        List<Double> expected = new ArrayList<>();
+        for (double length : lengths) {
+            if (expected.size() < 3 && length <= lengths.get(0) * 1.5) {
+                expected.add(length);
+            }
+        }
+        assertEquals(expected.size(), options.size(), query + " options " + paths(options) + " vs " + expected);
+        for (int i = 0; i < options.size(); i++) {
+            Graph.RouteOption option = options.get(i);
+            RandomGraphs.assertDistance(expected.get(i), option.getDistance(), query);
+            assertEquals(source, option.getPath().get(0), query);
+            assertEquals(destination, option.getPath().get(option.getPath().size() - 1), query);
+            assertEquals(option.getPath().size(), new HashSet<>(option.getPath()).size(), query + " loops");
+            RandomGraphs.assertDistance(option.getDistance(), graph.getPathDistance(option.getPath()), query);
+        }
+    }
+
+    /**
+     * Collect the length of every loopless path from the end of prefix to destination
+     */
+    private static void enumerate(Graph graph, String destination, List<String> prefix, double length,
+                                  List<Double> lengths) {
+        String last = prefix.get(prefix.size() - 1);
+        if (last.equals(destination)) {
+            lengths.add(length);
+            return;
+        }
+        for (String next : new LinkedHashSet<>(graph.getNeighbors(last))) { // a re-added path is listed twice
+            double step = graph.getPathLength(last, next);
+            if (!prefix.contains(next) && step != Double.POSITIVE_INFINITY) {
+                prefix.add(next);
+                enumerate(graph, destination, prefix, length + step, lengths);
+                prefix.remove(prefix.size() - 1);
+            }
+        }
+    }
+
+    private static List<List<String>> paths(List<Graph.RouteOption> options) {
+        List<List<String>> paths = new ArrayList<>();
+        for (Graph.RouteOption option : options) {
+            paths.add(option.getPath());
+        }
+        return paths;
+    }
+}
@@ -0,0 +1,84 @@
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * A route table holds the shortest paths, and repairing it after path edits gives the same
+ * table as building it again
+ */
+class RouteTableEquivalenceTest {
+    private static final int LOCATIONS = 50;
+
+    @Test
+    void builtTableMatchesReference() throws Exception {
+        Graph graph = RandomGraphs.generate(21, LOCATIONS);
+        Path file = Files.createTempFile("routes", ".table");
+        try {
+            RouteTable.build(graph, file);
+            assertTable(graph, RouteTable.open(file));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void repairedTableMatchesRebuild() throws Exception {
+        for (long seed = 1; seed <= 5; seed++) {
+            Graph graph = RandomGraphs.generate(seed, LOCATIONS);
+            Path file = Files.createTempFile("repaired", ".table");
+            try {
+                RouteTable.build(graph, file);
+                RouteTable table = RouteTable.open(file);
+                for (int round = 0; round < 3; round++) {
+                    long version = graph.getVersion();
+                    RandomGraphs.edit(graph, seed * 10 + round, 8);
+                    List<Graph.PathChange> changes = graph.changesSince(version);
+                    assertNotNull(changes);
+                    RouteTable.update(graph, file, changes);
+                    assertSameDistances(rebuild(graph), table, "seed " + seed + " round " + round);
+                    assertTable(graph, table);
+                }
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private static RouteTable rebuild(Graph graph) throws Exception {
+        Path file = Files.createTempFile("rebuilt", ".table");
+        try {
+            RouteTable.build(graph, file);
+            return RouteTable.open(file); // the mapping outlives the file
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static void assertSameDistances(RouteTable expected, RouteTable actual, String message) {
+        for (int s = 0; s < LOCATIONS; s++) {
+            for (int t = 0; t < LOCATIONS; t++) {
+                RandomGraphs.assertDistance(expected.distance(s, t), actual.distance(s, t),
+                    message + ": " + expected.name(s) + " -> " + expected.name(t));
+            }
+        }
+    }
+
+    private static void assertTable(Graph graph, RouteTable table) {
+        for (int s = 0; s < LOCATIONS; s++) {
+            String source = RandomGraphs.name(s);
+            Map<String, Double> expected = RandomGraphs.distancesFrom(graph, source);
+            for (int t = 0; t < LOCATIONS; t++) {
+                String destination = RandomGraphs.name(t);
+                RandomGraphs.assertDistance(expected.get(destination), table.getDistance(source, destination),
+                    source + " -> " + destination);
+                RandomGraphs.assertShortestPath(graph, table.findShortestPath(source, destination), source, destination,
+                    expected.get(destination));
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * DIJKSTRA, A_STAR and BIDIRECTIONAL find shortest paths, before and after path edits
+ */
+class ShortestPathEquivalenceTest {
+    private static final Graph.SearchAlgorithm[] SEARCHES = {
+        Graph.SearchAlgorithm.DIJKSTRA, Graph.SearchAlgorithm.A_STAR, Graph.SearchAlgorithm.BIDIRECTIONAL
+    };
+
+    @Test
+    void searchesMatchReference() {
+        for (long seed = 1; seed <= 5; seed++) {
+            Graph graph = RandomGraphs.generate(seed, 60);
+            assertAllPairs(graph);
+        }
+    }
+
+    @Test
+    void searchesMatchReferenceAfterEdits() {
+        for (long seed = 1; seed <= 5; seed++) {
+            Graph graph = RandomGraphs.generate(seed, 60);
+            graph.findShortestPath(RandomGraphs.name(0), RandomGraphs.name(1)); // compile before editing
+            RandomGraphs.edit(graph, seed, 25);
+            assertAllPairs(graph);
+        }
+    }
+
+    @Test
+    void shortestRouteMatchesReference() {
+        Graph graph = RandomGraphs.generate(7, 60);
+        for (int s = 0; s < 60; s += 7) {
+            String source = RandomGraphs.name(s);
+            Map<String, Double> expected = RandomGraphs.distancesFrom(graph, source);
+            for (int t = 0; t < 60; t++) {
+                String destination = RandomGraphs.name(t);
+                Route route = graph.findShortestRoute(source, destination);
+                if (expected.get(destination) == Double.MAX_VALUE) {
+                    assertNull(route);
+                } else {
+                    double distance = expected.get(destination);
+                    RandomGraphs.assertDistance(distance, route.getDistance(), source + " -> " + destination);
+                    RandomGraphs.assertShortestPath(graph, route.getNames(), source, destination, distance);
+                }
+            }
+        }
+    }
+
+    private static void assertAllPairs(Graph graph) {
+        int n = graph.getLocationCount();
+        for (int s = 0; s < n; s++) {
+            String source = RandomGraphs.name(s);
+            Map<String, Double> expected = RandomGraphs.distancesFrom(graph, source);
+            for (int t = 0; t < n; t++) {
+                String destination = RandomGraphs.name(t);
+                for (Graph.SearchAlgorithm algorithm : SEARCHES) {
+                    List<String> path = graph.findShortestPath(source, destination, algorithm);
+                    RandomGraphs.assertShortestPath(graph, path, source, destination, expected.get(destination));
+                }
+            }
+        }
+    }
+}